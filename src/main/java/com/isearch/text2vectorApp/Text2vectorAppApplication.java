@@ -2,8 +2,10 @@ package com.isearch.text2vectorApp;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class Text2vectorAppApplication {
 
     public static void main(String[] args) {
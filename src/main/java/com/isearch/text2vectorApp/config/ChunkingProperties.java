@@ -0,0 +1,18 @@
+package com.isearch.text2vectorApp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for splitting reader output into token-budgeted chunks.
+ *
+ * @param enabled       whether reader output is chunked at all
+ * @param maxTokens     token budget of a single chunk; keep it below the model's num-ctx
+ * @param overlapTokens tokens of trailing context repeated at the start of the next chunk
+ */
+@ConfigurationProperties(prefix = "text2vector.chunking")
+public record ChunkingProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("400") int maxTokens,
+        @DefaultValue("50") int overlapTokens) {
+}
@@ -0,0 +1,15 @@
+package com.isearch.text2vectorApp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for DOCX text extraction.
+ *
+ * @param maxSectionChars a section without a heading or section break is emitted as a document
+ *                        once it reaches this many characters (at the next paragraph boundary)
+ */
+@ConfigurationProperties(prefix = "text2vector.docx")
+public record DocxProperties(
+        @DefaultValue("20000") int maxSectionChars) {
+}
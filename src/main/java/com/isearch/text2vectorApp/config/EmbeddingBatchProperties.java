@@ -0,0 +1,18 @@
+package com.isearch.text2vectorApp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for splitting large text lists and document chunks into model-sized sub-batches.
+ *
+ * @param maxTokens   token budget of a single model call
+ * @param maxTexts    maximum number of texts in a single model call
+ * @param concurrency number of sub-batches sent to the model at the same time, across all requests
+ */
+@ConfigurationProperties(prefix = "text2vector.embedding.batch")
+public record EmbeddingBatchProperties(
+        @DefaultValue("8192") int maxTokens,
+        @DefaultValue("128") int maxTexts,
+        @DefaultValue("4") int concurrency) {
+}
@@ -0,0 +1,21 @@
+package com.isearch.text2vectorApp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Settings for the embedding cache that sits in front of the embedding model.
+ *
+ * @param enabled        whether embeddings are cached at all
+ * @param maxMemory      estimated heap taken by the vectors kept in memory, keys included
+ * @param persistent     whether a PostgreSQL lookup table is used as a second tier
+ * @param tableName      name of the lookup table for the persistent tier
+ */
+@ConfigurationProperties(prefix = "text2vector.embedding.cache")
+public record EmbeddingCacheProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("256MB") DataSize maxMemory,
+        @DefaultValue("false") boolean persistent,
+        @DefaultValue("embedding_cache") String tableName) {
+}
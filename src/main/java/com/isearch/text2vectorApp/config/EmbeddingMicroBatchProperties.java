@@ -0,0 +1,24 @@
+package com.isearch.text2vectorApp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for merging small embedding calls of concurrent requests into one model call.
+ *
+ * @param enabled         whether small calls are merged at all
+ * @param window          how long the first call of a batch waits for others to join
+ * @param maxTokens       token budget of a merged call; a batch that reaches it is sent at once
+ * @param maxTexts        maximum number of texts in a merged call
+ * @param maxRequestTexts calls with more texts are already batched and are sent on their own
+ */
+@ConfigurationProperties(prefix = "text2vector.embedding.micro-batch")
+public record EmbeddingMicroBatchProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("2ms") Duration window,
+        @DefaultValue("4096") int maxTokens,
+        @DefaultValue("64") int maxTexts,
+        @DefaultValue("4") int maxRequestTexts) {
+}
@@ -0,0 +1,107 @@
+package com.isearch.text2vectorApp.config;
+
+import com.isearch.text2vectorApp.embedding.CachingEmbeddingModel;
+import com.isearch.text2vectorApp.embedding.EmbeddingCache;
+import com.isearch.text2vectorApp.embedding.InstrumentedEmbeddingModel;
+import com.isearch.text2vectorApp.embedding.LoadBalancedEmbeddingModel;
+import com.isearch.text2vectorApp.embedding.MicroBatchingEmbeddingModel;
+import com.isearch.text2vectorApp.embedding.ResilientEmbeddingModel;
+import com.isearch.text2vectorApp.embedding.StubEmbeddingModel;
+import com.isearch.text2vectorApp.metrics.PipelineMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.model.ollama.autoconfigure.OllamaEmbeddingProperties;
+import org.springframework.ai.ollama.OllamaEmbeddingModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Configuration for the EmbeddingModel used by the application.
+ * Wraps the auto-configured Ollama model with call metrics, the concurrency limiter,
+ * retries and circuit breaker, micro-batching of small concurrent calls, and the embedding
+ * cache; the vector store and all services
+ * receive this primary bean. With text2vector.embedding.pool.urls set, calls are spread over
+ * those Ollama instances instead. With text2vector.embedding.stub.enabled=true
+ * a deterministic offline model replaces Ollama.
+ */
+@Configuration
+@Slf4j
+public class EmbeddingModelConfig {
+
+    @Bean
+    @Primary
+    public EmbeddingModel embeddingModel(OllamaEmbeddingModel ollamaEmbeddingModel,
+                                         ObjectProvider<LoadBalancedEmbeddingModel> embeddingPool,
+                                         EmbeddingCache embeddingCache,
+                                         PipelineMetrics metrics,
+                                         EmbeddingResilienceProperties resilience,
+                                         EmbeddingMicroBatchProperties microBatch,
+                                         TokenCountEstimator tokenCountEstimator,
+                                         @Value("${text2vector.embedding.stub.enabled:false}") boolean stubEnabled,
+                                         @Value("${text2vector.embedding.stub.latency:0ms}") Duration stubLatency,
+                                         @Value("${text2vector.embedding.stub.failure-rate:0}") double stubFailureRate,
+                                         @Value("${spring.ai.vectorstore.pgvector.embedding-dimension:1024}") int dimensions) {
+        EmbeddingModel model;
+        LoadBalancedEmbeddingModel pool = embeddingPool.getIfAvailable();
+        if (stubEnabled) {
+            log.warn("Using the offline stub embedding model ({} dimensions) instead of Ollama", dimensions);
+            model = new InstrumentedEmbeddingModel(new StubEmbeddingModel(dimensions, stubLatency, stubFailureRate),
+                    metrics);
+        } else if (pool != null) {
+            // Every backend is instrumented on its own, so call metrics count real model calls
+            model = pool;
+        } else {
+            model = new InstrumentedEmbeddingModel(ollamaEmbeddingModel, metrics);
+        }
+        if (resilience.enabled()) {
+            model = new ResilientEmbeddingModel(model, resilience, metrics);
+        }
+        if (microBatch.enabled()) {
+            // Below the cache, so only misses are merged
+            model = new MicroBatchingEmbeddingModel(model, tokenCountEstimator, microBatch, metrics);
+        }
+        return new CachingEmbeddingModel(model, embeddingCache);
+    }
+
+    /**
+     * One Ollama model per configured URL, with the options of spring.ai.ollama.embedding.*,
+     * behind a load balancer. Closed on shutdown, which stops the health checks.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "text2vector.embedding.pool.urls")
+    public LoadBalancedEmbeddingModel embeddingPool(EmbeddingPoolProperties properties,
+                                                    OllamaEmbeddingProperties ollamaProperties,
+                                                    ObjectProvider<RestClient.Builder> restClientBuilder,
+                                                    @Qualifier("embeddingExecutor") ExecutorService embeddingExecutor,
+                                                    PipelineMetrics metrics) {
+        List<LoadBalancedEmbeddingModel.Backend> backends = properties.urls().stream()
+                .map(url -> {
+                    OllamaApi api = OllamaApi.builder()
+                            .baseUrl(url)
+                            .restClientBuilder(restClientBuilder.getIfAvailable(RestClient::builder).clone())
+                            .build();
+                    EmbeddingModel model = OllamaEmbeddingModel.builder()
+                            .ollamaApi(api)
+                            .defaultOptions(ollamaProperties.getOptions())
+                            .build();
+                    return new LoadBalancedEmbeddingModel.Backend(url,
+                            new InstrumentedEmbeddingModel(model, metrics), api::listModels);
+                })
+                .toList();
+        log.info("Spreading embedding calls over {} Ollama instances: {}", backends.size(), properties.urls());
+        return new LoadBalancedEmbeddingModel(backends, embeddingExecutor, properties.healthInterval(),
+                properties.failureThreshold(), properties.minShardTexts(), metrics);
+    }
+}
@@ -0,0 +1,26 @@
+package com.isearch.text2vectorApp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Settings for spreading embedding calls over several Ollama instances.
+ *
+ * @param urls             base URLs of the Ollama instances; when empty, the single instance at
+ *                         spring.ai.ollama.base-url is used
+ * @param healthInterval   pause between health checks of the instances; zero disables them, and
+ *                         instances out of rotation then get a trial call after a 10 s cooldown
+ * @param failureThreshold transient failures in a row that take an instance out of rotation
+ *                         until its next successful health check or trial call
+ * @param minShardTexts    calls with at least twice this many texts are split across instances
+ */
+@ConfigurationProperties(prefix = "text2vector.embedding.pool")
+public record EmbeddingPoolProperties(
+        @DefaultValue List<String> urls,
+        @DefaultValue("10s") Duration healthInterval,
+        @DefaultValue("2") int failureThreshold,
+        @DefaultValue("8") int minShardTexts) {
+}
@@ -0,0 +1,39 @@
+package com.isearch.text2vectorApp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the concurrency limiter, retries and circuit breaker around the embedding model.
+ *
+ * @param enabled          whether model calls go through the limiter, retries and breaker
+ * @param initialLimit     concurrent model calls allowed at startup
+ * @param minLimit         lower bound of the adaptive limit
+ * @param maxLimit         upper bound of the adaptive limit
+ * @param latencyTolerance a call slower than this multiple of the lowest recent latency of
+ *                         calls of similar size counts as a sign of overload
+ * @param backoffRatio     factor applied to the limit on overload (multiplicative decrease)
+ * @param maxWait          how long a call may wait for a free slot before failing with 503
+ * @param maxAttempts      attempts per call, including the first, for transient errors
+ * @param initialBackoff   base delay before the first retry; doubles per retry, with full jitter
+ * @param maxBackoff       upper bound of the retry delay
+ * @param failureThreshold consecutive failed calls that open the circuit
+ * @param openDuration     how long the open circuit fails fast before a trial call is let through
+ */
+@ConfigurationProperties(prefix = "text2vector.embedding.resilience")
+public record EmbeddingResilienceProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("4") int initialLimit,
+        @DefaultValue("1") int minLimit,
+        @DefaultValue("64") int maxLimit,
+        @DefaultValue("2.0") double latencyTolerance,
+        @DefaultValue("0.9") double backoffRatio,
+        @DefaultValue("30s") Duration maxWait,
+        @DefaultValue("3") int maxAttempts,
+        @DefaultValue("100ms") Duration initialBackoff,
+        @DefaultValue("2s") Duration maxBackoff,
+        @DefaultValue("5") int failureThreshold,
+        @DefaultValue("30s") Duration openDuration) {
+}
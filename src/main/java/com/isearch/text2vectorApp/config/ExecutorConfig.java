@@ -0,0 +1,41 @@
+package com.isearch.text2vectorApp.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration for the executors used by the embedding pipeline.
+ * Embedding calls are I/O bound (HTTP to Ollama), so they run on virtual threads;
+ * callers bound their concurrency themselves. Parsing with PDFBox/POI is CPU bound
+ * and runs on a fixed pool with a bounded queue. Page ranges of large PDFs are extracted on
+ * a separate fork-join pool, since parse tasks wait for them.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService embeddingExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("embed-", 0).factory());
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService parseExecutor(PipelineProperties properties) {
+        int threads = properties.effectiveParseThreads();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.parseQueueCapacity())),
+                Thread.ofPlatform().name("parse-", 0).daemon(true).factory(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService pdfPageExecutor(PdfProperties properties) {
+        return new ForkJoinPool(properties.effectiveThreads());
+    }
+}
@@ -0,0 +1,30 @@
+package com.isearch.text2vectorApp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+
+/**
+ * Settings for the in-process HNSW vector store, used with spring.ai.vectorstore.type=hnsw.
+ *
+ * @param m              links per node (twice as many on the bottom layer); higher improves recall
+ *                       at the cost of memory and insert time
+ * @param efConstruction candidate list size while inserting
+ * @param efSearch       candidate list size while searching (at least topK)
+ * @param segmentVectors vectors per off-heap segment
+ * @param maxDeleted     share of deleted documents at which the graph is rebuilt without them, in
+ *                       the background;
+ *                       1 or more never rebuilds
+ * @param snapshotFile   file the index is loaded from at startup and saved to at shutdown;
+ *                       unset keeps the index in memory only
+ */
+@ConfigurationProperties(prefix = "text2vector.hnsw")
+public record HnswProperties(
+        @DefaultValue("16") int m,
+        @DefaultValue("200") int efConstruction,
+        @DefaultValue("64") int efSearch,
+        @DefaultValue("4096") int segmentVectors,
+        @DefaultValue("0.3") double maxDeleted,
+        Path snapshotFile) {
+}
@@ -0,0 +1,31 @@
+package com.isearch.text2vectorApp.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isearch.text2vectorApp.vectorstore.HnswVectorStore;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Replaces the PGVector store with the in-process HNSW store when
+ * spring.ai.vectorstore.type=hnsw (the PGVector auto-configuration backs off for any
+ * type other than pgvector). Components that use the PGVector table over JDBC turn
+ * themselves off, see {@link com.isearch.text2vectorApp.repository.PgVectorTable}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.ai.vectorstore.type", havingValue = "hnsw")
+public class HnswVectorStoreConfig {
+
+    @Bean(destroyMethod = "close")
+    public HnswVectorStore vectorStore(EmbeddingModel embeddingModel,
+                                       BatchingStrategy batchingStrategy,
+                                       HnswProperties properties,
+                                       QuantizationProperties quantization,
+                                       ObjectMapper objectMapper,
+                                       @Value("${spring.ai.vectorstore.pgvector.embedding-dimension:1024}") int dimensions) {
+        return new HnswVectorStore(embeddingModel, batchingStrategy, dimensions, properties, quantization, objectMapper);
+    }
+}
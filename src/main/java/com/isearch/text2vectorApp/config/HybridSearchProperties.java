@@ -0,0 +1,19 @@
+package com.isearch.text2vectorApp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for hybrid (vector + full-text) search.
+ *
+ * @param textSearchConfig PostgreSQL text search configuration used for the full-text index,
+ *                         e.g. simple, english or swedish
+ * @param rrfK             rank constant of reciprocal rank fusion; higher values flatten the ranking
+ * @param candidateFactor  each side returns topK times this many candidates before fusion
+ */
+@ConfigurationProperties(prefix = "text2vector.search.hybrid")
+public record HybridSearchProperties(
+        @DefaultValue("simple") String textSearchConfig,
+        @DefaultValue("60") int rrfK,
+        @DefaultValue("4") int candidateFactor) {
+}
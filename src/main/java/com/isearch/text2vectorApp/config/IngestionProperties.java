@@ -0,0 +1,32 @@
+package com.isearch.text2vectorApp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for storing documents in the vector store and for asynchronous ingestion jobs.
+ *
+ * @param storeBatchSize  chunks embedded and handed to the writer at a time
+ * @param writeBatchSize  rows per JDBC batch when writing to PGVector
+ * @param writeWindow     how long the writer waits for writes from concurrent requests to coalesce
+ * @param maxRowsPerFlush rows written in one transaction before the writer stops coalescing
+ * @param writeQueueSize  embedded slices allowed to wait for the writer; embedding blocks when full
+ * @param workers         ingestion jobs processed at the same time
+ * @param queueCapacity   jobs allowed to wait for a worker before submissions are rejected
+ * @param maxJobs         jobs kept in the registry (finished jobs are evicted first)
+ * @param retention       how long finished jobs stay queryable
+ */
+@ConfigurationProperties(prefix = "text2vector.ingestion")
+public record IngestionProperties(
+        @DefaultValue("256") int storeBatchSize,
+        @DefaultValue("500") int writeBatchSize,
+        @DefaultValue("20ms") Duration writeWindow,
+        @DefaultValue("5000") int maxRowsPerFlush,
+        @DefaultValue("32") int writeQueueSize,
+        @DefaultValue("2") int workers,
+        @DefaultValue("16") int queueCapacity,
+        @DefaultValue("1000") int maxJobs,
+        @DefaultValue("1h") Duration retention) {
+}
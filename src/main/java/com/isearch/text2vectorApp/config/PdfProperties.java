@@ -0,0 +1,22 @@
+package com.isearch.text2vectorApp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for PDF text extraction.
+ *
+ * @param parallelThreshold documents with at least this many pages are extracted page-parallel
+ * @param pagesPerTask      pages extracted by one worker task
+ * @param threads           extraction threads (0 means one per available processor)
+ */
+@ConfigurationProperties(prefix = "text2vector.pdf")
+public record PdfProperties(
+        @DefaultValue("16") int parallelThreshold,
+        @DefaultValue("8") int pagesPerTask,
+        @DefaultValue("0") int threads) {
+
+    public int effectiveThreads() {
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -0,0 +1,22 @@
+package com.isearch.text2vectorApp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for the multi-file embedding pipeline.
+ *
+ * @param parseThreads       threads parsing documents (0 means one per available processor)
+ * @param parseQueueCapacity parse tasks allowed to wait for a thread before callers run them inline
+ * @param embedConcurrency   documents embedded against the model at the same time
+ */
+@ConfigurationProperties(prefix = "text2vector.pipeline")
+public record PipelineProperties(
+        @DefaultValue("0") int parseThreads,
+        @DefaultValue("64") int parseQueueCapacity,
+        @DefaultValue("4") int embedConcurrency) {
+
+    public int effectiveParseThreads() {
+        return parseThreads > 0 ? parseThreads : Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -0,0 +1,28 @@
+package com.isearch.text2vectorApp.config;
+
+import com.isearch.text2vectorApp.util.QuantizationMode;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Vector quantization for storage and search, for PGVector and the HNSW store.
+ *
+ * @param mode         none, float16, int8 (HNSW store only; pgvector has no int8 type) or binary
+ * @param rerankFactor quantized search returns topK times this many candidates, which are
+ *                     reranked with the full-precision vectors
+ */
+@ConfigurationProperties(prefix = "text2vector.quantization")
+public record QuantizationProperties(
+        @DefaultValue("none") QuantizationMode mode,
+        @DefaultValue("4") int rerankFactor) {
+
+    /**
+     * Number of candidates to fetch from the quantized index for topK results.
+     *
+     * @param topK number of results
+     * @return candidate count, at least topK
+     */
+    public int candidates(int topK) {
+        return mode == QuantizationMode.NONE ? topK : topK * Math.max(1, rerankFactor);
+    }
+}
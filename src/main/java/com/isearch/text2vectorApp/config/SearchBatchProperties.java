@@ -0,0 +1,17 @@
+package com.isearch.text2vectorApp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for batch search (POST /api/v1/search/batch).
+ *
+ * @param maxQueries  maximum number of queries in one request
+ * @param concurrency searches running against the database at the same time
+ *                    (0 means half of the JDBC connection pool)
+ */
+@ConfigurationProperties(prefix = "text2vector.search.batch")
+public record SearchBatchProperties(
+        @DefaultValue("1000") int maxQueries,
+        @DefaultValue("0") int concurrency) {
+}
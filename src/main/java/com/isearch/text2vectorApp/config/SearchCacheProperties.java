@@ -0,0 +1,22 @@
+package com.isearch.text2vectorApp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the query vector cache and the search result cache.
+ *
+ * @param enabled       whether search caching is enabled
+ * @param maxQueries    normalized queries whose vectors are kept
+ * @param maxResults    result lists kept
+ * @param resultTtl     how long a result list stays valid if no documents are stored
+ */
+@ConfigurationProperties(prefix = "text2vector.search.cache")
+public record SearchCacheProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10000") long maxQueries,
+        @DefaultValue("10000") long maxResults,
+        @DefaultValue("5m") Duration resultTtl) {
+}
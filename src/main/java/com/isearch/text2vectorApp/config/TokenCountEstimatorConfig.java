@@ -1,5 +1,7 @@
 package com.isearch.text2vectorApp.config;
 
+import com.isearch.text2vectorApp.metrics.InstrumentedTokenCountEstimator;
+import com.isearch.text2vectorApp.metrics.PipelineMetrics;
 import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
 import org.springframework.ai.tokenizer.TokenCountEstimator;
 import org.springframework.context.annotation.Bean;
@@ -7,13 +9,14 @@ import org.springframework.context.annotation.Configuration;
 
 /**
  * Configuration for TokenCountEstimator bean.
- * Provides accurate token counting using Spring AI's JTokkit implementation.
+ * Provides accurate token counting using Spring AI's JTokkit implementation,
+ * timed by {@link PipelineMetrics}.
  */
 @Configuration
 public class TokenCountEstimatorConfig {
 
     @Bean
-    public TokenCountEstimator tokenCountEstimator() {
-        return new JTokkitTokenCountEstimator();
+    public TokenCountEstimator tokenCountEstimator(PipelineMetrics metrics) {
+        return new InstrumentedTokenCountEstimator(new JTokkitTokenCountEstimator(), metrics);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,58 @@
+package com.isearch.text2vectorApp.controller;
+
+import com.isearch.text2vectorApp.embedding.EmbeddingCache;
+import com.isearch.text2vectorApp.service.SearchService;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/cache")
+public class CacheController {
+
+    private final EmbeddingCache embeddingCache;
+    private final SearchService searchService;
+
+    public CacheController(EmbeddingCache embeddingCache, SearchService searchService) {
+        this.embeddingCache = embeddingCache;
+        this.searchService = searchService;
+    }
+
+    /**
+     * Returns hit/miss statistics for the application caches.
+     *
+     * @return cache statistics
+     */
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        return Map.of(
+                "embeddings", embeddingCache.stats(),
+                "search", searchService.stats()
+        );
+    }
+
+    /**
+     * Clears the in-memory embedding cache. The persistent tier is left untouched.
+     *
+     * @return confirmation message
+     */
+    @DeleteMapping("/embeddings")
+    public Map<String, Object> clearEmbeddings() {
+        embeddingCache.invalidateAll();
+        return Map.of("message", "Embedding cache cleared");
+    }
+
+    /**
+     * Clears the search result cache.
+     *
+     * @return confirmation message
+     */
+    @DeleteMapping("/search")
+    public Map<String, Object> clearSearchResults() {
+        searchService.invalidateResults();
+        return Map.of("message", "Search result cache cleared");
+    }
+}
@@ -1,20 +1,31 @@
 package com.isearch.text2vectorApp.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.isearch.text2vectorApp.exception.EmbeddingServiceException;
+import com.isearch.text2vectorApp.exception.EmbeddingUnavailableException;
+import com.isearch.text2vectorApp.model.BatchSearchRequest;
 import com.isearch.text2vectorApp.model.DocumentEmbeddingResponse;
 import com.isearch.text2vectorApp.model.DocumentRequest;
+import com.isearch.text2vectorApp.model.DocumentSearchRequest;
+import com.isearch.text2vectorApp.model.EncodedEmbeddingResponse;
+import com.isearch.text2vectorApp.model.StoredDocument;
 import com.isearch.text2vectorApp.service.DocumentService;
-import com.isearch.text2vectorApp.util.DocumentReaderFactory;
-import com.isearch.text2vectorApp.util.FileTypeDetector;
+import com.isearch.text2vectorApp.service.IngestionListener;
+import com.isearch.text2vectorApp.service.IngestionService;
+import com.isearch.text2vectorApp.service.QuantizationReportService;
+import com.isearch.text2vectorApp.service.SearchService;
 import com.isearch.text2vectorApp.util.ResourceUtils;
+import com.isearch.text2vectorApp.util.TypedResource;
+import com.isearch.text2vectorApp.util.VectorCodec;
+import com.isearch.text2vectorApp.util.VectorPrecision;
+import com.isearch.text2vectorApp.vectorstore.QuantizationReport;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.embedding.EmbeddingResponse;
-import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -24,9 +35,12 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 
@@ -34,17 +48,26 @@ import java.util.Objects;
 @RequestMapping("/api/v1")
 public class DocumentController {
 
+    private static final String ARRAY_ENCODING = "array";
+    private static final String BASE64_ENCODING = "base64";
+
     private final EmbeddingModel embeddingModel;
     private final DocumentService documentService;
-    private final VectorStore vectorStore;
-    private final DocumentReaderFactory documentReaderFactory;
+    private final IngestionService ingestionService;
+    private final SearchService searchService;
+    private final QuantizationReportService quantizationReportService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public DocumentController(EmbeddingModel embeddingModel, DocumentService documentService, VectorStore vectorStore, DocumentReaderFactory documentReaderFactory) {
+    public DocumentController(EmbeddingModel embeddingModel, DocumentService documentService,
+                              IngestionService ingestionService, SearchService searchService,
+                              QuantizationReportService quantizationReportService, ObjectMapper objectMapper) {
         this.embeddingModel = embeddingModel;
         this.documentService = documentService;
-        this.vectorStore = vectorStore;
-        this.documentReaderFactory = documentReaderFactory;
+        this.ingestionService = ingestionService;
+        this.searchService = searchService;
+        this.quantizationReportService = quantizationReportService;
+        this.objectMapper = objectMapper;
     }
 
     // Optional test endpoint
@@ -55,8 +78,20 @@ public class DocumentController {
     }
 
     // Main endpoint: POST JSON body {"texts":[list of texts]}
+    // With ?batch=true one vector per input text is returned, in input order.
     @PostMapping("/embed")
-    public Map<String, Object> getEmbedding(@Valid @RequestBody DocumentRequest request) {
+    public Map<String, Object> getEmbedding(@Valid @RequestBody DocumentRequest request,
+                                            @RequestParam(value = "batch", defaultValue = "false") boolean batch) {
+        if (batch) {
+            List<float[]> vectors = this.documentService.generateEmbeddings(request.texts());
+            return Map.of(
+                    "texts", request.texts(),
+                    "vectors", vectors,
+                    "count", vectors.size(),
+                    "length", vectors.isEmpty() ? 0 : vectors.getFirst().length
+            );
+        }
+
         float[] vector = this.documentService.generateEmbedding(request.texts());
         return Map.of(
                 "texts", request.texts(),
@@ -70,82 +105,263 @@ public class DocumentController {
     /**
      * Unified endpoint for embedding a single document of any supported type (PDF, DOCX, TXT).
      * The file type is automatically detected.
+     * <p>
+     * Vectors are returned as JSON float arrays by default. With encoding=base64 each vector
+     * is a base64 string in the given precision (float32, float16 or int8), see {@link VectorCodec}.
      *
-     * @param file the document file to embed
+     * @param file      the document file to embed
+     * @param encoding  vector encoding in the JSON response: array (default) or base64
+     * @param precision element type of base64 vectors (default: float32)
      * @return response with embeddings
      */
     @PostMapping(value = "/embed/document", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<?> embedDocument(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<?> embedDocument(@RequestParam("file") MultipartFile file,
+                                           @RequestParam(value = "encoding", defaultValue = ARRAY_ENCODING) String encoding,
+                                           @RequestParam(value = "precision", defaultValue = "float32") String precision) {
+        VectorPrecision vectorPrecision = VectorPrecision.from(precision);
+        boolean base64 = isBase64(encoding, vectorPrecision);
+
+        TypedResource resource = null;
         try {
             if (file.isEmpty()) {
                 return ResponseEntity.badRequest().body("File is empty");
             }
 
-            String fileType = FileTypeDetector.detectFileType(file);
-            Resource resource = ResourceUtils.toResource(file);
+            resource = ResourceUtils.toTypedResource(file);
             List<float[]> embeddings = documentService.generateEmbeddingsFromDocument(resource);
 
+            if (base64) {
+                return ResponseEntity.ok(new EncodedEmbeddingResponse(
+                        file.getOriginalFilename(),
+                        resource.type().extension(),
+                        embeddings.size(),
+                        BASE64_ENCODING,
+                        vectorPrecision.name().toLowerCase(Locale.ROOT),
+                        embeddings.isEmpty() ? 0 : embeddings.getFirst().length,
+                        VectorCodec.toBase64(embeddings, vectorPrecision)));
+            }
+
             return ResponseEntity.ok(new DocumentEmbeddingResponse(
                     file.getOriginalFilename(),
-                    fileType,
+                    resource.type().extension(),
                     embeddings.size(),
                     embeddings));
 
         } catch (IllegalArgumentException ex) {
             return ResponseEntity.badRequest().body("Invalid file: " + ex.getMessage());
+        } catch (EmbeddingUnavailableException ex) {
+            // Answered with 503 and Retry-After by GlobalExceptionHandler
+            throw ex;
         } catch (Exception ex) {
             return ResponseEntity.status(500).body("Error embedding document: " + ex.getMessage());
+        } finally {
+            ResourceUtils.release(resource);
         }
     }
 
+    /**
+     * Binary variant of {@link #embedDocument}, selected with Accept: application/octet-stream.
+     * Vectors are written as little-endian frames in the given precision, see {@link VectorCodec}.
+     *
+     * @param file      the document file to embed
+     * @param precision element type of the vectors (default: float32)
+     * @return the framed vectors
+     */
+    @PostMapping(value = "/embed/document", consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+            produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> embedDocumentBinary(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "precision", defaultValue = "float32") String precision) {
+        VectorPrecision vectorPrecision = VectorPrecision.from(precision);
+        List<VectorCodec.Frame> frames = embedFiles(List.of(file));
+        return binaryResponse(frames, vectorPrecision);
+    }
+
     /**
      * Unified endpoint for embedding multiple documents of any supported types (PDF, DOCX, TXT).
      * Files can be mixed types - the system will automatically detect and process each one.
      *
-     * @param files list of document files to embed
+     * @param files     list of document files to embed
+     * @param encoding  vector encoding in the JSON response: array (default) or base64
+     * @param precision element type of base64 vectors (default: float32)
      * @return response with embeddings for all documents
      */
     @PostMapping(value = "/embed/documents", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public Map<String, Object> embedDocuments(@RequestParam("files") List<MultipartFile> files) {
+    public Map<String, Object> embedDocuments(@RequestParam("files") List<MultipartFile> files,
+                                              @RequestParam(value = "encoding", defaultValue = ARRAY_ENCODING) String encoding,
+                                              @RequestParam(value = "precision", defaultValue = "float32") String precision) {
+        VectorPrecision vectorPrecision = VectorPrecision.from(precision);
+        boolean base64 = isBase64(encoding, vectorPrecision);
+
+        // Build results
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (VectorCodec.Frame frame : embedFiles(files)) {
+            results.add(Map.of(
+                    "filename", frame.filename(),
+                    "fileType", frame.fileType(),
+                    "chunks", frame.vectors().size(),
+                    "vectors", base64 ? VectorCodec.toBase64(frame.vectors(), vectorPrecision) : frame.vectors()
+            ));
+        }
+
+        if (base64) {
+            return Map.of("files", results, "encoding", BASE64_ENCODING,
+                    "precision", vectorPrecision.name().toLowerCase(Locale.ROOT));
+        }
+        return Map.of("files", results);
+    }
+
+    /**
+     * Binary variant of {@link #embedDocuments}, selected with Accept: application/octet-stream.
+     * Vectors are written as little-endian frames in the given precision, see {@link VectorCodec}.
+     *
+     * @param files     list of document files to embed
+     * @param precision element type of the vectors (default: float32)
+     * @return the framed vectors of all documents, in upload order
+     */
+    @PostMapping(value = "/embed/documents", consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+            produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> embedDocumentsBinary(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(value = "precision", defaultValue = "float32") String precision) {
+        VectorPrecision vectorPrecision = VectorPrecision.from(precision);
+        return binaryResponse(embedFiles(files), vectorPrecision);
+    }
+
+    /**
+     * Streaming variant of {@link #embedDocument}: emits one NDJSON line (or SSE event with
+     * Accept: text/event-stream) per chunk as soon as it is embedded.
+     *
+     * @param file    the document file to embed
+     * @param request used to pick NDJSON or SSE from the Accept header
+     * @return the streamed chunks
+     */
+    @PostMapping(value = "/embed/document/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamDocument(@RequestParam("file") MultipartFile file,
+                                                                HttpServletRequest request) {
+        return streamFiles(List.of(file), request);
+    }
+
+    /**
+     * Streaming variant of {@link #embedDocuments}. Each chunk is written as one NDJSON line
+     * (or SSE event with Accept: text/event-stream) with filename, chunk index, page and vector
+     * as soon as it is embedded, followed by a final "done" record. Server memory does not grow
+     * with the number of files, and a slow client slows down embedding instead of buffering.
+     *
+     * @param files   list of document files to embed
+     * @param request used to pick NDJSON or SSE from the Accept header
+     * @return the streamed chunks
+     */
+    @PostMapping(value = "/embed/documents/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamDocuments(@RequestParam("files") List<MultipartFile> files,
+                                                                 HttpServletRequest request) {
+        return streamFiles(files, request);
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamFiles(List<MultipartFile> files, HttpServletRequest request) {
         if (files.isEmpty()) {
             throw new EmbeddingServiceException("File list is empty");
         }
 
+        List<TypedResource> resources = new ArrayList<>();
         try {
-            // Convert uploaded files to Spring Resources and detect file types
-            List<Resource> resources = new ArrayList<>();
-            List<String> fileTypes = new ArrayList<>();
+            for (MultipartFile file : files) {
+                if (file.isEmpty()) {
+                    throw new EmbeddingServiceException("One or more files are empty");
+                }
+                resources.add(ResourceUtils.toTypedResource(file));
+            }
+        } catch (Exception ex) {
+            ResourceUtils.releaseAll(resources);
+            if (ex instanceof EmbeddingServiceException embeddingEx) {
+                throw embeddingEx;
+            }
+            throw new EmbeddingServiceException("Invalid file: " + ex.getMessage(), ex);
+        }
+
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        boolean sse = accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+
+        StreamingResponseBody body = out -> {
+            // Spooled uploads are only released once the stream is complete
+            try {
+                EmbeddingStreamWriter writer = new EmbeddingStreamWriter(out, objectMapper, sse);
+                documentService.streamEmbeddingsFromDocuments(resources, writer);
+                writer.finish();
+            } finally {
+                ResourceUtils.releaseAll(resources);
+            }
+        };
 
+        return ResponseEntity.ok()
+                .contentType(sse ? MediaType.TEXT_EVENT_STREAM : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .body(body);
+    }
+
+    private List<VectorCodec.Frame> embedFiles(List<MultipartFile> files) {
+        if (files.isEmpty()) {
+            throw new EmbeddingServiceException("File list is empty");
+        }
+
+        // Convert uploaded files to Spring Resources and detect file types (once per file)
+        List<TypedResource> resources = new ArrayList<>();
+        try {
             for (MultipartFile file : files) {
                 if (file.isEmpty()) {
                     throw new EmbeddingServiceException("One or more files are empty");
                 }
-                fileTypes.add(FileTypeDetector.detectFileType(file));
-                resources.add(ResourceUtils.toResource(file));
+                resources.add(ResourceUtils.toTypedResource(file));
             }
 
             // Generate embeddings for all documents
             List<List<float[]>> allEmbeddings = documentService.generateEmbeddingsFromDocuments(resources);
 
-            // Build results
-            List<Map<String, Object>> results = new ArrayList<>();
+            List<VectorCodec.Frame> frames = new ArrayList<>();
             for (int i = 0; i < resources.size(); i++) {
-                Resource res = resources.get(i);
-                results.add(Map.of(
-                        "filename", Objects.requireNonNull(res.getFilename()),
-                        "fileType", fileTypes.get(i),
-                        "chunks", allEmbeddings.get(i).size(),
-                        "vectors", allEmbeddings.get(i)
-                ));
+                TypedResource res = resources.get(i);
+                frames.add(new VectorCodec.Frame(
+                        Objects.requireNonNull(res.resource().getFilename()),
+                        res.type().extension(),
+                        allEmbeddings.get(i)));
             }
-
-            return Map.of("files", results);
+            return frames;
 
         } catch (IllegalArgumentException ex) {
             throw new EmbeddingServiceException("Invalid file: " + ex.getMessage(), ex);
+        } catch (EmbeddingUnavailableException ex) {
+            throw ex;
         } catch (Exception ex) {
             throw new EmbeddingServiceException("Error embedding documents: " + ex.getMessage(), ex);
+        } finally {
+            ResourceUtils.releaseAll(resources);
+        }
+    }
+
+    private static ResponseEntity<StreamingResponseBody> binaryResponse(List<VectorCodec.Frame> frames,
+                                                                        VectorPrecision precision) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(VectorCodec.framedSize(frames, precision))
+                .header("X-Vector-Precision", precision.name().toLowerCase(Locale.ROOT))
+                .header("X-Vector-Dimensions", String.valueOf(VectorCodec.dimensions(frames)))
+                .body(out -> VectorCodec.writeFrames(out, frames, precision));
+    }
+
+    private static boolean isBase64(String encoding, VectorPrecision precision) {
+        if (BASE64_ENCODING.equalsIgnoreCase(encoding)) {
+            return true;
+        }
+        if (!ARRAY_ENCODING.equalsIgnoreCase(encoding)) {
+            throw new IllegalArgumentException("Unsupported encoding: " + encoding + ". Supported encodings: array, base64");
+        }
+        if (precision != VectorPrecision.FLOAT32) {
+            throw new IllegalArgumentException("Precision " + precision.name().toLowerCase(Locale.ROOT)
+                    + " requires encoding=base64 or Accept: application/octet-stream");
         }
+        return false;
     }
 
     // ========== Vector Store Endpoints ==========
@@ -159,48 +375,43 @@ public class DocumentController {
      */
     @PostMapping(value = "/store/document", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<?> storeDocument(@RequestParam("file") MultipartFile file) {
+        TypedResource resource = null;
         try {
             if (file.isEmpty()) {
                 return ResponseEntity.badRequest().body("File is empty");
             }
 
-            String fileType = FileTypeDetector.detectFileType(file);
-            Resource resource = ResourceUtils.toResource(file);
+            resource = ResourceUtils.toTypedResource(file);
 
-            // Read documents from file
-            var reader = documentReaderFactory.getReader(resource);
-            List<Document> documents = reader.read(resource);
+            // Read, chunk and store in vector database (automatically generates embeddings)
+            StoredDocument stored = ingestionService.store(resource, IngestionListener.NONE);
 
-            if (documents.isEmpty()) {
+            if (stored.chunks() == 0) {
                 return ResponseEntity.badRequest().body("Could not extract text from the document");
             }
 
-            // Add metadata to documents
-            String filename = file.getOriginalFilename();
-            for (Document doc : documents) {
-                doc.getMetadata().put("source", filename != null ? filename : "unknown");
-                doc.getMetadata().put("fileType", fileType);
-            }
-
-            // Store in vector database (automatically generates embeddings)
-            vectorStore.add(documents);
-
             return ResponseEntity.ok(Map.of(
                     "message", "Document stored successfully",
-                    "filename", filename != null ? filename : "unknown",
-                    "fileType", fileType,
-                    "chunks", documents.size()
+                    "filename", stored.filename(),
+                    "fileType", stored.fileType(),
+                    "chunks", stored.chunks()
             ));
 
         } catch (IllegalArgumentException ex) {
             return ResponseEntity.badRequest().body("Invalid file: " + ex.getMessage());
+        } catch (EmbeddingUnavailableException ex) {
+            // Answered with 503 and Retry-After by GlobalExceptionHandler
+            throw ex;
         } catch (Exception ex) {
             return ResponseEntity.status(500).body("Error storing document: " + ex.getMessage());
+        } finally {
+            ResourceUtils.release(resource);
         }
     }
 
     /**
      * Store multiple documents in the vector database.
+     * Reports an outcome per file; files that fail do not prevent the others from being stored.
      *
      * @param files list of document files to store
      * @return response with storage confirmation
@@ -211,51 +422,33 @@ public class DocumentController {
             throw new EmbeddingServiceException("File list is empty");
         }
 
+        List<TypedResource> resources = new ArrayList<>();
         try {
-            int totalChunks = 0;
-            List<Map<String, Object>> results = new ArrayList<>();
-
             for (MultipartFile file : files) {
                 if (file.isEmpty()) {
                     throw new EmbeddingServiceException("One or more files are empty");
                 }
-
-                String fileType = FileTypeDetector.detectFileType(file);
-                Resource resource = ResourceUtils.toResource(file);
-
-                // Read documents from file
-                var reader = documentReaderFactory.getReader(resource);
-                List<Document> documents = reader.read(resource);
-
-                if (!documents.isEmpty()) {
-                    // Add metadata
-                    String filename = file.getOriginalFilename();
-                    for (Document doc : documents) {
-                        doc.getMetadata().put("source", filename != null ? filename : "unknown");
-                        doc.getMetadata().put("fileType", fileType);
-                    }
-
-                    // Store in vector database (automatically generates embeddings)
-                    vectorStore.add(documents);
-                    totalChunks += documents.size();
-
-                    results.add(Map.of(
-                            "filename", filename != null ? filename : "unknown",
-                            "fileType", fileType,
-                            "chunks", documents.size(),
-                            "status", "stored"
-                    ));
-                }
+                resources.add(ResourceUtils.toTypedResource(file));
             }
 
+            // Chunks of all files are embedded and written together in bulk
+            List<StoredDocument> results = ingestionService.storeAll(resources);
+            int totalChunks = results.stream().mapToInt(StoredDocument::chunks).sum();
+
             return Map.of(
-                    "message", "Documents stored successfully",
+                    "message", results.stream().allMatch(StoredDocument::isStored)
+                            ? "Documents stored successfully"
+                            : "Some documents could not be stored",
                     "totalChunks", totalChunks,
                     "files", results
             );
 
+        } catch (EmbeddingUnavailableException ex) {
+            throw ex;
         } catch (Exception ex) {
             throw new EmbeddingServiceException("Error storing documents: " + ex.getMessage(), ex);
+        } finally {
+            ResourceUtils.releaseAll(resources);
         }
     }
 
@@ -272,11 +465,7 @@ public class DocumentController {
             @RequestParam(value = "topK", defaultValue = "3") int topK) {
 
         try {
-            return vectorStore.similaritySearch(
-                    SearchRequest.builder()
-                            .query(query)
-                            .topK(topK)
-                            .build())
+            return searchService.search(query, topK)
                     .stream()
                     //.map(Document::getFormattedContent)
                     .toList();
@@ -298,9 +487,94 @@ public class DocumentController {
                     "documents", documents
             ); */
 
+        } catch (EmbeddingUnavailableException ex) {
+            throw ex;
         } catch (Exception ex) {
             throw new EmbeddingServiceException("Error searching documents: " + ex.getMessage(), ex);
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Search with metadata filters, a similarity threshold and optional hybrid ranking
+     * (vector + PostgreSQL full-text, fused with reciprocal rank fusion).
+     * Results contain id, content, score and metadata; embeddings are never returned.
+     *
+     * @param request query, topK, threshold, filters and ranking mode
+     * @return the matching chunks, best first
+     */
+    @PostMapping("/search")
+    public Map<String, Object> search(@Valid @RequestBody DocumentSearchRequest request) {
+        List<Map<String, Object>> results = searchService.search(request).stream()
+                .map(DocumentController::toSearchResult)
+                .toList();
+
+        return Map.of(
+                "query", request.query(),
+                "mode", Boolean.TRUE.equals(request.hybrid()) ? "hybrid" : "vector",
+                "resultsCount", results.size(),
+                "results", results
+        );
+    }
+
+    /**
+     * Search with many queries in one request. All queries are embedded in one batched
+     * model call and searched concurrently; the options apply to every query.
+     *
+     * @param request queries, topK, threshold, filters and ranking mode
+     * @return one entry per query, in the order of the queries
+     */
+    @PostMapping("/search/batch")
+    public Map<String, Object> searchBatch(@Valid @RequestBody BatchSearchRequest request) {
+        List<List<Document>> batch = searchService.searchBatch(
+                request.queries().stream().map(request::forQuery).toList());
+
+        List<Map<String, Object>> searches = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            List<Map<String, Object>> results = batch.get(i).stream()
+                    .map(DocumentController::toSearchResult)
+                    .toList();
+            searches.add(Map.of(
+                    "query", request.queries().get(i),
+                    "resultsCount", results.size(),
+                    "results", results
+            ));
+        }
+
+        return Map.of(
+                "mode", Boolean.TRUE.equals(request.hybrid()) ? "hybrid" : "vector",
+                "queriesCount", searches.size(),
+                "searches", searches
+        );
+    }
+
+    /**
+     * Measures recall and latency of each quantization mode on vectors sampled from the
+     * vector store, to choose text2vector.quantization.mode and rerank-factor.
+     *
+     * @param sampleSize number of stored vectors to index (default: 10000)
+     * @param queries    number of further stored vectors used as queries (default: 200)
+     * @param topK       results per query (default: 10)
+     * @return one row per mode, with and without full-precision rerank
+     */
+    @GetMapping("/search/quantization-report")
+    public Map<String, Object> quantizationReport(
+            @RequestParam(value = "sampleSize", defaultValue = "10000") int sampleSize,
+            @RequestParam(value = "queries", defaultValue = "200") int queries,
+            @RequestParam(value = "topK", defaultValue = "10") int topK) {
+        List<QuantizationReport.Row> rows = quantizationReportService.run(sampleSize, queries, topK);
+        return Map.of(
+                "topK", topK,
+                "queries", queries,
+                "rows", rows
+        );
+    }
+
+    private static Map<String, Object> toSearchResult(Document doc) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("id", doc.getId());
+        result.put("content", doc.getText());
+        result.put("score", doc.getScore());
+        result.put("metadata", doc.getMetadata());
+        return result;
+    }
+}
@@ -0,0 +1,99 @@
+package com.isearch.text2vectorApp.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isearch.text2vectorApp.service.EmbeddingStreamListener;
+import com.isearch.text2vectorApp.util.TypedResource;
+import org.springframework.ai.document.Document;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes streamed embeddings as NDJSON (one JSON object per line) or as Server-Sent Events.
+ * Every chunk becomes one "chunk" record; failed documents an "error" record, and the
+ * stream ends with a "done" record. Output is flushed after each embedded batch.
+ */
+class EmbeddingStreamWriter implements EmbeddingStreamListener {
+
+    private static final String PAGE_NUMBER = "page_number";
+
+    private final OutputStream out;
+    private final ObjectMapper objectMapper;
+    private final boolean sse;
+    private int files;
+    private int chunks;
+    private int errors;
+    private TypedResource lastResource;
+
+    EmbeddingStreamWriter(OutputStream out, ObjectMapper objectMapper, boolean sse) {
+        this.out = out;
+        this.objectMapper = objectMapper;
+        this.sse = sse;
+    }
+
+    @Override
+    public void embedded(TypedResource resource, int firstIndex, List<Document> batch, List<float[]> vectors)
+            throws IOException {
+        countFile(resource);
+        for (int i = 0; i < batch.size(); i++) {
+            Document chunk = batch.get(i);
+            Map<String, Object> record = new LinkedHashMap<>();
+            record.put("filename", resource.filename());
+            record.put("fileType", resource.type().extension());
+            record.put("chunkIndex", firstIndex + i);
+            record.put("page", chunk.getMetadata().get(PAGE_NUMBER));
+            record.put("vector", vectors.get(i));
+            write("chunk", record);
+        }
+        chunks += batch.size();
+        out.flush();
+    }
+
+    @Override
+    public void failed(TypedResource resource, Exception error) throws IOException {
+        countFile(resource);
+        errors++;
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("filename", resource.filename());
+        record.put("error", error.getMessage());
+        write("error", record);
+        out.flush();
+    }
+
+    /**
+     * Writes the closing record with totals.
+     */
+    void finish() throws IOException {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("done", true);
+        record.put("files", files);
+        record.put("chunks", chunks);
+        record.put("errors", errors);
+        write("done", record);
+        out.flush();
+    }
+
+    private void countFile(TypedResource resource) {
+        if (resource != lastResource) {
+            lastResource = resource;
+            files++;
+        }
+    }
+
+    private void write(String event, Map<String, Object> record) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(record);
+        if (sse) {
+            out.write(("event: " + event + "\ndata: ").getBytes(StandardCharsets.UTF_8));
+            out.write(json);
+            out.write('\n');
+            out.write('\n');
+        } else {
+            out.write(json);
+            out.write('\n');
+        }
+    }
+}
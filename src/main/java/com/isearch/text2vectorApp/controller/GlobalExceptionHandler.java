@@ -2,7 +2,10 @@ package com.isearch.text2vectorApp.controller;
 
 import com.isearch.text2vectorApp.controller.error.ApiError;
 import com.isearch.text2vectorApp.exception.EmbeddingServiceException;
+import com.isearch.text2vectorApp.exception.EmbeddingUnavailableException;
+import com.isearch.text2vectorApp.exception.IngestionQueueFullException;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -21,6 +24,11 @@ public class GlobalExceptionHandler {
             EmbeddingServiceException ex,
             HttpServletRequest request) {
 
+        EmbeddingUnavailableException unavailable = findUnavailable(ex);
+        if (unavailable != null) {
+            return handleEmbeddingUnavailable(unavailable, request);
+        }
+
         ApiError error = new ApiError(
                 LocalDateTime.now(),
                 HttpStatus.BAD_GATEWAY.value(),
@@ -31,12 +39,37 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(error);
     }
 
+    // Embedding model overloaded or circuit open: clients should retry later
+    @ExceptionHandler(EmbeddingUnavailableException.class)
+    public ResponseEntity<ApiError> handleEmbeddingUnavailable(
+            EmbeddingUnavailableException ex,
+            HttpServletRequest request) {
+
+        ApiError error = new ApiError(
+                LocalDateTime.now(),
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "Embedding Service Unavailable",
+                ex.getMessage(),
+                request.getRequestURI()
+        );
+        long retryAfterSeconds = Math.max(1, (ex.retryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds))
+                .body(error);
+    }
+
     // Generic fallback
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiError> handleGeneralException(
             Exception ex,
             HttpServletRequest request) {
 
+        // Rejections wrapped on the way up, e.g. by a CompletableFuture
+        EmbeddingUnavailableException unavailable = findUnavailable(ex);
+        if (unavailable != null) {
+            return handleEmbeddingUnavailable(unavailable, request);
+        }
+
         ApiError error = new ApiError(
                 LocalDateTime.now(),
                 HttpStatus.INTERNAL_SERVER_ERROR.value(),
@@ -98,6 +131,38 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
 
+    // Invalid input that is not covered by bean validation (e.g. unsupported file types)
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ApiError> handleIllegalArgument(
+            IllegalArgumentException ex,
+            HttpServletRequest request) {
+
+        ApiError error = new ApiError(
+                LocalDateTime.now(),
+                HttpStatus.BAD_REQUEST.value(),
+                "Bad Request",
+                ex.getMessage(),
+                request.getRequestURI()
+        );
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+    }
+
+    // Ingestion queue saturated: clients should back off and retry
+    @ExceptionHandler(IngestionQueueFullException.class)
+    public ResponseEntity<ApiError> handleIngestionQueueFull(
+            IngestionQueueFullException ex,
+            HttpServletRequest request) {
+
+        ApiError error = new ApiError(
+                LocalDateTime.now(),
+                HttpStatus.TOO_MANY_REQUESTS.value(),
+                "Too Many Requests",
+                ex.getMessage(),
+                request.getRequestURI()
+        );
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(error);
+    }
+
     // Custom: for cases like embedding model issues
     @ExceptionHandler(IllegalStateException.class)
     public ResponseEntity<ApiError> handleIllegalState(
@@ -113,4 +178,13 @@ public class GlobalExceptionHandler {
         );
         return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
     }
+
+    private static EmbeddingUnavailableException findUnavailable(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof EmbeddingUnavailableException unavailable) {
+                return unavailable;
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,85 @@
+package com.isearch.text2vectorApp.controller;
+
+import com.isearch.text2vectorApp.exception.EmbeddingServiceException;
+import com.isearch.text2vectorApp.model.IngestionJobStatus;
+import com.isearch.text2vectorApp.service.IngestionJob;
+import com.isearch.text2vectorApp.service.IngestionJobService;
+import com.isearch.text2vectorApp.util.ResourceUtils;
+import com.isearch.text2vectorApp.util.TypedResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/jobs")
+public class IngestionJobController {
+
+    private final IngestionJobService ingestionJobService;
+
+    public IngestionJobController(IngestionJobService ingestionJobService) {
+        this.ingestionJobService = ingestionJobService;
+    }
+
+    /**
+     * Submits documents to be stored in the vector database in the background.
+     * Returns immediately with a job id; progress is available from the status endpoint.
+     * Responds with 429 when the ingestion queue is full.
+     *
+     * @param files list of document files to store
+     * @return the job id and status URL
+     */
+    @PostMapping(value = "/store", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Map<String, Object>> submitStoreJob(@RequestParam("files") List<MultipartFile> files) {
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("File list is empty");
+        }
+
+        List<TypedResource> resources = new ArrayList<>();
+        try {
+            for (MultipartFile file : files) {
+                if (file.isEmpty()) {
+                    throw new IllegalArgumentException("One or more files are empty");
+                }
+                resources.add(ResourceUtils.toTypedResource(file));
+            }
+        } catch (IOException ex) {
+            ResourceUtils.releaseAll(resources);
+            throw new EmbeddingServiceException("Error reading uploaded files: " + ex.getMessage(), ex);
+        } catch (RuntimeException ex) {
+            ResourceUtils.releaseAll(resources);
+            throw ex;
+        }
+
+        IngestionJob job = ingestionJobService.submit(resources);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                "jobId", job.getId(),
+                "status", job.getState().name(),
+                "statusUrl", "/api/v1/jobs/" + job.getId()
+        ));
+    }
+
+    /**
+     * Returns the progress of an ingestion job.
+     *
+     * @param jobId the job id
+     * @return chunks parsed, embedded and stored so far, and per-file outcomes
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<IngestionJobStatus> getJobStatus(@PathVariable String jobId) {
+        return ingestionJobService.find(jobId)
+                .map(job -> ResponseEntity.ok(job.toStatus()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,159 @@
+package com.isearch.text2vectorApp.embedding;
+
+import java.time.Duration;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits concurrent model calls to a limit that adapts to the observed latency (AIMD).
+ * <p>
+ * The limit grows by one per limit's worth of fast calls (additive increase) and shrinks by
+ * a constant factor on slow or failed calls (multiplicative decrease). A call is slow when
+ * its latency exceeds the lowest latency recently seen for calls of similar size times a
+ * tolerance: the model is then queueing requests instead of working on them, so more
+ * concurrency only adds latency.
+ * <p>
+ * Calls are grouped by their number of texts in power-of-two buckets, each with its own
+ * baseline, so a single query is never compared with a large batch. Within a bucket, latency
+ * is divided by the square root of the text count, which keeps calls at both ends of a bucket
+ * within a factor of &radic;2 whether the model's cost is mostly per call or mostly per text.
+ * Baselines are re-measured every window, so they follow lasting changes of the model's speed.
+ * <p>
+ * The limit shrinks at most once per round trip: calls that were already running when it last
+ * shrank saw the old concurrency and do not shrink it again.
+ */
+final class AdaptiveConcurrencyLimiter {
+
+    private static final int WINDOW = 250;
+    private static final int BUCKETS = 16;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final double backoffRatio;
+
+    private final Baseline[] baselines = new Baseline[BUCKETS];
+
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseNanos;
+    private boolean decreased;
+
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double latencyTolerance,
+                               double backoffRatio) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.latencyTolerance = latencyTolerance;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.clamp(initialLimit, this.minLimit, this.maxLimit);
+        for (int i = 0; i < BUCKETS; i++) {
+            baselines[i] = new Baseline();
+        }
+    }
+
+    /**
+     * Waits for a free slot.
+     *
+     * @param maxWait how long to wait at most
+     * @return true if a slot was taken and must be given back with {@link #release}
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean acquire(Duration maxWait) throws InterruptedException {
+        long remaining = maxWait.toNanos();
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = released.awaitNanos(remaining);
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives a slot back and adjusts the limit.
+     *
+     * @param latencyNanos duration of the call
+     * @param texts        texts in the call, to compare calls of similar size only
+     * @param overloaded   whether the call failed in a way that indicates overload
+     */
+    void release(long latencyNanos, int texts, boolean overloaded) {
+        int size = Math.max(1, texts);
+        long normalized = (long) (latencyNanos / Math.sqrt(size));
+        Baseline baseline = baselines[Math.min(BUCKETS - 1, 31 - Integer.numberOfLeadingZeros(size))];
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            boolean usedFully = inFlight >= (int) limit;
+            inFlight--;
+
+            boolean slow = baseline.isSlow(normalized, latencyTolerance);
+            baseline.record(normalized);
+
+            if (overloaded || slow) {
+                // Calls that started before the last decrease already ran under the old limit
+                if (!decreased || now - latencyNanos >= lastDecreaseNanos) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    lastDecreaseNanos = now;
+                    decreased = true;
+                }
+            } else if (usedFully) {
+                // Only grow a limit that is actually reached; idle headroom says nothing
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int limit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lowest normalized latency of one size bucket, re-measured every window. Guarded by the
+     * limiter's lock.
+     */
+    private static final class Baseline {
+
+        private long nanos = Long.MAX_VALUE;
+        private long windowMinNanos = Long.MAX_VALUE;
+        private int windowSamples;
+
+        boolean isSlow(long normalized, double tolerance) {
+            return nanos != Long.MAX_VALUE && normalized > nanos * tolerance;
+        }
+
+        void record(long normalized) {
+            windowMinNanos = Math.min(windowMinNanos, normalized);
+            if (++windowSamples >= WINDOW) {
+                nanos = windowMinNanos;
+                windowMinNanos = Long.MAX_VALUE;
+                windowSamples = 0;
+            }
+            nanos = Math.min(nanos, normalized);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.isearch.text2vectorApp.embedding;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.embedding.EmbeddingResponseMetadata;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * EmbeddingModel decorator that serves vectors from an {@link EmbeddingCache}.
+ * Only texts that miss the cache are sent to the delegate, so re-embedding a mostly
+ * unchanged document only costs model calls for the changed chunks.
+ */
+public class CachingEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final EmbeddingCache cache;
+
+    public CachingEmbeddingModel(EmbeddingModel delegate, EmbeddingCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        if (!cache.isEnabled()) {
+            return delegate.call(request);
+        }
+
+        List<String> inputs = request.getInstructions();
+        List<String> keys = inputs.stream()
+                .map(text -> cache.key(request.getOptions(), text))
+                .toList();
+        Map<String, float[]> vectors = new HashMap<>(cache.getAll(keys));
+
+        // Collect the distinct texts that still need a model call
+        Map<String, String> missing = new LinkedHashMap<>();
+        for (int i = 0; i < inputs.size(); i++) {
+            if (!vectors.containsKey(keys.get(i))) {
+                missing.putIfAbsent(keys.get(i), inputs.get(i));
+            }
+        }
+
+        EmbeddingResponseMetadata metadata = new EmbeddingResponseMetadata();
+        if (!missing.isEmpty()) {
+            List<String> missingKeys = new ArrayList<>(missing.keySet());
+            EmbeddingResponse response = delegate.call(
+                    new EmbeddingRequest(new ArrayList<>(missing.values()), request.getOptions()));
+
+            Map<String, float[]> computed = new HashMap<>();
+            for (int i = 0; i < missingKeys.size(); i++) {
+                computed.put(missingKeys.get(i), response.getResults().get(i).getOutput());
+            }
+            cache.putAll(computed);
+            vectors.putAll(computed);
+            metadata = response.getMetadata();
+        }
+
+        List<Embedding> embeddings = new ArrayList<>(inputs.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            embeddings.add(new Embedding(vectors.get(keys.get(i)), i));
+        }
+        return new EmbeddingResponse(embeddings, metadata);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
@@ -0,0 +1,173 @@
+package com.isearch.text2vectorApp.embedding;
+
+import com.isearch.text2vectorApp.config.EmbeddingBatchProperties;
+import com.isearch.text2vectorApp.util.DocumentChunker;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Packs chunks into model calls of at most text2vector.embedding.batch.max-tokens tokens and
+ * max-texts texts. Replaces Spring AI's TokenCountBatchingStrategy everywhere, including in
+ * the auto-configured PGVector store: token counts are taken from the
+ * {@value DocumentChunker#TOKEN_COUNT} metadata set by the {@link DocumentChunker}, so a
+ * chunk is tokenized once, and only chunks without a count are estimated here.
+ * <p>
+ * Unlike TokenCountBatchingStrategy, a chunk larger than the budget gets a call of its own
+ * instead of failing the whole document; each text is limited by the model's context
+ * ({@link #contextTokens()}), not by the budget of a call.
+ * <p>
+ * Lists are packed with {@link #batch(List)} and {@link #batchTexts(List)}; chunks that
+ * arrive one at a time, e.g. from a streamed document, go through a {@link #packer()}.
+ */
+@Component
+public class ChunkBatchingStrategy implements BatchingStrategy {
+
+    private static final EmbeddingOptions DEFAULT_OPTIONS = EmbeddingOptionsBuilder.builder().build();
+
+    private final TokenCountEstimator tokenCountEstimator;
+    private final EmbeddingBatchProperties properties;
+    private final int contextTokens;
+
+    public ChunkBatchingStrategy(TokenCountEstimator tokenCountEstimator, EmbeddingBatchProperties properties,
+                                 @Value("${spring.ai.ollama.embedding.options.num-ctx:2048}") int contextTokens) {
+        this.tokenCountEstimator = tokenCountEstimator;
+        this.properties = properties;
+        this.contextTokens = contextTokens;
+    }
+
+    @Override
+    public List<List<Document>> batch(List<Document> documents) {
+        return pack(documents, this::tokenCount);
+    }
+
+    /**
+     * Packs plain texts, e.g. of an embedding request, estimating the tokens of each.
+     *
+     * @param texts the texts
+     * @return consecutive batches, in order
+     */
+    public List<List<String>> batchTexts(List<String> texts) {
+        return pack(texts, tokenCountEstimator::estimate);
+    }
+
+    /**
+     * Creates a packer for items that arrive one at a time.
+     *
+     * @param <T> the item type
+     * @return a new, empty packer
+     */
+    public <T> Packer<T> packer() {
+        return new Packer<>(Math.max(1, properties.maxTokens()), Math.max(1, properties.maxTexts()));
+    }
+
+    /**
+     * Embeds chunks in batches packed by this strategy.
+     *
+     * @param model  the embedding model
+     * @param chunks the chunks to embed
+     * @return one vector per chunk, in order
+     */
+    public List<float[]> embed(EmbeddingModel model, List<Document> chunks) {
+        return model.embed(chunks, DEFAULT_OPTIONS, this);
+    }
+
+    /**
+     * Token count of a chunk: the count carried in its metadata, or an estimate.
+     *
+     * @param document the chunk
+     * @return its token count
+     */
+    public int tokenCount(Document document) {
+        if (document.getMetadata().get(DocumentChunker.TOKEN_COUNT) instanceof Number count) {
+            return count.intValue();
+        }
+        return document.getText() != null ? tokenCountEstimator.estimate(document.getText()) : 0;
+    }
+
+    /**
+     * Context size of the configured model (spring.ai.ollama.embedding.options.num-ctx);
+     * longer texts are truncated or rejected by the model.
+     *
+     * @return the context size in tokens
+     */
+    public int contextTokens() {
+        return contextTokens;
+    }
+
+    private <T> List<List<T>> pack(List<T> items, ToIntFunction<T> tokens) {
+        Packer<T> packer = packer();
+        List<List<T>> batches = new ArrayList<>();
+        for (T item : items) {
+            List<T> full = packer.add(item, tokens.applyAsInt(item));
+            if (!full.isEmpty()) {
+                batches.add(full);
+            }
+        }
+        List<T> last = packer.flush();
+        if (!last.isEmpty()) {
+            batches.add(last);
+        }
+        return batches;
+    }
+
+    /**
+     * Greedy packing of items that arrive one at a time: an item joins the open batch unless
+     * that would exceed the token or text limit, in which case the open batch is handed back
+     * and a new one starts with the item.
+     *
+     * @param <T> the item type
+     */
+    public static final class Packer<T> {
+
+        private final int maxTokens;
+        private final int maxTexts;
+        private List<T> current = new ArrayList<>();
+        private int currentTokens;
+
+        private Packer(int maxTokens, int maxTexts) {
+            this.maxTokens = maxTokens;
+            this.maxTexts = maxTexts;
+        }
+
+        /**
+         * Adds an item.
+         *
+         * @param item   the item
+         * @param tokens its token count
+         * @return the batch closed by this item, or an empty list if the item fit the open batch
+         */
+        public List<T> add(T item, int tokens) {
+            List<T> full = List.of();
+            if (!current.isEmpty() && (currentTokens + tokens > maxTokens || current.size() >= maxTexts)) {
+                full = current;
+                current = new ArrayList<>();
+                currentTokens = 0;
+            }
+            current.add(item);
+            currentTokens += tokens;
+            return full;
+        }
+
+        /**
+         * Closes the open batch.
+         *
+         * @return the items not handed back yet, possibly none
+         */
+        public List<T> flush() {
+            List<T> last = current;
+            current = new ArrayList<>();
+            currentTokens = 0;
+            return last;
+        }
+    }
+}
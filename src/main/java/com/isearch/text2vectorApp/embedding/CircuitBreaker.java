@@ -0,0 +1,91 @@
+package com.isearch.text2vectorApp.embedding;
+
+import java.time.Duration;
+
+/**
+ * Consecutive-failure circuit breaker. After {@code failureThreshold} failed calls in a row
+ * the circuit opens and calls fail fast; after {@code openDuration} a single trial call is let
+ * through (half-open), whose outcome closes or re-opens the circuit.
+ */
+final class CircuitBreaker {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openUntil;
+    private boolean trialRunning;
+
+    CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * Whether a call may go ahead. Every permitted call must be followed by exactly one of
+     * {@link #onSuccess}, {@link #onFailure} or {@link #onIgnored}.
+     */
+    synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED -> {
+                return true;
+            }
+            case OPEN -> {
+                if (System.nanoTime() - openUntil < 0) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialRunning = true;
+                return true;
+            }
+            default -> {
+                if (trialRunning) {
+                    return false;
+                }
+                trialRunning = true;
+                return true;
+            }
+        }
+    }
+
+    synchronized void onSuccess() {
+        failures = 0;
+        trialRunning = false;
+        state = State.CLOSED;
+    }
+
+    synchronized void onFailure() {
+        failures++;
+        trialRunning = false;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            state = State.OPEN;
+            openUntil = System.nanoTime() + openNanos;
+        }
+    }
+
+    /**
+     * The call ended without telling anything about the model's health (e.g. it was rejected
+     * by the concurrency limiter); a half-open trial slot is freed for the next call.
+     */
+    synchronized void onIgnored() {
+        trialRunning = false;
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    /**
+     * Time until a trial call will be let through, or zero when the circuit is not open.
+     */
+    synchronized Duration retryAfter() {
+        return state == State.OPEN
+                ? Duration.ofNanos(Math.max(0, openUntil - System.nanoTime()))
+                : Duration.ZERO;
+    }
+}
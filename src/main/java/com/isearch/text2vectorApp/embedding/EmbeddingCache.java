@@ -0,0 +1,220 @@
+package com.isearch.text2vectorApp.embedding;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.isearch.text2vectorApp.config.EmbeddingCacheProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of embedding vectors keyed by (model name, num-ctx, SHA-256 of the text).
+ * The first tier is an in-memory Caffeine cache with W-TinyLFU eviction, bounded by the
+ * estimated heap size of its entries so that larger models do not multiply its footprint.
+ * An optional second tier stores vectors in a PostgreSQL lookup table so they survive restarts.
+ */
+@Component
+@Slf4j
+public class EmbeddingCache {
+
+    // Object headers and references of the cache entry, key string and vector array
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final EmbeddingCacheProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final String defaultModel;
+    private final int numCtx;
+    private final Cache<String, float[]> memory;
+
+    private final AtomicLong persistentHits = new AtomicLong();
+    private final AtomicLong persistentMisses = new AtomicLong();
+
+    public EmbeddingCache(EmbeddingCacheProperties properties,
+                          JdbcTemplate jdbcTemplate,
+                          NamedParameterJdbcTemplate namedJdbcTemplate,
+                          @Value("${spring.ai.ollama.embedding.model:unknown}") String defaultModel,
+                          @Value("${spring.ai.ollama.embedding.options.num-ctx:0}") int numCtx) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.defaultModel = defaultModel;
+        this.numCtx = numCtx;
+        this.memory = Caffeine.newBuilder()
+                .maximumWeight(properties.maxMemory().toBytes())
+                .weigher((String key, float[] vector) -> weight(key, vector))
+                .recordStats()
+                .build();
+    }
+
+    @PostConstruct
+    void initSchema() {
+        if (!properties.enabled() || !properties.persistent()) {
+            return;
+        }
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + properties.tableName() + " ("
+                + "cache_key VARCHAR(255) PRIMARY KEY, "
+                + "embedding BYTEA NOT NULL, "
+                + "created_at TIMESTAMPTZ NOT NULL DEFAULT now())");
+        log.info("Persistent embedding cache enabled (table: {})", properties.tableName());
+    }
+
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    /**
+     * Builds the cache key for a text embedded with the given options.
+     *
+     * @param options the request options (may be null)
+     * @param text    the input text
+     * @return the cache key
+     */
+    public String key(EmbeddingOptions options, String text) {
+        String model = options != null && options.getModel() != null ? options.getModel() : defaultModel;
+        return model + "|" + numCtx + "|" + sha256(text);
+    }
+
+    /**
+     * Looks up several keys at once. Keys missing from memory are looked up in the
+     * persistent tier (if enabled) and promoted to memory.
+     *
+     * @param keys the cache keys
+     * @return the vectors found, keyed by cache key
+     */
+    public Map<String, float[]> getAll(List<String> keys) {
+        Map<String, float[]> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String key : keys) {
+            float[] vector = memory.getIfPresent(key);
+            if (vector != null) {
+                found.put(key, vector);
+            } else {
+                missing.add(key);
+            }
+        }
+
+        if (properties.persistent() && !missing.isEmpty()) {
+            Map<String, float[]> stored = loadPersistent(missing);
+            persistentHits.addAndGet(stored.size());
+            persistentMisses.addAndGet(missing.size() - stored.size());
+            memory.putAll(stored);
+            found.putAll(stored);
+        }
+        return found;
+    }
+
+    /**
+     * Stores freshly computed vectors in every enabled tier.
+     *
+     * @param entries vectors keyed by cache key
+     */
+    public void putAll(Map<String, float[]> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        memory.putAll(entries);
+        if (properties.persistent()) {
+            storePersistent(entries);
+        }
+    }
+
+    public void invalidateAll() {
+        memory.invalidateAll();
+    }
+
+    /**
+     * Returns hit/miss counters for both tiers.
+     *
+     * @return cache statistics
+     */
+    public Map<String, Object> stats() {
+        CacheStats memoryStats = memory.stats();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", properties.enabled());
+        stats.put("size", memory.estimatedSize());
+        stats.put("weightBytes", memory.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0))
+                .orElse(0L));
+        stats.put("hits", memoryStats.hitCount());
+        stats.put("misses", memoryStats.missCount());
+        stats.put("hitRate", memoryStats.hitRate());
+        stats.put("evictions", memoryStats.evictionCount());
+        stats.put("persistent", properties.persistent());
+        stats.put("persistentHits", persistentHits.get());
+        stats.put("persistentMisses", persistentMisses.get());
+        return stats;
+    }
+
+    /**
+     * Estimated heap bytes of one entry: the vector, the key characters and fixed overhead.
+     */
+    private static int weight(String key, float[] vector) {
+        return vector.length * Float.BYTES + key.length() + ENTRY_OVERHEAD;
+    }
+
+    private Map<String, float[]> loadPersistent(List<String> keys) {
+        Map<String, float[]> stored = new HashMap<>();
+        try {
+            namedJdbcTemplate.query(
+                    "SELECT cache_key, embedding FROM " + properties.tableName() + " WHERE cache_key IN (:keys)",
+                    Map.of("keys", keys),
+                    rs -> {
+                        stored.put(rs.getString(1), fromBytes(rs.getBytes(2)));
+                    });
+        } catch (Exception ex) {
+            log.warn("Persistent embedding cache lookup failed: {}", ex.getMessage());
+        }
+        return stored;
+    }
+
+    private void storePersistent(Map<String, float[]> entries) {
+        List<Object[]> rows = entries.entrySet().stream()
+                .map(e -> new Object[]{e.getKey(), toBytes(e.getValue())})
+                .toList();
+        try {
+            jdbcTemplate.batchUpdate("INSERT INTO " + properties.tableName()
+                    + " (cache_key, embedding) VALUES (?, ?) ON CONFLICT (cache_key) DO NOTHING", rows);
+        } catch (Exception ex) {
+            log.warn("Persistent embedding cache write failed: {}", ex.getMessage());
+        }
+    }
+
+    private static byte[] toBytes(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    private static float[] fromBytes(byte[] bytes) {
+        float[] vector = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+        return vector;
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
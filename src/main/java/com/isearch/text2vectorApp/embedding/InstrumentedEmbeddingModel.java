@@ -0,0 +1,45 @@
+package com.isearch.text2vectorApp.embedding;
+
+import com.isearch.text2vectorApp.metrics.PipelineMetrics;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * EmbeddingModel decorator that records every model call: latency by outcome, texts per
+ * call, prompt tokens reported by the model, and calls in flight. It sits below the
+ * {@link CachingEmbeddingModel}, so cache hits are not counted as model calls.
+ */
+public class InstrumentedEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final PipelineMetrics metrics;
+
+    public InstrumentedEmbeddingModel(EmbeddingModel delegate, PipelineMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        EmbeddingResponse response = metrics.timeEmbeddingCall(request.getInstructions().size(),
+                () -> delegate.call(request));
+        Usage usage = response.getMetadata() != null ? response.getMetadata().getUsage() : null;
+        if (usage != null && usage.getPromptTokens() != null) {
+            metrics.recordEmbeddingTokens(usage.getPromptTokens());
+        }
+        return response;
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
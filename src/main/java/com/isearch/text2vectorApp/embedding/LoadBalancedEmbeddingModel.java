@@ -0,0 +1,322 @@
+package com.isearch.text2vectorApp.embedding;
+
+import com.isearch.text2vectorApp.exception.EmbeddingServiceException;
+import com.isearch.text2vectorApp.exception.EmbeddingUnavailableException;
+import com.isearch.text2vectorApp.metrics.PipelineMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * EmbeddingModel that spreads calls over a pool of backends (e.g. one Ollama per GPU box),
+ * so callers still see a single model.
+ * <ul>
+ *     <li>Each call goes to the healthy backend with the lowest expected wait: calls in
+ *         flight on it, plus this one, times its recent latency per text. Equal backends
+ *         therefore get the same share, and a slower box gets proportionally less.</li>
+ *     <li>Calls with many texts are split into contiguous shards that run on several
+ *         backends in parallel; the results are put back in request order.</li>
+ *     <li>A backend is taken out of rotation after {@code failureThreshold} transient
+ *         failures in a row, or when its health check fails. A failed shard is retried once
+ *         on every other healthy backend before the error is passed on. A health check runs
+ *         every {@code healthInterval} and puts recovered backends back into rotation. With
+ *         the periodic check off, a backend gets a trial call once it has been out of rotation
+ *         for {@link #UNCHECKED_COOLDOWN}, and is back in rotation if the call succeeds.</li>
+ * </ul>
+ * When no backend is healthy, calls fail with {@link EmbeddingUnavailableException}.
+ */
+@Slf4j
+public class LoadBalancedEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    /**
+     * A backend of the pool.
+     *
+     * @param name        name for logs and metrics, e.g. the base URL
+     * @param model       the backend's model
+     * @param healthCheck throws if the backend is not usable
+     */
+    public record Backend(String name, EmbeddingModel model, Runnable healthCheck) {
+    }
+
+    private static final double LATENCY_SMOOTHING = 0.2;
+    /** How long a backend stays out of rotation when no periodic health check brings it back. */
+    private static final Duration UNCHECKED_COOLDOWN = Duration.ofSeconds(10);
+
+    private final List<Node> nodes;
+    private final Executor executor;
+    private final int failureThreshold;
+    private final int minShardTexts;
+    private final Duration healthInterval;
+    private final long cooldownNanos;
+    private final ScheduledExecutorService healthChecks;
+    private final AtomicInteger nextStart = new AtomicInteger();
+
+    /**
+     * @param backends         backends of the pool, at least one
+     * @param executor         runs the shards of a split call
+     * @param healthInterval   pause between health checks; zero disables the periodic check, and
+     *                         backends then return to rotation after {@link #UNCHECKED_COOLDOWN}
+     * @param failureThreshold transient failures in a row that take a backend out of rotation
+     * @param minShardTexts    texts a shard has at least; smaller calls are not split
+     * @param metrics          for the per-backend gauges
+     */
+    public LoadBalancedEmbeddingModel(List<Backend> backends, Executor executor, Duration healthInterval,
+                                      int failureThreshold, int minShardTexts, PipelineMetrics metrics) {
+        this(backends, executor, healthInterval, UNCHECKED_COOLDOWN, failureThreshold, minShardTexts, metrics);
+    }
+
+    LoadBalancedEmbeddingModel(List<Backend> backends, Executor executor, Duration healthInterval,
+                               Duration cooldown, int failureThreshold, int minShardTexts, PipelineMetrics metrics) {
+        if (backends.isEmpty()) {
+            throw new IllegalArgumentException("At least one embedding backend is required");
+        }
+        this.nodes = backends.stream().map(Node::new).toList();
+        this.executor = executor;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.minShardTexts = Math.max(1, minShardTexts);
+        this.healthInterval = healthInterval;
+        this.cooldownNanos = cooldown.toNanos();
+        for (Node node : nodes) {
+            metrics.gauge(PipelineMetrics.EMBEDDING_BACKEND_IN_FLIGHT, "Model calls in flight on an embedding backend",
+                    node.outstanding::get, "backend", node.backend.name());
+            metrics.gauge(PipelineMetrics.EMBEDDING_BACKEND_HEALTHY, "1 while an embedding backend is in rotation",
+                    () -> node.healthy ? 1 : 0, "backend", node.backend.name());
+        }
+        if (healthInterval.isPositive()) {
+            healthChecks = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("embed-health").daemon(true).factory());
+            long millis = healthInterval.toMillis();
+            healthChecks.scheduleWithFixedDelay(this::checkHealth, millis, millis, TimeUnit.MILLISECONDS);
+        } else {
+            healthChecks = null;
+        }
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> texts = request.getInstructions();
+        int shards = Math.min(healthyCount(), texts.size() / minShardTexts);
+        if (shards <= 1) {
+            return callWithFailover(request);
+        }
+
+        List<CompletableFuture<EmbeddingResponse>> futures = new ArrayList<>(shards);
+        List<Integer> offsets = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            int from = (int) ((long) texts.size() * i / shards);
+            int to = (int) ((long) texts.size() * (i + 1) / shards);
+            EmbeddingRequest shard = new EmbeddingRequest(texts.subList(from, to), request.getOptions());
+            offsets.add(from);
+            futures.add(CompletableFuture.supplyAsync(() -> callWithFailover(shard), executor));
+        }
+
+        List<Embedding> embeddings = new ArrayList<>(texts.size());
+        for (int i = 0; i < shards; i++) {
+            for (Embedding embedding : join(futures.get(i)).getResults()) {
+                embeddings.add(new Embedding(embedding.getOutput(), offsets.get(i) + embedding.getIndex()));
+            }
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return nodes.getFirst().backend.model().dimensions();
+    }
+
+    @Override
+    public void close() {
+        if (healthChecks != null) {
+            healthChecks.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the health check of every backend, taking failing ones out of rotation and putting
+     * recovered ones back.
+     */
+    void checkHealth() {
+        for (Node node : nodes) {
+            try {
+                node.backend.healthCheck().run();
+                if (!node.healthy) {
+                    log.info("Embedding backend {} is healthy again", node.backend.name());
+                }
+                node.consecutiveFailures.set(0);
+                node.healthy = true;
+            } catch (RuntimeException ex) {
+                if (node.healthy) {
+                    log.warn("Embedding backend {} failed its health check: {}", node.backend.name(), ex.getMessage());
+                }
+                node.takeOut();
+            }
+        }
+    }
+
+    int healthyCount() {
+        int healthy = 0;
+        for (Node node : nodes) {
+            if (node.healthy) {
+                healthy++;
+            }
+        }
+        return healthy;
+    }
+
+    private EmbeddingResponse callWithFailover(EmbeddingRequest request) {
+        Set<Node> tried = new HashSet<>();
+        RuntimeException lastFailure = null;
+        for (Node node = pick(tried); node != null; node = pick(tried)) {
+            tried.add(node);
+            try {
+                return node.call(request);
+            } catch (RuntimeException ex) {
+                if (!ResilientEmbeddingModel.isTransient(ex)) {
+                    throw ex;
+                }
+                lastFailure = ex;
+            }
+        }
+        if (lastFailure != null) {
+            throw lastFailure;
+        }
+        throw new EmbeddingUnavailableException("No embedding backend is healthy; retry later", retryAfter());
+    }
+
+    /**
+     * When a backend may be back: at the next health check, or when the first cooldown ends.
+     */
+    private Duration retryAfter() {
+        if (healthChecks != null) {
+            return healthInterval;
+        }
+        long now = System.nanoTime();
+        long wait = cooldownNanos;
+        for (Node node : nodes) {
+            if (!node.healthy) {
+                wait = Math.min(wait, Math.max(0, node.outSince + cooldownNanos - now));
+            }
+        }
+        return Duration.ofNanos(Math.max(wait, TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    /**
+     * Whether a call may go to a backend: it is in rotation, or it is due for a trial call.
+     */
+    private boolean isAvailable(Node node) {
+        return node.healthy
+                || (healthChecks == null && System.nanoTime() - node.outSince >= cooldownNanos);
+    }
+
+    /**
+     * The healthy backend not yet tried with the lowest expected wait. The scan starts at a
+     * rotating position, so ties are spread over the pool.
+     */
+    private Node pick(Set<Node> tried) {
+        int start = Math.floorMod(nextStart.getAndIncrement(), nodes.size());
+        Node best = null;
+        double bestScore = Double.MAX_VALUE;
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get((start + i) % nodes.size());
+            if (!isAvailable(node) || tried.contains(node)) {
+                continue;
+            }
+            double score = (node.outstanding.get() + 1) * Math.max(1.0, node.nanosPerText);
+            if (score < bestScore) {
+                best = node;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    private static EmbeddingResponse join(CompletableFuture<EmbeddingResponse> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new EmbeddingServiceException("Embedding shard failed", ex.getCause());
+        }
+    }
+
+    private final class Node {
+
+        final Backend backend;
+        final AtomicInteger outstanding = new AtomicInteger();
+        final AtomicInteger consecutiveFailures = new AtomicInteger();
+        volatile boolean healthy = true;
+        // System.nanoTime() when the backend was last taken out of rotation or failed a trial call
+        volatile long outSince;
+        volatile double nanosPerText;
+
+        Node(Backend backend) {
+            this.backend = backend;
+        }
+
+        EmbeddingResponse call(EmbeddingRequest request) {
+            outstanding.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                EmbeddingResponse response = backend.model().call(request);
+                recordLatency(System.nanoTime() - start, request.getInstructions().size());
+                consecutiveFailures.set(0);
+                if (!healthy && healthChecks == null) {
+                    // A trial call after the cooldown
+                    log.info("Embedding backend {} is back in rotation", backend.name());
+                    healthy = true;
+                }
+                return response;
+            } catch (RuntimeException ex) {
+                if (!ResilientEmbeddingModel.isTransient(ex)) {
+                    throw ex;
+                }
+                if (!healthy) {
+                    // A failed trial call starts another cooldown
+                    takeOut();
+                } else if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+                    takeOut();
+                    log.warn("Embedding backend {} taken out of rotation after {} failures: {}",
+                            backend.name(), failureThreshold, ex.getMessage());
+                }
+                throw ex;
+            } finally {
+                outstanding.decrementAndGet();
+            }
+        }
+
+        void takeOut() {
+            outSince = System.nanoTime();
+            healthy = false;
+        }
+
+        private void recordLatency(long nanos, int texts) {
+            double perText = (double) nanos / Math.max(1, texts);
+            double previous = nanosPerText;
+            // Not synchronized: a lost update only skews the estimate slightly
+            nanosPerText = previous == 0 ? perText : previous + LATENCY_SMOOTHING * (perText - previous);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.isearch.text2vectorApp.embedding;
+
+import com.isearch.text2vectorApp.config.EmbeddingMicroBatchProperties;
+import com.isearch.text2vectorApp.exception.EmbeddingServiceException;
+import com.isearch.text2vectorApp.metrics.PipelineMetrics;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * EmbeddingModel decorator that merges the small calls of concurrent requests (a query, a
+ * single text) into one model call, so the model works on full batches at high request
+ * rates.
+ * <p>
+ * The first call that finds no open batch opens one and becomes its leader: it waits up to
+ * {@code window} for other calls to join, then sends the merged texts on its own thread and
+ * hands every caller its own vectors. A batch that reaches its token or text budget is sent
+ * at once. Calls with more than {@code maxRequestTexts} texts, or with their own model or
+ * dimensions options, are passed on unchanged. Tokens are counted with the
+ * {@link TokenCountEstimator}.
+ */
+public class MicroBatchingEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final TokenCountEstimator tokenCountEstimator;
+    private final EmbeddingMicroBatchProperties properties;
+    private final PipelineMetrics metrics;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Batch open;
+
+    public MicroBatchingEmbeddingModel(EmbeddingModel delegate, TokenCountEstimator tokenCountEstimator,
+                                       EmbeddingMicroBatchProperties properties, PipelineMetrics metrics) {
+        this.delegate = delegate;
+        this.tokenCountEstimator = tokenCountEstimator;
+        this.properties = properties;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> texts = request.getInstructions();
+        if (texts.isEmpty() || texts.size() > properties.maxRequestTexts() || !isDefault(request.getOptions())) {
+            return delegate.call(request);
+        }
+        int tokens = 0;
+        for (String text : texts) {
+            tokens += tokenCountEstimator.estimate(text);
+        }
+
+        Batch batch;
+        Caller caller = new Caller(texts.size());
+        lock.lock();
+        try {
+            if (open != null && !open.fits(texts.size(), tokens)) {
+                open.close();
+            }
+            if (open == null) {
+                open = new Batch(request.getOptions());
+                batch = open;
+                caller.leader = true;
+            } else {
+                batch = open;
+            }
+            batch.add(caller, texts, tokens);
+            if (batch.isFull()) {
+                batch.close();
+            }
+            if (caller.leader) {
+                batch.awaitClose();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (caller.leader) {
+            batch.send();
+        }
+        return caller.response();
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    private static boolean isDefault(EmbeddingOptions options) {
+        return options == null || (options.getModel() == null && options.getDimensions() == null);
+    }
+
+    private static final class Caller {
+
+        final int size;
+        final CompletableFuture<EmbeddingResponse> result = new CompletableFuture<>();
+        int offset;
+        boolean leader;
+
+        Caller(int size) {
+            this.size = size;
+        }
+
+        EmbeddingResponse response() {
+            try {
+                return result.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new EmbeddingServiceException("Micro-batched embedding call failed", ex.getCause());
+            }
+        }
+    }
+
+    /**
+     * Texts of the calls that joined one merged model call. All state is guarded by the
+     * enclosing model's lock until the batch is closed; after that only its leader uses it.
+     */
+    private final class Batch {
+
+        final EmbeddingOptions options;
+        final Condition closed = lock.newCondition();
+        final List<String> texts = new ArrayList<>();
+        final List<Caller> callers = new ArrayList<>();
+        int tokens;
+        boolean isClosed;
+
+        Batch(EmbeddingOptions options) {
+            this.options = options;
+        }
+
+        boolean fits(int moreTexts, int moreTokens) {
+            return texts.size() + moreTexts <= properties.maxTexts() && tokens + moreTokens <= properties.maxTokens();
+        }
+
+        boolean isFull() {
+            return texts.size() >= properties.maxTexts() || tokens >= properties.maxTokens();
+        }
+
+        void add(Caller caller, List<String> more, int moreTokens) {
+            caller.offset = texts.size();
+            callers.add(caller);
+            texts.addAll(more);
+            tokens += moreTokens;
+        }
+
+        void close() {
+            isClosed = true;
+            if (open == this) {
+                open = null;
+            }
+            closed.signal();
+        }
+
+        /**
+         * Waits until the window has passed or the batch was closed early; called by the
+         * leader with the lock held.
+         */
+        void awaitClose() {
+            long remaining = properties.window().toNanos();
+            try {
+                while (!isClosed && remaining > 0) {
+                    remaining = closed.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            close();
+        }
+
+        /**
+         * Sends the merged call and completes every caller, also when the call or the mapping
+         * of its results fails; an {@link Error} is passed on to the leader afterwards.
+         */
+        void send() {
+            try {
+                metrics.recordCoalescedRequests(callers.size());
+                EmbeddingResponse response = delegate.call(new EmbeddingRequest(texts, options));
+                Embedding[] byIndex = new Embedding[texts.size()];
+                for (Embedding embedding : response.getResults()) {
+                    int index = embedding.getIndex();
+                    if (index < 0 || index >= byIndex.length) {
+                        throw new EmbeddingServiceException("Model returned embedding index " + index
+                                + " for " + byIndex.length + " texts");
+                    }
+                    byIndex[index] = embedding;
+                }
+                for (Caller caller : callers) {
+                    complete(caller, byIndex, response);
+                }
+            } catch (RuntimeException | Error ex) {
+                callers.forEach(caller -> caller.result.completeExceptionally(ex));
+                if (ex instanceof Error error) {
+                    throw error;
+                }
+            }
+        }
+
+        private void complete(Caller caller, Embedding[] byIndex, EmbeddingResponse response) {
+            List<Embedding> own = new ArrayList<>(caller.size);
+            for (int i = 0; i < caller.size; i++) {
+                Embedding embedding = byIndex[caller.offset + i];
+                if (embedding == null) {
+                    caller.result.completeExceptionally(new EmbeddingServiceException(
+                            "Model returned no embedding for text " + (caller.offset + i)));
+                    return;
+                }
+                own.add(new Embedding(embedding.getOutput(), i));
+            }
+            caller.result.complete(new EmbeddingResponse(own, response.getMetadata()));
+        }
+    }
+}
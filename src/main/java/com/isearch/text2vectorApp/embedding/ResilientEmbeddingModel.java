@@ -0,0 +1,172 @@
+package com.isearch.text2vectorApp.embedding;
+
+import com.isearch.text2vectorApp.config.EmbeddingResilienceProperties;
+import com.isearch.text2vectorApp.exception.EmbeddingServiceException;
+import com.isearch.text2vectorApp.exception.EmbeddingUnavailableException;
+import com.isearch.text2vectorApp.metrics.PipelineMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * EmbeddingModel decorator that protects the model from overload and callers from a failing
+ * model:
+ * <ul>
+ *     <li>an {@link AdaptiveConcurrencyLimiter} bounds concurrent calls, so excess callers
+ *         wait here instead of in Ollama's queue, and fail with 503 after a maximum wait;</li>
+ *     <li>transient errors (I/O, timeouts, 5xx) are retried a few times with exponential
+ *         backoff and full jitter, outside of the limiter;</li>
+ *     <li>a {@link CircuitBreaker} fails fast with 503 while the model keeps failing.</li>
+ * </ul>
+ * Failures are thrown as {@link EmbeddingUnavailableException} (503 with Retry-After) when
+ * the call was not attempted; other errors of the model are passed on unchanged.
+ */
+@Slf4j
+public class ResilientEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final EmbeddingResilienceProperties properties;
+    private final PipelineMetrics metrics;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final CircuitBreaker breaker;
+
+    public ResilientEmbeddingModel(EmbeddingModel delegate, EmbeddingResilienceProperties properties,
+                                   PipelineMetrics metrics) {
+        this.delegate = delegate;
+        this.properties = properties;
+        this.metrics = metrics;
+        this.limiter = new AdaptiveConcurrencyLimiter(properties.initialLimit(), properties.minLimit(),
+                properties.maxLimit(), properties.latencyTolerance(), properties.backoffRatio());
+        this.breaker = new CircuitBreaker(properties.failureThreshold(), properties.openDuration());
+        metrics.gauge(PipelineMetrics.EMBEDDING_LIMIT, "Current limit of concurrent embedding model calls",
+                limiter::limit);
+        metrics.gauge(PipelineMetrics.EMBEDDING_CIRCUIT_OPEN, "1 while the embedding circuit breaker is open",
+                () -> breaker.state() == CircuitBreaker.State.CLOSED ? 0 : 1);
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        if (!breaker.tryAcquire()) {
+            metrics.recordEmbeddingRejected("circuit_open");
+            throw new EmbeddingUnavailableException(
+                    "Embedding model is unavailable after repeated failures; retry later", breaker.retryAfter());
+        }
+        try {
+            EmbeddingResponse response = callWithRetries(request);
+            breaker.onSuccess();
+            return response;
+        } catch (EmbeddingUnavailableException ex) {
+            breaker.onIgnored();
+            throw ex;
+        } catch (RuntimeException ex) {
+            if (isTransient(ex)) {
+                breaker.onFailure();
+                if (breaker.state() == CircuitBreaker.State.OPEN) {
+                    log.warn("Embedding circuit opened for {}: {}", properties.openDuration(), ex.getMessage());
+                }
+            } else {
+                // The model answered, e.g. rejected an input; it is up
+                breaker.onSuccess();
+            }
+            throw ex;
+        }
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    int limit() {
+        return limiter.limit();
+    }
+
+    CircuitBreaker.State circuitState() {
+        return breaker.state();
+    }
+
+    private EmbeddingResponse callWithRetries(EmbeddingRequest request) {
+        int texts = request.getInstructions().size();
+        for (int attempt = 1; ; attempt++) {
+            acquireSlot();
+            long start = System.nanoTime();
+            boolean overloaded = false;
+            try {
+                return delegate.call(request);
+            } catch (RuntimeException ex) {
+                overloaded = isTransient(ex);
+                if (!overloaded || attempt >= properties.maxAttempts()) {
+                    throw ex;
+                }
+                log.debug("Embedding call failed (attempt {} of {}): {}", attempt, properties.maxAttempts(),
+                        ex.getMessage());
+            } finally {
+                limiter.release(System.nanoTime() - start, texts, overloaded);
+            }
+            metrics.recordEmbeddingRetry();
+            sleep(backoff(attempt));
+        }
+    }
+
+    private void acquireSlot() {
+        boolean acquired;
+        try {
+            acquired = limiter.acquire(properties.maxWait());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EmbeddingServiceException("Interrupted while waiting for the embedding model", e);
+        }
+        if (!acquired) {
+            metrics.recordEmbeddingRejected("limit");
+            throw new EmbeddingUnavailableException("Embedding model is overloaded: no free slot within "
+                    + properties.maxWait() + "; retry later", properties.maxWait());
+        }
+    }
+
+    /**
+     * Exponential backoff with full jitter: uniform in [0, min(max, initial * 2^(attempt-1))].
+     */
+    private Duration backoff(int attempt) {
+        long cap = Math.min(properties.maxBackoff().toNanos(),
+                properties.initialBackoff().toNanos() << Math.min(30, attempt - 1));
+        return Duration.ofNanos(ThreadLocalRandom.current().nextLong(Math.max(1, cap)));
+    }
+
+    private static void sleep(Duration delay) {
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EmbeddingServiceException("Interrupted while waiting to retry the embedding model", e);
+        }
+    }
+
+    /**
+     * Errors that may go away on their own: connection problems, timeouts and server errors.
+     */
+    static boolean isTransient(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientAiException
+                    || cause instanceof ResourceAccessException
+                    || cause instanceof HttpServerErrorException
+                    || cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,92 @@
+package com.isearch.text2vectorApp.embedding;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.retry.TransientAiException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Offline EmbeddingModel that returns deterministic pseudo-random unit vectors derived
+ * from the text. Used by the benchmarks and for running the application without Ollama.
+ * An optional per-call latency simulates the model round-trip, and an optional failure rate
+ * makes calls fail with a transient error, to exercise retries and the circuit breaker offline.
+ */
+public class StubEmbeddingModel implements EmbeddingModel {
+
+    private final int dimensions;
+    private final Duration latency;
+    private final double failureRate;
+
+    public StubEmbeddingModel(int dimensions) {
+        this(dimensions, Duration.ZERO);
+    }
+
+    public StubEmbeddingModel(int dimensions, Duration latency) {
+        this(dimensions, latency, 0);
+    }
+
+    public StubEmbeddingModel(int dimensions, Duration latency, double failureRate) {
+        this.dimensions = dimensions;
+        this.latency = latency;
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        simulateLatency();
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new TransientAiException("Simulated embedding model failure");
+        }
+        List<String> inputs = request.getInstructions();
+        List<Embedding> embeddings = new ArrayList<>(inputs.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            embeddings.add(new Embedding(vectorFor(inputs.get(i)), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    private float[] vectorFor(String text) {
+        SplittableRandom random = new SplittableRandom(text.hashCode());
+        float[] vector = new float[dimensions];
+        double norm = 0;
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) (random.nextDouble() * 2 - 1);
+            norm += vector[i] * vector[i];
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    private void simulateLatency() {
+        if (latency.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while simulating model latency", e);
+        }
+    }
+}
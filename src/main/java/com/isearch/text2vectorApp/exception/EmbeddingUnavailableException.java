@@ -0,0 +1,21 @@
+package com.isearch.text2vectorApp.exception;
+
+import java.time.Duration;
+
+/**
+ * The embedding model is not accepting calls right now (circuit open or concurrency limit
+ * reached); clients should retry after {@link #retryAfter()}.
+ */
+public class EmbeddingUnavailableException extends EmbeddingServiceException {
+
+    private final Duration retryAfter;
+
+    public EmbeddingUnavailableException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration retryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,7 @@
+package com.isearch.text2vectorApp.exception;
+
+public class IngestionQueueFullException extends RuntimeException {
+    public IngestionQueueFullException(String message) {
+        super(message);
+    }
+}
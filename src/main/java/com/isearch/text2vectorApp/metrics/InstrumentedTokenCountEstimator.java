@@ -0,0 +1,34 @@
+package com.isearch.text2vectorApp.metrics;
+
+import org.springframework.ai.content.MediaContent;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+/**
+ * TokenCountEstimator decorator that times every estimate as {@value PipelineMetrics#TOKEN_COUNT}.
+ * BPE encoding of long texts is a large share of the CPU time of chunking and batching.
+ */
+public class InstrumentedTokenCountEstimator implements TokenCountEstimator {
+
+    private final TokenCountEstimator delegate;
+    private final PipelineMetrics metrics;
+
+    public InstrumentedTokenCountEstimator(TokenCountEstimator delegate, PipelineMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public int estimate(String text) {
+        return metrics.timeTokenCount(() -> delegate.estimate(text));
+    }
+
+    @Override
+    public int estimate(MediaContent content) {
+        return metrics.timeTokenCount(() -> delegate.estimate(content));
+    }
+
+    @Override
+    public int estimate(Iterable<MediaContent> messages) {
+        return metrics.timeTokenCount(() -> delegate.estimate(messages));
+    }
+}
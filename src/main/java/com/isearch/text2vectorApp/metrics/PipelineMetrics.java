@@ -0,0 +1,230 @@
+package com.isearch.text2vectorApp.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Meters for the stages of the embed, ingest and search pipelines, exposed through
+ * /actuator/prometheus. Every timed stage also has an in-flight gauge, so a stage that
+ * is both slow and crowded stands out as the bottleneck.
+ * <p>
+ * Meter names (Prometheus adds the unit suffixes):
+ * <ul>
+ *     <li>{@value #DETECT}: file type detection, tagged with the detected type</li>
+ *     <li>{@value #PARSE}: reading a document into text, tagged with the reader</li>
+ *     <li>{@value #TOKEN_COUNT}: one token count estimate</li>
+ *     <li>{@value #EMBEDDING_CALL}: one model call, tagged with the outcome;
+ *         {@value #EMBEDDING_BATCH_SIZE} and {@value #EMBEDDING_BATCH_TOKENS} per call</li>
+ *     <li>{@value #EMBEDDING_COALESCED}: caller requests merged into one micro-batched call</li>
+ *     <li>{@value #EMBEDDING_RETRIES} and {@value #EMBEDDING_REJECTED} (by reason): retried and
+ *         rejected model calls; {@value #EMBEDDING_LIMIT} and {@value #EMBEDDING_CIRCUIT_OPEN}:
+ *         state of the concurrency limiter and circuit breaker</li>
+ *     <li>{@value #EMBEDDING_BACKEND_IN_FLIGHT} and {@value #EMBEDDING_BACKEND_HEALTHY}: calls in
+ *         flight on and rotation state of each backend of an embedding pool</li>
+ *     <li>{@value #STORE_WRITE}: writing embedded chunks, tagged add (VectorStore.add) or bulk</li>
+ *     <li>{@value #SEARCH}: one vector similarity search, tagged with the search path</li>
+ *     <li>{@value #DOCUMENT_CHUNKS} and {@value #CHUNK_TOKENS}</li>
+ *     <li>{@value #IN_FLIGHT}: operations in progress, tagged with the stage</li>
+ * </ul>
+ * In-flight HTTP requests are reported by Spring Boot as http.server.requests.active.
+ */
+@Component
+public class PipelineMetrics {
+
+    public static final String DETECT = "text2vector.detect";
+    public static final String PARSE = "text2vector.parse";
+    public static final String TOKEN_COUNT = "text2vector.token.count";
+    public static final String EMBEDDING_CALL = "text2vector.embedding.call";
+    public static final String EMBEDDING_BATCH_SIZE = "text2vector.embedding.batch.size";
+    public static final String EMBEDDING_BATCH_TOKENS = "text2vector.embedding.batch.tokens";
+    public static final String EMBEDDING_COALESCED = "text2vector.embedding.coalesced";
+    public static final String EMBEDDING_RETRIES = "text2vector.embedding.retries";
+    public static final String EMBEDDING_REJECTED = "text2vector.embedding.rejected";
+    public static final String EMBEDDING_LIMIT = "text2vector.embedding.limit";
+    public static final String EMBEDDING_CIRCUIT_OPEN = "text2vector.embedding.circuit.open";
+    public static final String EMBEDDING_BACKEND_IN_FLIGHT = "text2vector.embedding.backend.inflight";
+    public static final String EMBEDDING_BACKEND_HEALTHY = "text2vector.embedding.backend.healthy";
+    public static final String STORE_WRITE = "text2vector.store.write";
+    public static final String SEARCH = "text2vector.search";
+    public static final String DOCUMENT_CHUNKS = "text2vector.document.chunks";
+    public static final String CHUNK_TOKENS = "text2vector.chunk.tokens";
+    public static final String IN_FLIGHT = "text2vector.inflight";
+
+    private final MeterRegistry registry;
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    private final Timer tokenCount;
+    private final DistributionSummary documentChunks;
+    private final DistributionSummary chunkTokens;
+    private final DistributionSummary batchSize;
+    private final DistributionSummary batchTokens;
+    private final DistributionSummary coalesced;
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.tokenCount = Timer.builder(TOKEN_COUNT)
+                .description("Time to estimate the token count of one text")
+                .register(registry);
+        this.documentChunks = DistributionSummary.builder(DOCUMENT_CHUNKS)
+                .description("Chunks per document")
+                .baseUnit("chunks")
+                .register(registry);
+        this.chunkTokens = DistributionSummary.builder(CHUNK_TOKENS)
+                .description("Tokens per chunk")
+                .baseUnit("tokens")
+                .register(registry);
+        this.batchSize = DistributionSummary.builder(EMBEDDING_BATCH_SIZE)
+                .description("Texts per embedding model call")
+                .baseUnit("texts")
+                .register(registry);
+        this.batchTokens = DistributionSummary.builder(EMBEDDING_BATCH_TOKENS)
+                .description("Prompt tokens per embedding model call, as reported by the model")
+                .baseUnit("tokens")
+                .register(registry);
+        this.coalesced = DistributionSummary.builder(EMBEDDING_COALESCED)
+                .description("Caller requests merged into one micro-batched embedding call")
+                .baseUnit("requests")
+                .register(registry);
+    }
+
+    /**
+     * Meters that are registered nowhere, for code created outside the application context
+     * (tests, benchmarks).
+     *
+     * @return metrics backed by a throw-away registry
+     */
+    public static PipelineMetrics noop() {
+        return new PipelineMetrics(new SimpleMeterRegistry());
+    }
+
+    public <T> T timeParse(String reader, Supplier<T> task) {
+        return time(Timer.builder(PARSE).description("Time to read a document into text")
+                .tag("reader", reader).register(registry), "parse", task);
+    }
+
+    public <T> T timeTokenCount(Supplier<T> task) {
+        return tokenCount.record(task);
+    }
+
+    /**
+     * Times one embedding model call and records its size.
+     *
+     * @param texts number of texts in the call
+     * @param task  the call
+     * @return the result of the call
+     */
+    public <T> T timeEmbeddingCall(int texts, Supplier<T> task) {
+        batchSize.record(texts);
+        AtomicInteger running = inFlight("embedding");
+        running.incrementAndGet();
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = task.get();
+            outcome = "success";
+            return result;
+        } finally {
+            running.decrementAndGet();
+            Timer.builder(EMBEDDING_CALL).description("Time of one embedding model call")
+                    .tag("outcome", outcome).register(registry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void recordEmbeddingTokens(long tokens) {
+        if (tokens > 0) {
+            batchTokens.record(tokens);
+        }
+    }
+
+    public void recordCoalescedRequests(int requests) {
+        coalesced.record(requests);
+    }
+
+    public void recordEmbeddingRetry() {
+        registry.counter(EMBEDDING_RETRIES).increment();
+    }
+
+    public void recordEmbeddingRejected(String reason) {
+        registry.counter(EMBEDDING_REJECTED, "reason", reason).increment();
+    }
+
+    /**
+     * Registers a gauge that reads its value on every scrape.
+     *
+     * @param name        meter name
+     * @param description meter description
+     * @param value       supplies the current value
+     * @param tags        tag keys and values
+     */
+    public void gauge(String name, String description, Supplier<Number> value, String... tags) {
+        Gauge.builder(name, value).description(description).tags(tags).register(registry);
+    }
+
+    public <T> T timeStoreWrite(String path, Supplier<T> task) {
+        return time(storeWriteTimer(path), "store", task);
+    }
+
+    /**
+     * Starts timing an asynchronous write; call {@link #stopStoreWrite} when it completes.
+     *
+     * @return the started sample
+     */
+    public Timer.Sample startStoreWrite() {
+        inFlight("store").incrementAndGet();
+        return Timer.start(registry);
+    }
+
+    public void stopStoreWrite(Timer.Sample sample, String path) {
+        inFlight("store").decrementAndGet();
+        sample.stop(storeWriteTimer(path));
+    }
+
+    public <T> T timeSearch(String path, Supplier<T> task) {
+        return time(Timer.builder(SEARCH).description("Time of one vector similarity search")
+                .tag("path", path).register(registry), "search", task);
+    }
+
+    public void recordDocument(int chunks) {
+        documentChunks.record(chunks);
+    }
+
+    public void recordChunkTokens(int tokens) {
+        chunkTokens.record(tokens);
+    }
+
+    private Timer storeWriteTimer(String path) {
+        return Timer.builder(STORE_WRITE).description("Time to write a slice of embedded chunks")
+                .tag("path", path).register(registry);
+    }
+
+    private <T> T time(Timer timer, String stage, Supplier<T> task) {
+        AtomicInteger running = inFlight(stage);
+        running.incrementAndGet();
+        try {
+            return timer.record(task);
+        } finally {
+            running.decrementAndGet();
+        }
+    }
+
+    private AtomicInteger inFlight(String stage) {
+        return inFlight.computeIfAbsent(stage, s -> {
+            AtomicInteger counter = new AtomicInteger();
+            Gauge.builder(IN_FLIGHT, counter, AtomicInteger::get)
+                    .description("Operations in progress")
+                    .tag("stage", s)
+                    .register(registry);
+            return counter;
+        });
+    }
+}
@@ -0,0 +1,42 @@
+package com.isearch.text2vectorApp.model;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+/**
+ * Request body of POST /api/v1/search/batch. The options apply to every query;
+ * filters are optional and combined with AND.
+ *
+ * @param queries             the search query texts
+ * @param topK                number of results per query (default: 3)
+ * @param similarityThreshold minimum cosine similarity of vector results (default: accept all)
+ * @param source              only chunks of this uploaded file
+ * @param fileType            only chunks of this file type (pdf, docx, txt)
+ * @param filter              additional portable filter expression, e.g. "section >= 2"
+ * @param hybrid              fuse vector and full-text rankings (default: false)
+ */
+public record BatchSearchRequest(@NotEmpty List<@NotBlank String> queries,
+                                 @Min(1) @Max(1000) Integer topK,
+                                 @DecimalMin("0.0") @DecimalMax("1.0") Double similarityThreshold,
+                                 String source,
+                                 String fileType,
+                                 String filter,
+                                 Boolean hybrid) {
+
+    /**
+     * The search request for one of the queries.
+     *
+     * @param query one of {@link #queries()}
+     * @return a search request with this batch's options
+     */
+    public DocumentSearchRequest forQuery(String query) {
+        return new DocumentSearchRequest(query, topK, similarityThreshold, source, fileType,
+                null, null, null, null, filter, hybrid);
+    }
+}
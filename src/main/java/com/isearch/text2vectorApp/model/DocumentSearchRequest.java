@@ -0,0 +1,37 @@
+package com.isearch.text2vectorApp.model;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+
+import java.time.Instant;
+
+/**
+ * Request body of POST /api/v1/search. All filters are optional and combined with AND.
+ *
+ * @param query               the search query text
+ * @param topK                number of results to return (default: 3)
+ * @param similarityThreshold minimum cosine similarity of vector results (default: accept all)
+ * @param source              only chunks of this uploaded file
+ * @param fileType            only chunks of this file type (pdf, docx, txt)
+ * @param pageFrom            only PDF pages from this page number (inclusive)
+ * @param pageTo              only PDF pages up to this page number (inclusive)
+ * @param ingestedAfter       only chunks stored at or after this time
+ * @param ingestedBefore      only chunks stored before this time
+ * @param filter              additional portable filter expression, e.g. "section >= 2"
+ * @param hybrid              fuse vector and full-text rankings (default: false)
+ */
+public record DocumentSearchRequest(@NotBlank String query,
+                                    @Min(1) @Max(1000) Integer topK,
+                                    @DecimalMin("0.0") @DecimalMax("1.0") Double similarityThreshold,
+                                    String source,
+                                    String fileType,
+                                    Integer pageFrom,
+                                    Integer pageTo,
+                                    Instant ingestedAfter,
+                                    Instant ingestedBefore,
+                                    String filter,
+                                    Boolean hybrid) {
+}
@@ -0,0 +1,16 @@
+package com.isearch.text2vectorApp.model;
+
+import java.util.List;
+
+/**
+ * Response model for document embeddings with base64-encoded vectors.
+ * Each vector is encoded as described in {@link com.isearch.text2vectorApp.util.VectorCodec}.
+ */
+public record EncodedEmbeddingResponse(String filename,
+                                       String fileType,
+                                       int chunks,
+                                       String encoding,
+                                       String precision,
+                                       int dimensions,
+                                       List<String> vectors) {
+}
@@ -0,0 +1,20 @@
+package com.isearch.text2vectorApp.model;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Status of an asynchronous ingestion job.
+ */
+public record IngestionJobStatus(String jobId,
+                                 String status,
+                                 int files,
+                                 int filesStored,
+                                 int chunksParsed,
+                                 int chunksEmbedded,
+                                 int chunksStored,
+                                 List<StoredDocument> documents,
+                                 List<String> errors,
+                                 Instant submittedAt,
+                                 Instant finishedAt) {
+}
@@ -0,0 +1,29 @@
+package com.isearch.text2vectorApp.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of storing a single document in the vector store.
+ * For re-uploads, {@code added} and {@code removed} count the chunks that changed;
+ * the remaining chunks were already stored and were not embedded again.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record StoredDocument(String filename, String fileType, int chunks, Integer added, Integer removed,
+                             String status, String error) {
+
+    public static StoredDocument stored(String filename, String fileType, int chunks) {
+        return stored(filename, fileType, chunks, chunks, 0);
+    }
+
+    public static StoredDocument stored(String filename, String fileType, int chunks, int added, int removed) {
+        return new StoredDocument(filename, fileType, chunks, added, removed, "stored", null);
+    }
+
+    public static StoredDocument failed(String filename, String fileType, String error) {
+        return new StoredDocument(filename, fileType, 0, null, null, "failed", error);
+    }
+
+    public boolean isStored() {
+        return "stored".equals(status) && chunks > 0;
+    }
+}
@@ -0,0 +1,122 @@
+package com.isearch.text2vectorApp.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isearch.text2vectorApp.config.HybridSearchProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.pgvector.PgVectorFilterExpressionConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Full-text search over the content column of the PGVector table, used as the keyword side
+ * of hybrid search. Creates a GIN index on the content tsvector and a jsonb_path_ops GIN
+ * index on the metadata, so that both the text match and metadata filters are index-backed.
+ */
+@Component
+@Slf4j
+public class KeywordSearchRepository {
+
+    public static final String KEYWORD_RANK = "keyword_rank";
+
+    private static final Pattern TEXT_SEARCH_CONFIG = Pattern.compile("[a-z_]+");
+
+    private final PgVectorTable table;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final PgVectorFilterExpressionConverter filterConverter = new PgVectorFilterExpressionConverter();
+    private final String textSearchConfig;
+    private final String tsvector;
+
+    public KeywordSearchRepository(PgVectorTable table, JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                                   HybridSearchProperties properties) {
+        if (!TEXT_SEARCH_CONFIG.matcher(properties.textSearchConfig()).matches()) {
+            throw new IllegalArgumentException("Invalid text search configuration: " + properties.textSearchConfig());
+        }
+        this.table = table;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.textSearchConfig = properties.textSearchConfig();
+        // Inlined rather than bound, so that queries match the expression index
+        this.tsvector = "to_tsvector('" + properties.textSearchConfig() + "', content)";
+    }
+
+    @PostConstruct
+    void createIndexes() {
+        if (!table.isAvailable()) {
+            return;
+        }
+        try {
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + table.indexName("content_tsv")
+                    + " ON " + table.qualifiedName() + " USING GIN (" + tsvector + ")");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + table.indexName("metadata")
+                    + " ON " + table.qualifiedName() + " USING GIN ((metadata::jsonb) jsonb_path_ops)");
+        } catch (Exception ex) {
+            log.warn("Could not create search indexes on {}: {}", table.qualifiedName(), ex.getMessage());
+        }
+    }
+
+    /**
+     * Whether keyword search is possible, i.e. the vector store is PGVector.
+     *
+     * @return true if {@link #search} can be used
+     */
+    public boolean isAvailable() {
+        return table.isAvailable();
+    }
+
+    /**
+     * Finds the chunks that best match a keyword query, ranked by ts_rank_cd.
+     * The query uses web search syntax: quoted phrases, OR, and -excluded words.
+     *
+     * @param query  the query text
+     * @param limit  maximum number of results
+     * @param filter metadata filter, or null
+     * @return matching chunks, best first, with their rank in the keyword_rank metadata
+     */
+    public List<Document> search(String query, int limit, Filter.Expression filter) {
+        StringBuilder sql = new StringBuilder()
+                .append("SELECT id::text AS id, content, metadata::text AS metadata, ")
+                .append("ts_rank_cd(").append(tsvector).append(", query) AS rank ")
+                .append("FROM ").append(table.qualifiedName())
+                .append(", websearch_to_tsquery('").append(textSearchConfig).append("', ?) query ")
+                .append("WHERE ").append(tsvector).append(" @@ query");
+
+        List<Object> args = new ArrayList<>();
+        args.add(query);
+        if (filter != null) {
+            sql.append(" AND metadata::jsonb @@ ?::jsonpath");
+            args.add(filterConverter.convertExpression(filter));
+        }
+        sql.append(" ORDER BY rank DESC LIMIT ?");
+        args.add(limit);
+
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+            Map<String, Object> metadata = parseMetadata(rs.getString("metadata"));
+            metadata.put(KEYWORD_RANK, rs.getDouble("rank"));
+            return Document.builder()
+                    .id(rs.getString("id"))
+                    .text(rs.getString("content"))
+                    .metadata(metadata)
+                    .build();
+        }, args.toArray());
+    }
+
+    private Map<String, Object> parseMetadata(String json) {
+        try {
+            return objectMapper.readValue(json, new TypeReference<>() {
+            });
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored metadata is not valid JSON", e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.isearch.text2vectorApp.repository;
+
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Describes the PGVector table behind the configured VectorStore.
+ * Components that talk to the table directly over JDBC check {@link #isAvailable()}
+ * first, since the table only exists when the vector store is PGVector.
+ */
+@Component
+public class PgVectorTable {
+
+    private final boolean available;
+    private final String tableName;
+    private final String qualifiedName;
+    private final int dimensions;
+    private final String distanceOperator;
+    private final String operatorClassSuffix;
+
+    public PgVectorTable(VectorStore vectorStore,
+                         @Value("${spring.ai.vectorstore.pgvector.schema-name:public}") String schemaName,
+                         @Value("${spring.ai.vectorstore.pgvector.table-name:vector_store}") String tableName,
+                         @Value("${spring.ai.vectorstore.pgvector.embedding-dimension:1024}") int dimensions,
+                         @Value("${spring.ai.vectorstore.pgvector.distance-type:COSINE_DISTANCE}") String distanceType) {
+        this.available = vectorStore instanceof PgVectorStore;
+        this.tableName = tableName;
+        this.qualifiedName = schemaName + "." + tableName;
+        this.dimensions = dimensions;
+        this.distanceOperator = switch (distanceType) {
+            case "EUCLIDEAN_DISTANCE" -> "<->";
+            case "NEGATIVE_INNER_PRODUCT" -> "<#>";
+            default -> "<=>";
+        };
+        this.operatorClassSuffix = switch (distanceType) {
+            case "EUCLIDEAN_DISTANCE" -> "_l2_ops";
+            case "NEGATIVE_INNER_PRODUCT" -> "_ip_ops";
+            default -> "_cosine_ops";
+        };
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public String qualifiedName() {
+        return qualifiedName;
+    }
+
+    /**
+     * Name for an index on this table, e.g. vector_store_source_idx.
+     *
+     * @param suffix what the index covers
+     * @return the index name (indexes live in the table's schema)
+     */
+    public String indexName(String suffix) {
+        return tableName + "_" + suffix + "_idx";
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * The pgvector operator matching the configured distance type, so queries can use the index.
+     *
+     * @return e.g. {@code <=>} for cosine distance
+     */
+    public String distanceOperator() {
+        return distanceOperator;
+    }
+
+    /**
+     * The index operator class for a pgvector type matching the configured distance type.
+     *
+     * @param type vector, halfvec or sparsevec
+     * @return e.g. halfvec_cosine_ops
+     */
+    public String operatorClass(String type) {
+        return type + operatorClassSuffix;
+    }
+}
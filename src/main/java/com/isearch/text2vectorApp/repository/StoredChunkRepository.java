@@ -0,0 +1,136 @@
+package com.isearch.text2vectorApp.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isearch.text2vectorApp.config.IngestionProperties;
+import com.isearch.text2vectorApp.util.DocumentChunker;
+import com.isearch.text2vectorApp.vectorstore.HnswVectorStore;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Looks up the chunks already stored for a source document, so re-uploads only embed
+ * chunks that changed, and refreshes or removes stored chunks afterwards. With PGVector,
+ * queries go through an expression index on metadata->>'source', which is created on startup
+ * if it does not exist; the in-process HNSW store is asked directly.
+ */
+@Component
+@Slf4j
+public class StoredChunkRepository {
+
+    private final PgVectorTable table;
+    private final HnswVectorStore hnswStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final IngestionProperties properties;
+
+    public StoredChunkRepository(PgVectorTable table, VectorStore vectorStore, JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate, ObjectMapper objectMapper,
+                                 IngestionProperties properties) {
+        this.table = table;
+        this.hnswStore = vectorStore instanceof HnswVectorStore hnsw ? hnsw : null;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    void createIndex() {
+        if (!table.isAvailable()) {
+            return;
+        }
+        try {
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + table.indexName("source")
+                    + " ON " + table.qualifiedName() + " ((metadata->>'source'))");
+        } catch (Exception ex) {
+            log.warn("Could not create source index on {}: {}", table.qualifiedName(), ex.getMessage());
+        }
+    }
+
+    /**
+     * Whether stored chunks can be looked up, i.e. the vector store is PGVector or HNSW.
+     *
+     * @return true if {@link #findIdsBySource(String)} and {@link #refresh} can be used
+     */
+    public boolean isAvailable() {
+        return table.isAvailable() || hnswStore != null;
+    }
+
+    /**
+     * Returns the ids of all chunks stored for a source document.
+     *
+     * @param source the source metadata value (the uploaded filename)
+     * @return chunk ids
+     */
+    public Set<String> findIdsBySource(String source) {
+        if (hnswStore != null) {
+            return hnswStore.findIdsBySource(source);
+        }
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT id::text FROM " + table.qualifiedName() + " WHERE metadata->>'source' = ?",
+                String.class, source));
+    }
+
+    /**
+     * Brings the stored chunks of re-uploaded documents up to date once their new chunks are
+     * written: replaces the metadata of unchanged chunks, whose position in the document may
+     * have moved (content and embedding are left untouched), and deletes chunks that no longer
+     * exist. With PGVector both happen in one transaction.
+     *
+     * @param unchanged chunks with their current metadata
+     * @param removed   ids of chunks to delete
+     */
+    public void refresh(List<Document> unchanged, List<String> removed) {
+        if (unchanged.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        if (hnswStore != null) {
+            hnswStore.updateMetadata(unchanged);
+            hnswStore.delete(removed);
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            updateMetadata(unchanged);
+            delete(removed);
+        });
+    }
+
+    private void updateMetadata(List<Document> documents) {
+        jdbcTemplate.batchUpdate(
+                "UPDATE " + table.qualifiedName() + " SET metadata = ?::jsonb WHERE id = ?",
+                documents,
+                Math.max(1, properties.writeBatchSize()),
+                (ps, document) -> {
+                    ps.setString(1, toJson(document));
+                    ps.setObject(2, UUID.fromString(document.getId()));
+                });
+    }
+
+    private void delete(List<String> ids) {
+        jdbcTemplate.batchUpdate(
+                "DELETE FROM " + table.qualifiedName() + " WHERE id = ?",
+                ids,
+                Math.max(1, properties.writeBatchSize()),
+                (ps, id) -> ps.setObject(1, UUID.fromString(id)));
+    }
+
+    private String toJson(Document document) {
+        try {
+            return objectMapper.writeValueAsString(DocumentChunker.storedMetadata(document.getMetadata()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Metadata of document " + document.getId() + " is not serializable", e);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.isearch.text2vectorApp.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isearch.text2vectorApp.config.QuantizationProperties;
+import com.isearch.text2vectorApp.util.QuantizationMode;
+import com.pgvector.PGvector;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.pgvector.PgVectorFilterExpressionConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Similarity search on the PGVector table with an already computed query vector.
+ * {@link org.springframework.ai.vectorstore.VectorStore#similaritySearch} always embeds the
+ * query text itself; batch search embeds all queries in one model call and searches here.
+ * The query and the distance/score conventions are the same as PgVectorStore's.
+ * <p>
+ * With quantization, an HNSW expression index on the halfvec or binary_quantize form of the
+ * embedding column is created, and searches order by that expression to fetch candidates
+ * from the small index, then rerank them by the full-precision distance. The table keeps the
+ * float32 column, which is only read for the candidates.
+ */
+@Component
+@Slf4j
+public class VectorSearchRepository {
+
+    public static final String DISTANCE = "distance";
+
+    private final PgVectorTable table;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final QuantizationProperties quantization;
+    private final PgVectorFilterExpressionConverter filterConverter = new PgVectorFilterExpressionConverter();
+
+    public VectorSearchRepository(PgVectorTable table, JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                                  QuantizationProperties quantization) {
+        this.table = table;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.quantization = quantization;
+    }
+
+    @PostConstruct
+    void createIndex() {
+        if (!table.isAvailable() || quantization.mode() == QuantizationMode.NONE) {
+            return;
+        }
+        if (quantization.mode() == QuantizationMode.INT8) {
+            throw new IllegalStateException("pgvector has no int8 vector type; "
+                    + "use text2vector.quantization.mode=float16 or binary with the PGVector store");
+        }
+
+        String expression = quantizedExpression("embedding");
+        String operatorClass = quantization.mode() == QuantizationMode.FLOAT16
+                ? table.operatorClass("halfvec")
+                : "bit_hamming_ops";
+        String indexName = table.indexName("embedding_" + quantization.mode().name().toLowerCase());
+        try {
+            log.info("Creating quantized vector index {} (may take a while on a large table)", indexName);
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + indexName + " ON " + table.qualifiedName()
+                    + " USING hnsw ((" + expression + ") " + operatorClass + ")");
+        } catch (Exception ex) {
+            log.warn("Could not create quantized vector index on {}: {}", table.qualifiedName(), ex.getMessage());
+        }
+    }
+
+    /**
+     * Whether vector search over JDBC is possible, i.e. the vector store is PGVector.
+     *
+     * @return true if {@link #search} can be used
+     */
+    public boolean isAvailable() {
+        return table.isAvailable();
+    }
+
+    /**
+     * Finds the chunks closest to a query vector.
+     *
+     * @param vector              the query vector
+     * @param topK                maximum number of results
+     * @param similarityThreshold minimum similarity (1 - distance) of results
+     * @param filter              metadata filter, or null
+     * @return the closest chunks, best first, with distance metadata and score
+     */
+    public List<Document> search(float[] vector, int topK, double similarityThreshold, Filter.Expression filter) {
+        String distance = "embedding " + table.distanceOperator() + " ?";
+        PGvector queryVector = new PGvector(vector);
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder();
+
+        if (quantization.mode() == QuantizationMode.NONE) {
+            sql.append("SELECT id::text AS id, content, metadata::text AS metadata, ")
+                    .append(distance).append(" AS distance FROM ").append(table.qualifiedName())
+                    .append(" WHERE ").append(distance).append(" < ?");
+            args.addAll(List.of(queryVector, queryVector, 1 - similarityThreshold));
+            appendFilter(sql, args, filter);
+            sql.append(" ORDER BY distance LIMIT ?");
+            args.add(topK);
+        } else {
+            // Candidates by the quantized index, then exact distances for the rerank
+            sql.append("SELECT id::text AS id, content, metadata::text AS metadata, distance FROM (")
+                    .append("SELECT id, content, metadata, ").append(distance).append(" AS distance FROM ")
+                    .append(table.qualifiedName()).append(" WHERE true");
+            args.add(queryVector);
+            appendFilter(sql, args, filter);
+            sql.append(" ORDER BY ").append(quantizedExpression("embedding")).append(' ')
+                    .append(quantization.mode() == QuantizationMode.FLOAT16 ? table.distanceOperator() : "<~>")
+                    .append(' ').append(quantizedExpression("?")).append(" LIMIT ?")
+                    .append(") candidates WHERE distance < ? ORDER BY distance LIMIT ?");
+            args.addAll(List.of(queryVector, quantization.candidates(topK), 1 - similarityThreshold, topK));
+        }
+
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+            double rowDistance = rs.getDouble("distance");
+            Map<String, Object> metadata = parseMetadata(rs.getString("metadata"));
+            metadata.put(DISTANCE, rowDistance);
+            return Document.builder()
+                    .id(rs.getString("id"))
+                    .text(rs.getString("content"))
+                    .metadata(metadata)
+                    .score(1 - rowDistance)
+                    .build();
+        }, args.toArray());
+    }
+
+    /**
+     * Reads the embeddings of randomly chosen chunks, e.g. for the quantization report.
+     *
+     * @param limit maximum number of embeddings
+     * @return float32 embeddings
+     */
+    public List<float[]> sampleEmbeddings(int limit) {
+        return jdbcTemplate.query("SELECT embedding FROM " + table.qualifiedName() + " ORDER BY random() LIMIT ?",
+                (rs, rowNum) -> {
+                    try {
+                        return new PGvector(rs.getString("embedding")).toArray();
+                    } catch (SQLException e) {
+                        throw new IllegalStateException("Stored embedding is not a vector", e);
+                    }
+                }, limit);
+    }
+
+    /**
+     * The quantized form of a vector value, matching the expression index.
+     */
+    private String quantizedExpression(String vector) {
+        return quantization.mode() == QuantizationMode.FLOAT16
+                ? "(" + vector + ")::halfvec(" + table.dimensions() + ")"
+                : "binary_quantize(" + vector + ")::bit(" + table.dimensions() + ")";
+    }
+
+    private void appendFilter(StringBuilder sql, List<Object> args, Filter.Expression filter) {
+        if (filter != null) {
+            sql.append(" AND metadata::jsonb @@ ?::jsonpath");
+            args.add(filterConverter.convertExpression(filter));
+        }
+    }
+
+    private Map<String, Object> parseMetadata(String json) {
+        try {
+            return objectMapper.readValue(json, new TypeReference<>() {
+            });
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored metadata is not valid JSON", e);
+        }
+    }
+}
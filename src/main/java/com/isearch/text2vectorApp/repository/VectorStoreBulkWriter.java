@@ -0,0 +1,214 @@
+package com.isearch.text2vectorApp.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isearch.text2vectorApp.config.IngestionProperties;
+import com.isearch.text2vectorApp.util.DocumentChunker;
+import com.pgvector.PGvector;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes embedded chunks to the PGVector table with JDBC batch inserts.
+ * <p>
+ * Writes from concurrent requests are coalesced: a single writer thread collects pending
+ * writes for a short window (or until a row limit is reached) and stores them in one
+ * transaction, split into JDBC batches of a configurable size. If a combined flush fails,
+ * each request is retried on its own so one bad request does not fail the others.
+ * <p>
+ * The queue of pending writes is bounded: when the database falls behind, callers block in
+ * {@link #write(List, List)} instead of piling up embedded chunks in memory.
+ */
+@Component
+@Slf4j
+public class VectorStoreBulkWriter {
+
+    private final PgVectorTable table;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final IngestionProperties properties;
+    private final String insertSql;
+
+    private final LinkedBlockingQueue<PendingWrite> queue;
+    private volatile boolean running = true;
+    private Thread dispatcher;
+
+    public VectorStoreBulkWriter(PgVectorTable table,
+                                 JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 ObjectMapper objectMapper,
+                                 IngestionProperties properties) {
+        this.table = table;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, properties.writeQueueSize()));
+        this.insertSql = "INSERT INTO " + table.qualifiedName() + " (id, content, metadata, embedding) "
+                + "VALUES (?, ?, ?::jsonb, ?) ON CONFLICT (id) DO UPDATE SET "
+                + "content = EXCLUDED.content, metadata = EXCLUDED.metadata, embedding = EXCLUDED.embedding";
+    }
+
+    @PostConstruct
+    void start() {
+        if (!table.isAvailable()) {
+            return;
+        }
+        dispatcher = Thread.ofPlatform().name("vector-writer").daemon(true).start(this::dispatch);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+    }
+
+    /**
+     * Whether bulk writes are possible, i.e. the vector store is PGVector.
+     *
+     * @return true if {@link #write(List, List)} can be used
+     */
+    public boolean isAvailable() {
+        return table.isAvailable();
+    }
+
+    /**
+     * Queues embedded chunks for writing, waiting while the queue is full.
+     *
+     * @param documents  the chunks
+     * @param embeddings their vectors, in the same order
+     * @return a future completed with the number of rows written; failed if the caller was
+     * interrupted while waiting or the writer is shutting down
+     */
+    public CompletableFuture<Integer> write(List<Document> documents, List<float[]> embeddings) {
+        if (documents.size() != embeddings.size()) {
+            throw new IllegalArgumentException("Expected one embedding per document");
+        }
+        PendingWrite write = new PendingWrite(documents, embeddings, new CompletableFuture<>());
+        if (documents.isEmpty()) {
+            write.result().complete(0);
+        } else {
+            enqueue(write);
+        }
+        return write.result();
+    }
+
+    private void enqueue(PendingWrite write) {
+        try {
+            while (!queue.offer(write, 1, TimeUnit.SECONDS)) {
+                if (!running) {
+                    write.result().completeExceptionally(new IllegalStateException("Vector writer is shutting down"));
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            write.result().completeExceptionally(e);
+        }
+    }
+
+    private void dispatch() {
+        while (running) {
+            try {
+                PendingWrite first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                // Collect concurrent writes for a short window to share one transaction
+                List<PendingWrite> group = new ArrayList<>();
+                group.add(first);
+                int rows = first.documents().size();
+                long deadline = System.nanoTime() + properties.writeWindow().toNanos();
+                while (rows < properties.maxRowsPerFlush()) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingWrite next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                    rows += next.documents().size();
+                }
+                flush(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        // Fail whatever is left so callers do not wait forever
+        PendingWrite pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result().completeExceptionally(new IllegalStateException("Vector writer is shutting down"));
+        }
+    }
+
+    private void flush(List<PendingWrite> group) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> group.forEach(this::insert));
+            group.forEach(write -> write.result().complete(write.documents().size()));
+            log.debug("Wrote {} request(s) to {}", group.size(), table.qualifiedName());
+        } catch (Exception ex) {
+            if (group.size() == 1) {
+                group.getFirst().result().completeExceptionally(ex);
+                return;
+            }
+            log.warn("Combined write of {} requests failed, retrying individually: {}", group.size(), ex.getMessage());
+            group.forEach(write -> flush(List.of(write)));
+        }
+    }
+
+    private void insert(PendingWrite write) {
+        int batchSize = Math.max(1, properties.writeBatchSize());
+        for (int from = 0; from < write.documents().size(); from += batchSize) {
+            int to = Math.min(write.documents().size(), from + batchSize);
+            List<Document> documents = write.documents().subList(from, to);
+            List<float[]> embeddings = write.embeddings().subList(from, to);
+
+            jdbcTemplate.batchUpdate(insertSql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    Document document = documents.get(i);
+                    ps.setObject(1, UUID.fromString(document.getId()));
+                    ps.setString(2, document.getText());
+                    ps.setString(3, toJson(document));
+                    ps.setObject(4, new PGvector(embeddings.get(i)));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return documents.size();
+                }
+            });
+        }
+    }
+
+    private String toJson(Document document) {
+        try {
+            return objectMapper.writeValueAsString(DocumentChunker.storedMetadata(document.getMetadata()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Metadata of document " + document.getId() + " is not serializable", e);
+        }
+    }
+
+    private record PendingWrite(List<Document> documents, List<float[]> embeddings, CompletableFuture<Integer> result) {
+    }
+}
@@ -1,18 +1,33 @@
 package com.isearch.text2vectorApp.service;
 
+import com.isearch.text2vectorApp.config.EmbeddingBatchProperties;
+import com.isearch.text2vectorApp.config.PipelineProperties;
+import com.isearch.text2vectorApp.embedding.ChunkBatchingStrategy;
 import com.isearch.text2vectorApp.exception.EmbeddingServiceException;
+import com.isearch.text2vectorApp.metrics.PipelineMetrics;
+import com.isearch.text2vectorApp.util.DocumentChunker;
 import com.isearch.text2vectorApp.util.DocumentReaderFactory;
+import com.isearch.text2vectorApp.util.FileTypeDetector;
+import com.isearch.text2vectorApp.util.TypedResource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
 import org.springframework.ai.embedding.EmbeddingModel;
-import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
 import org.springframework.ai.embedding.EmbeddingResponse;
-import org.springframework.ai.embedding.TokenCountBatchingStrategy;
-import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Service for generating embeddings from text and various document types.
@@ -24,14 +39,34 @@ public class DocumentService {
 
     private final EmbeddingModel model;
     private final DocumentReaderFactory documentReaderFactory;
-    private final TokenCountEstimator tokenCountEstimator;
+    private final DocumentChunker documentChunker;
+    private final ChunkBatchingStrategy batchingStrategy;
+    private final EmbeddingBatchProperties batchProperties;
+    private final PipelineMetrics metrics;
+    private final ExecutorService embeddingExecutor;
+    private final ExecutorService parseExecutor;
+    private final Semaphore documentPermits;
+    private final Semaphore batchPermits;
 
 
     public DocumentService(EmbeddingModel model,
-                           DocumentReaderFactory documentReaderFactory, TokenCountEstimator tokenCountEstimator) {
+                           DocumentReaderFactory documentReaderFactory, DocumentChunker documentChunker,
+                           ChunkBatchingStrategy batchingStrategy,
+                           EmbeddingBatchProperties batchProperties,
+                           PipelineProperties pipelineProperties,
+                           PipelineMetrics metrics,
+                           @Qualifier("embeddingExecutor") ExecutorService embeddingExecutor,
+                           @Qualifier("parseExecutor") ExecutorService parseExecutor) {
         this.model = model;
         this.documentReaderFactory = documentReaderFactory;
-        this.tokenCountEstimator = tokenCountEstimator;
+        this.documentChunker = documentChunker;
+        this.batchingStrategy = batchingStrategy;
+        this.batchProperties = batchProperties;
+        this.metrics = metrics;
+        this.embeddingExecutor = embeddingExecutor;
+        this.parseExecutor = parseExecutor;
+        this.documentPermits = new Semaphore(Math.max(1, pipelineProperties.embedConcurrency()));
+        this.batchPermits = new Semaphore(Math.max(1, batchProperties.concurrency()));
     }
 
     /**
@@ -49,11 +84,44 @@ public class DocumentService {
             }
 
             return response.getResults().getFirst().getOutput();
+        } catch (EmbeddingServiceException ex) {
+            throw ex;
         } catch (Exception ex) {
             throw new EmbeddingServiceException("Error generating embedding: " + ex.getMessage(), ex);
         }
     }
 
+    /**
+     * Generates one embedding per input text, in input order.
+     * The list is split into sub-batches by the {@link ChunkBatchingStrategy} and the
+     * sub-batches are sent to the model concurrently, at most as many at a time as the batch
+     * concurrency allows across all requests.
+     *
+     * @param texts list of text strings
+     * @return list of embedding vectors (one per text)
+     */
+    public List<float[]> generateEmbeddings(List<String> texts) {
+        List<List<String>> batches = batchingStrategy.batchTexts(texts);
+        List<CompletableFuture<List<float[]>>> futures = batches.stream()
+                .map(batch -> CompletableFuture.supplyAsync(() -> embedBatch(batch), embeddingExecutor))
+                .toList();
+
+        try {
+            List<float[]> vectors = new ArrayList<>(texts.size());
+            for (CompletableFuture<List<float[]>> future : futures) {
+                vectors.addAll(future.join());
+            }
+            return vectors;
+        } catch (CompletionException ex) {
+            futures.forEach(f -> f.cancel(true));
+            Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+            if (cause instanceof EmbeddingServiceException embeddingEx) {
+                throw embeddingEx;
+            }
+            throw new EmbeddingServiceException("Error generating embeddings: " + cause.getMessage(), cause);
+        }
+    }
+
     /**
      * Generates embeddings from a single document of any supported type.
      *
@@ -61,58 +129,241 @@ public class DocumentService {
      * @return list of embedding vectors (one per document chunk)
      */
     public List<float[]> generateEmbeddingsFromDocument(Resource resource) {
+        return generateEmbeddingsFromDocument(new TypedResource(resource, FileTypeDetector.detect(resource)));
+    }
+
+    /**
+     * Generates embeddings from a single document whose file type is already known.
+     *
+     * @param resource the document resource with its detected type
+     * @return list of embedding vectors (one per document chunk)
+     */
+    public List<float[]> generateEmbeddingsFromDocument(TypedResource resource) {
         try {
-            var reader = documentReaderFactory.getReader(resource);
-            List<Document> documents = reader.read(resource);
+            List<Document> documents = readDocuments(resource);
+            inspectTokenCounts(resource, documents);
+            return embedDocuments(documents);
 
-            if (documents.isEmpty()) {
-                throw new EmbeddingServiceException(
-                        "Could not extract text from the document: " + resource.getFilename());
-            }
+        } catch (EmbeddingServiceException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new EmbeddingServiceException(
+                    "Error generating document embeddings: " + ex.getMessage(), ex);
+        }
+    }
 
-            // Calculate accurate token counts using Spring AI's TokenCountEstimator
-            int totalTokens = 0;
-            int maxChunkTokens = 0;
-            for (Document doc : documents) {
-                int chunkTokens = tokenCountEstimator.estimate(doc.getText());
-                totalTokens += chunkTokens;
-                maxChunkTokens = Math.max(maxChunkTokens, chunkTokens);
+    /**
+     * Generates embeddings from multiple documents of any supported type.
+     * Files go through a pipeline: parsing runs on the CPU-bound parse pool, token counting
+     * follows on the same pool, and embedding runs on virtual threads with bounded
+     * concurrency against the model. Files are processed concurrently, so the total time
+     * is close to that of the slowest file.
+     *
+     * @param resources list of document resources with their detected types
+     * @return list of embedding lists (one list per document, in input order)
+     */
+    public List<List<float[]>> generateEmbeddingsFromDocuments(List<TypedResource> resources) {
+        List<CompletableFuture<List<float[]>>> futures = resources.stream()
+                .map(resource -> CompletableFuture
+                        .supplyAsync(() -> readDocuments(resource), parseExecutor)
+                        .thenApplyAsync(documents -> {
+                            inspectTokenCounts(resource, documents);
+                            return documents;
+                        }, parseExecutor)
+                        .thenApplyAsync(documents -> withPermit(documentPermits, () -> embedDocuments(documents)),
+                                embeddingExecutor))
+                .toList();
+
+        try {
+            return futures.stream()
+                    .map(CompletableFuture::join)
+                    .toList();
+        } catch (CompletionException ex) {
+            futures.forEach(f -> f.cancel(true));
+            Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+            if (cause instanceof EmbeddingServiceException embeddingEx) {
+                throw embeddingEx;
             }
+            throw new EmbeddingServiceException(
+                    "Error generating document embeddings: " + cause.getMessage(), cause);
+        }
+    }
 
-            String filename = resource.getFilename() != null ? resource.getFilename() : "unknown";
-            log.info("Document: {} | Chunks: {} | Total tokens: {} | Max chunk tokens: {} | Context limit: 8192",
-                    filename, documents.size(), totalTokens, maxChunkTokens);
+    /**
+     * Streams embeddings of multiple documents to a listener, one token-sized batch of
+     * chunks at a time. Documents are read as streams, so embedding of the first pages of a
+     * large PDF starts while later pages are still being extracted, and the next document is
+     * opened in the background while the current one is embedded. The listener runs on the
+     * calling thread, which gives natural flow control: a slow consumer delays the next model
+     * call instead of letting results pile up.
+     *
+     * @param resources list of document resources with their detected types
+     * @param listener  receives the embedded chunks in document and chunk order
+     * @throws IOException if the listener fails to write; remaining documents are skipped
+     */
+    public void streamEmbeddingsFromDocuments(List<TypedResource> resources, EmbeddingStreamListener listener)
+            throws IOException {
+        CompletableFuture<Stream<Document>> next = resources.isEmpty() ? null : openAsync(resources.getFirst());
+
+        try {
+            for (int i = 0; i < resources.size(); i++) {
+                TypedResource resource = resources.get(i);
+                CompletableFuture<Stream<Document>> current = next;
+                next = i + 1 < resources.size() ? openAsync(resources.get(i + 1)) : null;
 
-            if (maxChunkTokens > 8192) {
-                log.warn("WARNING: Document '{}' has chunk with {} tokens, exceeding context limit of 8192. May cause EOF errors.", filename, maxChunkTokens);
+                Stream<Document> pages;
+                try {
+                    pages = current.join();
+                } catch (CompletionException ex) {
+                    listener.failed(resource, unwrap(ex));
+                    continue;
+                }
+
+                try (pages) {
+                    int chunks = streamDocument(resource, pages, listener);
+                    if (chunks == 0) {
+                        listener.failed(resource, new EmbeddingServiceException(
+                                "Could not extract text from the document: " + resource.filename()));
+                    }
+                } catch (IOException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    listener.failed(resource, ex);
+                }
             }
-            if (totalTokens > 8192 && maxChunkTokens <= 8192) {
-                log.info("INFO: Document '{}' has total {} tokens. Batching strategy will split into multiple requests.", filename, totalTokens);
+        } finally {
+            if (next != null) {
+                next.cancel(true);
+                next.thenAccept(Stream::close);
             }
+        }
+    }
 
-            var embeddingOptions = EmbeddingOptionsBuilder.builder().build();
-            var batchingStrategy = new TokenCountBatchingStrategy();
-
-            return model.embed(documents, embeddingOptions, batchingStrategy);
+    private int streamDocument(TypedResource resource, Stream<Document> pages, EmbeddingStreamListener listener)
+            throws IOException {
+        ChunkBatchingStrategy.Packer<Document> packer = batchingStrategy.packer();
+        int emitted = 0;
+        int chunkCount = 0;
 
-        } catch (EmbeddingServiceException ex) {
-            throw ex;
-        } catch (Exception ex) {
-            throw new EmbeddingServiceException(
-                    "Error generating document embeddings: " + ex.getMessage(), ex);
+        Iterator<Document> iterator = pages.iterator();
+        while (iterator.hasNext()) {
+            List<Document> chunks = documentChunker.chunk(iterator.next(), chunkCount);
+            chunkCount += chunks.size();
+            for (Document chunk : chunks) {
+                int tokens = batchingStrategy.tokenCount(chunk);
+                metrics.recordChunkTokens(tokens);
+                List<Document> batch = packer.add(chunk, tokens);
+                if (!batch.isEmpty()) {
+                    emitBatch(resource, emitted, batch, listener);
+                    emitted += batch.size();
+                }
+            }
+        }
+        List<Document> last = packer.flush();
+        if (!last.isEmpty()) {
+            emitBatch(resource, emitted, last, listener);
+            emitted += last.size();
         }
+        metrics.recordDocument(emitted);
+        return emitted;
+    }
+
+    private void emitBatch(TypedResource resource, int firstIndex, List<Document> batch,
+                           EmbeddingStreamListener listener) throws IOException {
+        List<String> texts = batch.stream().map(Document::getText).toList();
+        List<float[]> vectors = withPermit(documentPermits, () -> model.embed(texts));
+        listener.embedded(resource, firstIndex, batch, vectors);
+    }
+
+    private CompletableFuture<Stream<Document>> openAsync(TypedResource resource) {
+        // Covers the whole read for readers that parse eagerly, the opening for lazy ones
+        return CompletableFuture.supplyAsync(() -> metrics.timeParse(resource.type().extension(),
+                () -> documentReaderFactory.getReader(resource.type()).stream(resource.resource(), resource.type())),
+                parseExecutor);
+    }
+
+    private static Exception unwrap(CompletionException ex) {
+        return ex.getCause() instanceof Exception cause ? cause : ex;
     }
 
     /**
-     * Generates embeddings from multiple documents of any supported type.
+     * Reads a document of any supported type and splits it into token-budgeted chunks.
      *
-     * @param resources list of document resources
-     * @return list of embedding lists (one list per document)
+     * @param resource the document resource with its detected type
+     * @return the chunks, or an empty list if no text could be extracted
      */
-    public List<List<float[]>> generateEmbeddingsFromDocuments(List<Resource> resources) {
-        return resources.stream()
-                .map(this::generateEmbeddingsFromDocument)
-                .toList();
+    public List<Document> readChunks(TypedResource resource) {
+        var reader = documentReaderFactory.getReader(resource.type());
+        List<Document> pages = metrics.timeParse(resource.type().extension(),
+                () -> reader.read(resource.resource(), resource.type()));
+        List<Document> chunks = documentChunker.chunk(pages);
+        metrics.recordDocument(chunks.size());
+        return chunks;
+    }
+
+    private List<Document> readDocuments(TypedResource resource) {
+        List<Document> documents = readChunks(resource);
+
+        if (documents.isEmpty()) {
+            throw new EmbeddingServiceException(
+                    "Could not extract text from the document: " + resource.filename());
+        }
+        return documents;
+    }
+
+    private void inspectTokenCounts(TypedResource resource, List<Document> documents) {
+        // Token counts were computed by the chunker and travel with the chunks
+        int totalTokens = 0;
+        int maxChunkTokens = 0;
+        for (Document doc : documents) {
+            int chunkTokens = batchingStrategy.tokenCount(doc);
+            metrics.recordChunkTokens(chunkTokens);
+            totalTokens += chunkTokens;
+            maxChunkTokens = Math.max(maxChunkTokens, chunkTokens);
+        }
+
+        String filename = resource.filename();
+        int contextLimit = batchingStrategy.contextTokens();
+        log.info("Document: {} | Chunks: {} | Total tokens: {} | Max chunk tokens: {} | Context limit: {}",
+                filename, documents.size(), totalTokens, maxChunkTokens, contextLimit);
+
+        if (maxChunkTokens > contextLimit) {
+            log.warn("WARNING: Document '{}' has chunk with {} tokens, exceeding context limit of {}. May cause EOF errors.", filename, maxChunkTokens, contextLimit);
+        }
+        if (totalTokens > batchProperties.maxTokens()) {
+            log.info("INFO: Document '{}' has total {} tokens. Batching strategy will split into multiple requests.", filename, totalTokens);
+        }
+    }
+
+    private List<float[]> embedDocuments(List<Document> documents) {
+        return batchingStrategy.embed(model, documents);
+    }
+
+    private static <T> T withPermit(Semaphore permits, Supplier<T> task) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EmbeddingServiceException("Interrupted while waiting for the embedding model", e);
+        }
+        try {
+            return task.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private List<float[]> embedBatch(List<String> batch) {
+        return withPermit(batchPermits, () -> {
+            EmbeddingResponse response = model.embedForResponse(batch);
+            if (response.getResults().size() != batch.size()) {
+                throw new EmbeddingServiceException("Failed to generate embeddings: expected "
+                        + batch.size() + " vectors but got " + response.getResults().size());
+            }
+            return response.getResults().stream()
+                    .map(Embedding::getOutput)
+                    .toList();
+        });
     }
 
 }
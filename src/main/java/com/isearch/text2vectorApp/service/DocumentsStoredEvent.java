@@ -0,0 +1,10 @@
+package com.isearch.text2vectorApp.service;
+
+/**
+ * Published after documents were written to or removed from the vector store,
+ * so that caches of search results can be invalidated.
+ *
+ * @param chunks number of chunks written or removed
+ */
+public record DocumentsStoredEvent(int chunks) {
+}
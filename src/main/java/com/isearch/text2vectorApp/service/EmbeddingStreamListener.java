@@ -0,0 +1,36 @@
+package com.isearch.text2vectorApp.service;
+
+import com.isearch.text2vectorApp.util.TypedResource;
+import org.springframework.ai.document.Document;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives embedded chunks while documents are streamed through
+ * {@link DocumentService#streamEmbeddingsFromDocuments}. Calls are made from a single
+ * thread, in document and chunk order. A blocking implementation slows the pipeline
+ * down to its own pace; an IOException aborts the remaining documents.
+ */
+public interface EmbeddingStreamListener {
+
+    /**
+     * Called for each batch of chunks as soon as it has been embedded.
+     *
+     * @param resource   the document the chunks belong to
+     * @param firstIndex index of the first chunk of the batch within the document
+     * @param chunks     the chunks
+     * @param vectors    one vector per chunk
+     */
+    void embedded(TypedResource resource, int firstIndex, List<Document> chunks, List<float[]> vectors)
+            throws IOException;
+
+    /**
+     * Called when a document could not be read or embedded. Streaming continues with the
+     * next document.
+     *
+     * @param resource the document
+     * @param error    the cause
+     */
+    void failed(TypedResource resource, Exception error) throws IOException;
+}
@@ -0,0 +1,90 @@
+package com.isearch.text2vectorApp.service;
+
+import com.isearch.text2vectorApp.model.IngestionJobStatus;
+import com.isearch.text2vectorApp.model.StoredDocument;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Mutable state of an asynchronous ingestion job. Counters are updated by the
+ * worker thread and read by status requests.
+ */
+public class IngestionJob implements IngestionListener {
+
+    public enum State {QUEUED, RUNNING, COMPLETED, FAILED}
+
+    private final String id = UUID.randomUUID().toString();
+    private final int files;
+    private final Instant submittedAt = Instant.now();
+
+    private final AtomicInteger chunksParsed = new AtomicInteger();
+    private final AtomicInteger chunksEmbedded = new AtomicInteger();
+    private final AtomicInteger chunksStored = new AtomicInteger();
+    private final List<StoredDocument> documents = new CopyOnWriteArrayList<>();
+    private final List<String> errors = new CopyOnWriteArrayList<>();
+
+    private volatile State state = State.QUEUED;
+    private volatile Instant finishedAt;
+
+    IngestionJob(int files) {
+        this.files = files;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isFinished() {
+        return state == State.COMPLETED || state == State.FAILED;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    void start() {
+        state = State.RUNNING;
+    }
+
+    void documentStored(StoredDocument document) {
+        documents.add(document);
+    }
+
+    void documentFailed(String filename, String message) {
+        errors.add(filename + ": " + message);
+    }
+
+    void finish() {
+        state = errors.isEmpty() ? State.COMPLETED : State.FAILED;
+        finishedAt = Instant.now();
+    }
+
+    @Override
+    public void parsed(int chunks) {
+        chunksParsed.addAndGet(chunks);
+    }
+
+    @Override
+    public void embedded(int chunks) {
+        chunksEmbedded.addAndGet(chunks);
+    }
+
+    @Override
+    public void stored(int chunks) {
+        chunksStored.addAndGet(chunks);
+    }
+
+    public IngestionJobStatus toStatus() {
+        return new IngestionJobStatus(id, state.name(), files, documents.size(),
+                chunksParsed.get(), chunksEmbedded.get(), chunksStored.get(),
+                List.copyOf(documents), List.copyOf(errors), submittedAt, finishedAt);
+    }
+}
@@ -0,0 +1,170 @@
+package com.isearch.text2vectorApp.service;
+
+import com.isearch.text2vectorApp.config.IngestionProperties;
+import com.isearch.text2vectorApp.exception.IngestionQueueFullException;
+import com.isearch.text2vectorApp.model.StoredDocument;
+import com.isearch.text2vectorApp.util.ResourceUtils;
+import com.isearch.text2vectorApp.util.TypedResource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs document ingestion as background jobs so that storing large documents is not
+ * tied to the lifetime of an HTTP request.
+ * <p>
+ * Jobs go through a bounded work queue served by a fixed number of workers; when the
+ * queue is full, submissions are rejected. The job registry is bounded as well:
+ * finished jobs are evicted after the retention period, or earlier (oldest first)
+ * when the registry is full.
+ */
+@Service
+@Slf4j
+public class IngestionJobService {
+
+    private final IngestionService ingestionService;
+    private final IngestionProperties properties;
+    private final ThreadPoolExecutor workers;
+    private final Map<String, IngestionJob> jobs = new ConcurrentHashMap<>();
+
+    public IngestionJobService(IngestionService ingestionService, IngestionProperties properties) {
+        this.ingestionService = ingestionService;
+        this.properties = properties;
+        int threads = Math.max(1, properties.workers());
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.queueCapacity())),
+                Thread.ofPlatform().name("ingest-", 0).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Submits documents for ingestion. Ownership of the resources passes to the job,
+     * which releases them when done.
+     *
+     * @param resources the documents to store
+     * @return the queued job
+     * @throws IngestionQueueFullException if the work queue or the job registry is full
+     */
+    public IngestionJob submit(List<TypedResource> resources) {
+        evictFinishedJobs();
+        if (jobs.size() >= properties.maxJobs()) {
+            ResourceUtils.releaseAll(resources);
+            throw new IngestionQueueFullException("Too many ingestion jobs, try again later");
+        }
+
+        IngestionJob job = new IngestionJob(resources.size());
+        jobs.put(job.getId(), job);
+        try {
+            workers.execute(new JobTask(job, resources));
+        } catch (RejectedExecutionException ex) {
+            jobs.remove(job.getId());
+            ResourceUtils.releaseAll(resources);
+            throw new IngestionQueueFullException("Ingestion queue is full, try again later");
+        }
+        log.info("Queued ingestion job {} with {} file(s)", job.getId(), resources.size());
+        return job;
+    }
+
+    /**
+     * Looks up a job by id.
+     *
+     * @param jobId the job id
+     * @return the job, if it is still in the registry
+     */
+    public Optional<IngestionJob> find(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        List<Runnable> queued = workers.shutdownNow();
+        for (Runnable task : queued) {
+            if (task instanceof JobTask jobTask) {
+                jobTask.cancel();
+            }
+        }
+        if (!queued.isEmpty()) {
+            log.info("Cancelled {} queued ingestion job(s) at shutdown", queued.size());
+        }
+    }
+
+    /**
+     * A queued job; kept as a type so that shutdown can tell which jobs never ran.
+     */
+    private final class JobTask implements Runnable {
+
+        private final IngestionJob job;
+        private final List<TypedResource> resources;
+
+        JobTask(IngestionJob job, List<TypedResource> resources) {
+            this.job = job;
+            this.resources = resources;
+        }
+
+        @Override
+        public void run() {
+            IngestionJobService.this.run(job, resources);
+        }
+
+        /**
+         * Fails a job that never started and releases its spooled uploads, which it still owns.
+         */
+        void cancel() {
+            for (TypedResource resource : resources) {
+                job.documentFailed(resource.filename(), "The server shut down before the job started");
+            }
+            ResourceUtils.releaseAll(resources);
+            job.finish();
+        }
+    }
+
+    private void run(IngestionJob job, List<TypedResource> resources) {
+        job.start();
+        try {
+            for (TypedResource resource : resources) {
+                try {
+                    StoredDocument stored = ingestionService.store(resource, job);
+                    if (stored.chunks() == 0) {
+                        job.documentFailed(resource.filename(), "Could not extract text from the document");
+                    } else {
+                        job.documentStored(stored);
+                    }
+                } catch (Exception ex) {
+                    log.warn("Ingestion job {} failed for {}: {}", job.getId(), resource.filename(), ex.getMessage());
+                    job.documentFailed(resource.filename(), ex.getMessage());
+                } finally {
+                    ResourceUtils.release(resource);
+                }
+            }
+        } finally {
+            job.finish();
+            log.info("Ingestion job {} finished with state {}", job.getId(), job.getState());
+        }
+    }
+
+    private void evictFinishedJobs() {
+        Instant expiry = Instant.now().minus(properties.retention());
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(expiry));
+
+        int excess = jobs.size() - properties.maxJobs() + 1;
+        if (excess > 0) {
+            jobs.values().stream()
+                    .filter(IngestionJob::isFinished)
+                    .sorted(Comparator.comparing(IngestionJob::getFinishedAt))
+                    .limit(excess)
+                    .toList()
+                    .forEach(job -> jobs.remove(job.getId()));
+        }
+    }
+}
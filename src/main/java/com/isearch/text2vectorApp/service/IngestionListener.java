@@ -0,0 +1,19 @@
+package com.isearch.text2vectorApp.service;
+
+/**
+ * Receives progress updates while a document is stored in the vector store.
+ */
+public interface IngestionListener {
+
+    IngestionListener NONE = new IngestionListener() {
+    };
+
+    default void parsed(int chunks) {
+    }
+
+    default void embedded(int chunks) {
+    }
+
+    default void stored(int chunks) {
+    }
+}
@@ -0,0 +1,296 @@
+package com.isearch.text2vectorApp.service;
+
+import com.isearch.text2vectorApp.config.IngestionProperties;
+import com.isearch.text2vectorApp.embedding.ChunkBatchingStrategy;
+import com.isearch.text2vectorApp.exception.EmbeddingServiceException;
+import com.isearch.text2vectorApp.metrics.PipelineMetrics;
+import com.isearch.text2vectorApp.model.StoredDocument;
+import com.isearch.text2vectorApp.repository.StoredChunkRepository;
+import com.isearch.text2vectorApp.repository.VectorStoreBulkWriter;
+import com.isearch.text2vectorApp.util.TypedResource;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Service for storing documents in the vector database.
+ * Used by the synchronous store endpoints and by asynchronous ingestion jobs.
+ * <p>
+ * With PGVector, chunks are embedded here in token-sized batches and written through
+ * the {@link VectorStoreBulkWriter}; embedding of the next slice overlaps with writing
+ * of the previous one. Other vector stores fall back to {@link VectorStore#add(List)}.
+ * <p>
+ * Chunk ids are derived from the source filename and a hash of the chunk content, so
+ * re-uploading a document is idempotent: only new chunks are embedded and written,
+ * chunks that disappeared are deleted, and unchanged chunks just get their metadata
+ * refreshed. Nothing is deleted before the new chunks are written.
+ */
+@Service
+@Slf4j
+public class IngestionService {
+
+    public static final String CONTENT_HASH = "content_hash";
+    public static final String INGESTED_AT = "ingested_at";
+
+    private final DocumentService documentService;
+    private final VectorStore vectorStore;
+    private final EmbeddingModel embeddingModel;
+    private final VectorStoreBulkWriter bulkWriter;
+    private final StoredChunkRepository chunkRepository;
+    private final IngestionProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PipelineMetrics metrics;
+    private final ChunkBatchingStrategy batchingStrategy;
+
+    public IngestionService(DocumentService documentService, VectorStore vectorStore, EmbeddingModel embeddingModel,
+                            VectorStoreBulkWriter bulkWriter, StoredChunkRepository chunkRepository,
+                            IngestionProperties properties, ApplicationEventPublisher eventPublisher,
+                            ChunkBatchingStrategy batchingStrategy, PipelineMetrics metrics) {
+        this.documentService = documentService;
+        this.vectorStore = vectorStore;
+        this.embeddingModel = embeddingModel;
+        this.bulkWriter = bulkWriter;
+        this.chunkRepository = chunkRepository;
+        this.properties = properties;
+        this.eventPublisher = eventPublisher;
+        this.batchingStrategy = batchingStrategy;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Reads, chunks, embeds and stores a document. Storing a document again only embeds
+     * chunks whose content changed and deletes chunks that no longer exist.
+     *
+     * @param resource the document resource with its detected type
+     * @param listener receives progress updates
+     * @return the outcome; zero chunks means no text could be extracted
+     */
+    public StoredDocument store(TypedResource resource, IngestionListener listener) {
+        List<Document> documents = prepare(resource);
+        listener.parsed(documents.size());
+        if (documents.isEmpty()) {
+            return StoredDocument.stored(resource.filename(), resource.type().extension(), 0);
+        }
+
+        ChangeSet changes = diff(resource.filename(), documents);
+        // Chunks that are already stored count as done right away
+        listener.embedded(changes.unchanged().size());
+        listener.stored(changes.unchanged().size());
+
+        apply(changes, listener);
+
+        log.info("Stored document: {} | Type: {} | Chunks: {} | Added: {} | Removed: {}",
+                resource.filename(), resource.type().extension(), documents.size(),
+                changes.added().size(), changes.removed().size());
+        return StoredDocument.stored(resource.filename(), resource.type().extension(), documents.size(),
+                changes.added().size(), changes.removed().size());
+    }
+
+    /**
+     * Stores several documents in one go. Changed chunks of all files are embedded together
+     * in token-sized batches and written in bulk, so small files share model calls and
+     * database round-trips. If the combined store fails, each file is stored on its own, so
+     * one bad file does not fail the others.
+     *
+     * @param resources the documents with their detected types
+     * @return one outcome per document, in input order
+     */
+    public List<StoredDocument> storeAll(List<TypedResource> resources) {
+        List<StoredDocument> outcomes = new ArrayList<>(resources.size());
+        List<ChangeSet> changeSets = new ArrayList<>();
+        List<Integer> prepared = new ArrayList<>();
+
+        for (int i = 0; i < resources.size(); i++) {
+            TypedResource resource = resources.get(i);
+            try {
+                List<Document> documents = prepare(resource);
+                if (documents.isEmpty()) {
+                    outcomes.add(StoredDocument.failed(resource.filename(), resource.type().extension(),
+                            "Could not extract text from the document"));
+                } else {
+                    ChangeSet changes = diff(resource.filename(), documents);
+                    outcomes.add(StoredDocument.stored(resource.filename(), resource.type().extension(),
+                            documents.size(), changes.added().size(), changes.removed().size()));
+                    changeSets.add(changes);
+                    prepared.add(i);
+                }
+            } catch (Exception ex) {
+                outcomes.add(StoredDocument.failed(resource.filename(), resource.type().extension(), ex.getMessage()));
+            }
+        }
+
+        ChangeSet combined = ChangeSet.combine(changeSets);
+        try {
+            apply(combined, IngestionListener.NONE);
+        } catch (Exception ex) {
+            if (prepared.size() == 1) {
+                markFailed(outcomes, prepared.getFirst(), ex);
+            } else {
+                // Ids are derived from the content, so chunks written before the failure are not duplicated
+                log.warn("Bulk store of {} chunks failed, storing {} documents individually: {}",
+                        combined.added().size(), prepared.size(), ex.getMessage());
+                for (int j = 0; j < prepared.size(); j++) {
+                    try {
+                        apply(changeSets.get(j), IngestionListener.NONE);
+                    } catch (Exception single) {
+                        markFailed(outcomes, prepared.get(j), single);
+                    }
+                }
+            }
+        }
+
+        log.info("Stored {} document(s) | Added: {} | Removed: {} | Unchanged: {}", prepared.size(),
+                combined.added().size(), combined.removed().size(), combined.unchanged().size());
+        return outcomes;
+    }
+
+    private static void markFailed(List<StoredDocument> outcomes, int i, Exception ex) {
+        StoredDocument outcome = outcomes.get(i);
+        outcomes.set(i, StoredDocument.failed(outcome.filename(), outcome.fileType(), ex.getMessage()));
+    }
+
+    private List<Document> prepare(TypedResource resource) {
+        // Read documents from file and split them into chunks
+        List<Document> chunks = documentService.readChunks(resource);
+        String source = resource.filename();
+
+        // Ids are derived from source and content, so an unchanged chunk keeps its id across uploads.
+        // Repeated content within a document is told apart by its occurrence number.
+        long ingestedAt = System.currentTimeMillis();
+        Map<String, Integer> occurrences = new HashMap<>();
+        List<Document> documents = new ArrayList<>(chunks.size());
+        for (Document chunk : chunks) {
+            String hash = sha256(chunk.getText());
+            int occurrence = occurrences.merge(hash, 1, Integer::sum) - 1;
+            String id = UUID.nameUUIDFromBytes((source + "\n" + hash + "\n" + occurrence)
+                    .getBytes(StandardCharsets.UTF_8)).toString();
+
+            // Add metadata to documents
+            Map<String, Object> metadata = new HashMap<>(chunk.getMetadata());
+            metadata.put("source", source);
+            metadata.put("fileType", resource.type().extension());
+            metadata.put(CONTENT_HASH, hash);
+            metadata.put(INGESTED_AT, ingestedAt);
+            documents.add(Document.builder().id(id).text(chunk.getText()).metadata(metadata).build());
+        }
+        return documents;
+    }
+
+    private ChangeSet diff(String source, List<Document> documents) {
+        if (!chunkRepository.isAvailable()) {
+            log.warn("Vector store cannot look up stored chunks; earlier chunks of {} are kept", source);
+            return new ChangeSet(documents, List.of(), List.of());
+        }
+
+        Set<String> stored = chunkRepository.findIdsBySource(source);
+        Set<String> current = new HashSet<>();
+        List<Document> added = new ArrayList<>();
+        List<Document> unchanged = new ArrayList<>();
+        for (Document document : documents) {
+            current.add(document.getId());
+            (stored.contains(document.getId()) ? unchanged : added).add(document);
+        }
+        List<String> removed = stored.stream()
+                .filter(id -> !current.contains(id))
+                .toList();
+        return new ChangeSet(added, unchanged, removed);
+    }
+
+    private void apply(ChangeSet changes, IngestionListener listener) {
+        try {
+            writeSlices(changes.added(), listener);
+            // Only once the new chunks are written: positions (chunk_index, page) of unchanged
+            // chunks may have moved, and chunks that disappeared are deleted. If this step fails,
+            // searches see old and new chunks side by side until the document is stored again;
+            // ids are derived from the content, so repeating the upload converges.
+            if (chunkRepository.isAvailable()) {
+                chunkRepository.refresh(changes.unchanged(), changes.removed());
+            }
+        } finally {
+            // Also after partial failures: some slices may already be visible to searches
+            if (!changes.added().isEmpty() || !changes.unchanged().isEmpty() || !changes.removed().isEmpty()) {
+                eventPublisher.publishEvent(new DocumentsStoredEvent(changes.added().size()));
+            }
+        }
+    }
+
+    private void writeSlices(List<Document> documents, IngestionListener listener) {
+        int sliceSize = Math.max(1, properties.storeBatchSize());
+
+        if (!bulkWriter.isAvailable()) {
+            // Each add call embeds and writes its slice
+            for (int from = 0; from < documents.size(); from += sliceSize) {
+                List<Document> slice = documents.subList(from, Math.min(documents.size(), from + sliceSize));
+                metrics.timeStoreWrite("add", () -> {
+                    vectorStore.add(slice);
+                    return null;
+                });
+                listener.embedded(slice.size());
+                listener.stored(slice.size());
+            }
+            return;
+        }
+
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        try {
+            for (int from = 0; from < documents.size(); from += sliceSize) {
+                List<Document> slice = documents.subList(from, Math.min(documents.size(), from + sliceSize));
+                List<float[]> embeddings = batchingStrategy.embed(embeddingModel, slice);
+                listener.embedded(slice.size());
+                Timer.Sample write = metrics.startStoreWrite();
+                writes.add(bulkWriter.write(slice, embeddings)
+                        .whenComplete((stored, ex) -> metrics.stopStoreWrite(write, "bulk"))
+                        .thenAccept(listener::stored));
+            }
+            CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+            throw new EmbeddingServiceException("Error writing to the vector store: " + cause.getMessage(), cause);
+        }
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Chunks of one or more documents split by what has to happen to them.
+     */
+    private record ChangeSet(List<Document> added, List<Document> unchanged, List<String> removed) {
+
+        static ChangeSet combine(List<ChangeSet> changeSets) {
+            List<Document> added = new ArrayList<>();
+            List<Document> unchanged = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            for (ChangeSet changes : changeSets) {
+                added.addAll(changes.added());
+                unchanged.addAll(changes.unchanged());
+                removed.addAll(changes.removed());
+            }
+            return new ChangeSet(added, unchanged, removed);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.isearch.text2vectorApp.service;
+
+import com.isearch.text2vectorApp.config.HnswProperties;
+import com.isearch.text2vectorApp.config.QuantizationProperties;
+import com.isearch.text2vectorApp.repository.VectorSearchRepository;
+import com.isearch.text2vectorApp.vectorstore.HnswVectorStore;
+import com.isearch.text2vectorApp.vectorstore.QuantizationReport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Runs {@link QuantizationReport} on vectors sampled from the configured vector store, so
+ * the recall/latency trade-off of each quantization mode is measured on our own data.
+ * A part of the sample is held out as queries; the rest is indexed.
+ */
+@Service
+@Slf4j
+public class QuantizationReportService {
+
+    private final VectorStore vectorStore;
+    private final VectorSearchRepository vectorSearchRepository;
+    private final HnswProperties hnswProperties;
+    private final QuantizationProperties quantizationProperties;
+
+    public QuantizationReportService(VectorStore vectorStore, VectorSearchRepository vectorSearchRepository,
+                                     HnswProperties hnswProperties, QuantizationProperties quantizationProperties) {
+        this.vectorStore = vectorStore;
+        this.vectorSearchRepository = vectorSearchRepository;
+        this.hnswProperties = hnswProperties;
+        this.quantizationProperties = quantizationProperties;
+    }
+
+    /**
+     * Samples stored vectors and measures every quantization mode on them.
+     *
+     * @param sampleSize number of stored vectors to index
+     * @param queries    number of further stored vectors to use as queries
+     * @param topK       results per query
+     * @return one row per mode and rerank setting
+     */
+    public List<QuantizationReport.Row> run(int sampleSize, int queries, int topK) {
+        if (sampleSize < 1 || queries < 1 || topK < 1) {
+            throw new IllegalArgumentException("sampleSize, queries and topK must be positive");
+        }
+        List<float[]> sample = sample(sampleSize + queries).stream().map(QuantizationReportService::normalize).toList();
+        if (sample.size() <= queries) {
+            throw new IllegalArgumentException("The vector store holds " + sample.size()
+                    + " vector(s); more than " + queries + " are needed");
+        }
+
+        long start = System.currentTimeMillis();
+        List<QuantizationReport.Row> rows = QuantizationReport.run(sample.subList(queries, sample.size()),
+                sample.subList(0, queries), topK, hnswProperties, quantizationProperties.rerankFactor());
+        log.info("Quantization report on {} vector(s) and {} quer(ies) took {} ms",
+                sample.size() - queries, queries, System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    private List<float[]> sample(int limit) {
+        if (vectorSearchRepository.isAvailable()) {
+            return vectorSearchRepository.sampleEmbeddings(limit);
+        }
+        if (vectorStore instanceof HnswVectorStore hnsw) {
+            return hnsw.sampleVectors(limit);
+        }
+        throw new IllegalArgumentException("The quantization report needs the PGVector or HNSW vector store");
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        float[] normalized = vector.clone();
+        if (norm > 0) {
+            for (int i = 0; i < vector.length; i++) {
+                normalized[i] = (float) (vector[i] / Math.sqrt(norm));
+            }
+        }
+        return normalized;
+    }
+}
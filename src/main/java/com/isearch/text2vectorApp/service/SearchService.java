@@ -0,0 +1,424 @@
+package com.isearch.text2vectorApp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.isearch.text2vectorApp.config.HybridSearchProperties;
+import com.isearch.text2vectorApp.config.SearchBatchProperties;
+import com.isearch.text2vectorApp.config.SearchCacheProperties;
+import com.isearch.text2vectorApp.exception.EmbeddingServiceException;
+import com.isearch.text2vectorApp.metrics.PipelineMetrics;
+import com.isearch.text2vectorApp.model.DocumentSearchRequest;
+import com.isearch.text2vectorApp.repository.KeywordSearchRepository;
+import com.isearch.text2vectorApp.repository.VectorSearchRepository;
+import com.isearch.text2vectorApp.util.PdfDocumentReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.Filter.ExpressionType;
+import org.springframework.ai.vectorstore.filter.FilterExpressionTextParser;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Service for similarity search in the vector store.
+ * <p>
+ * Uses a two-level cache: normalized query text maps to its vector, and
+ * (query vector, topK, threshold, filter) maps to the result list. Result lists expire
+ * after a TTL and are dropped whenever documents are stored.
+ * <p>
+ * Hybrid search combines the vector ranking with a full-text ranking from
+ * {@link KeywordSearchRepository} using reciprocal rank fusion.
+ * <p>
+ * With PGVector, vector search runs over JDBC with the cached query vector, so a query is
+ * embedded at most once. Batch search embeds all queries of a batch in one model call and
+ * then runs the searches concurrently, bounded by a share of the JDBC connection pool.
+ */
+@Service
+@Slf4j
+public class SearchService {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final FilterExpressionTextParser FILTER_PARSER = new FilterExpressionTextParser();
+
+    private final VectorStore vectorStore;
+    private final EmbeddingModel embeddingModel;
+    private final SearchCacheProperties properties;
+    private final KeywordSearchRepository keywordSearchRepository;
+    private final HybridSearchProperties hybridProperties;
+    private final VectorSearchRepository vectorSearchRepository;
+    private final SearchBatchProperties batchProperties;
+    private final ExecutorService searchExecutor;
+    private final PipelineMetrics metrics;
+    private final Semaphore batchPermits;
+    private final Cache<String, float[]> queryVectors;
+    private final Cache<ResultKey, List<Document>> results;
+    private final AtomicLong generation = new AtomicLong();
+
+    public SearchService(VectorStore vectorStore, EmbeddingModel embeddingModel, SearchCacheProperties properties,
+                         KeywordSearchRepository keywordSearchRepository, HybridSearchProperties hybridProperties,
+                         VectorSearchRepository vectorSearchRepository, SearchBatchProperties batchProperties,
+                         @Qualifier("embeddingExecutor") ExecutorService searchExecutor,
+                         @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize,
+                         PipelineMetrics metrics) {
+        this.vectorStore = vectorStore;
+        this.embeddingModel = embeddingModel;
+        this.properties = properties;
+        this.keywordSearchRepository = keywordSearchRepository;
+        this.hybridProperties = hybridProperties;
+        this.vectorSearchRepository = vectorSearchRepository;
+        this.batchProperties = batchProperties;
+        this.searchExecutor = searchExecutor;
+        this.metrics = metrics;
+        // Leave half of the pool to ingestion and single searches unless configured otherwise
+        this.batchPermits = new Semaphore(batchProperties.concurrency() > 0
+                ? batchProperties.concurrency()
+                : Math.max(1, connectionPoolSize / 2));
+        this.queryVectors = Caffeine.newBuilder()
+                .maximumSize(properties.maxQueries())
+                .recordStats()
+                .build();
+        this.results = Caffeine.newBuilder()
+                .maximumSize(properties.maxResults())
+                .expireAfterWrite(properties.resultTtl())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Searches for the documents most similar to a query.
+     *
+     * @param query the search query text
+     * @param topK  number of results to return
+     * @return similar documents with their content and metadata
+     */
+    public List<Document> search(String query, int topK) {
+        return search(query, topK, SearchRequest.SIMILARITY_THRESHOLD_ACCEPT_ALL, (Filter.Expression) null);
+    }
+
+    /**
+     * Searches with the options of a search request: metadata filters, threshold and
+     * optionally hybrid ranking.
+     *
+     * @param request the search request
+     * @return the best documents, best first
+     */
+    public List<Document> search(DocumentSearchRequest request) {
+        int topK = request.topK() != null ? request.topK() : 3;
+        double threshold = request.similarityThreshold() != null
+                ? request.similarityThreshold()
+                : SearchRequest.SIMILARITY_THRESHOLD_ACCEPT_ALL;
+        Filter.Expression filter = filterOf(request);
+
+        return Boolean.TRUE.equals(request.hybrid())
+                ? hybridSearch(request.query(), topK, threshold, filter)
+                : search(request.query(), topK, threshold, filter);
+    }
+
+    /**
+     * Runs many searches at once. All queries without a cached vector are embedded in one
+     * batched model call; the searches then run concurrently, at most as many at a time as
+     * the batch concurrency allows, across all batch requests.
+     *
+     * @param requests the searches to run
+     * @return the results of each search, in the order of the requests
+     */
+    public List<List<Document>> searchBatch(List<DocumentSearchRequest> requests) {
+        if (requests.size() > batchProperties.maxQueries()) {
+            throw new IllegalArgumentException("A batch may contain at most " + batchProperties.maxQueries()
+                    + " queries, got " + requests.size());
+        }
+
+        List<String> missing = requests.stream()
+                .map(request -> normalize(request.query()))
+                .distinct()
+                .filter(query -> queryVectors.getIfPresent(query) == null)
+                .toList();
+        if (!missing.isEmpty()) {
+            List<float[]> vectors = embeddingModel.embed(missing);
+            for (int i = 0; i < missing.size(); i++) {
+                queryVectors.put(missing.get(i), vectors.get(i));
+            }
+        }
+
+        List<CompletableFuture<List<Document>>> futures = requests.stream()
+                .map(request -> CompletableFuture.supplyAsync(() -> withBatchPermit(request), searchExecutor))
+                .toList();
+        try {
+            return futures.stream()
+                    .map(CompletableFuture::join)
+                    .toList();
+        } catch (CompletionException ex) {
+            futures.forEach(f -> f.cancel(true));
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private List<Document> withBatchPermit(DocumentSearchRequest request) {
+        try {
+            batchPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EmbeddingServiceException("Interrupted while waiting for a database connection", e);
+        }
+        try {
+            return search(request);
+        } finally {
+            batchPermits.release();
+        }
+    }
+
+    /**
+     * Searches for the documents most similar to a query.
+     *
+     * @param query               the search query text
+     * @param topK                number of results to return
+     * @param similarityThreshold minimum similarity of returned documents
+     * @param filterExpression    portable filter expression on metadata, or null
+     * @return similar documents with their content and metadata
+     */
+    public List<Document> search(String query, int topK, double similarityThreshold, String filterExpression) {
+        Filter.Expression filter = filterExpression != null && !filterExpression.isBlank()
+                ? parseFilter(filterExpression)
+                : null;
+        return search(query, topK, similarityThreshold, filter);
+    }
+
+    /**
+     * Searches for the documents most similar to a query.
+     *
+     * @param query               the search query text
+     * @param topK                number of results to return
+     * @param similarityThreshold minimum similarity of returned documents
+     * @param filter              filter on metadata, or null
+     * @return similar documents with their content and metadata
+     */
+    public List<Document> search(String query, int topK, double similarityThreshold, Filter.Expression filter) {
+        String normalized = normalize(query);
+        if (!properties.enabled()) {
+            return vectorSearch(normalized, topK, similarityThreshold, filter);
+        }
+
+        ResultKey key = resultKey(normalized, false, topK, similarityThreshold, filter);
+        return results.get(key, k -> List.copyOf(vectorSearch(normalized, topK, similarityThreshold, filter)));
+    }
+
+    /**
+     * Hybrid search: fuses the vector ranking with a PostgreSQL full-text ranking using
+     * reciprocal rank fusion, so exact keyword matches (names, codes, rare terms) rank well
+     * even when their embeddings are not the closest. The similarity threshold applies to
+     * the vector side only. Each result's score is its fused RRF score.
+     *
+     * @param query               the search query text
+     * @param topK                number of results to return
+     * @param similarityThreshold minimum similarity of results from the vector side
+     * @param filter              filter on metadata, applied to both sides, or null
+     * @return the best documents by fused rank
+     */
+    public List<Document> hybridSearch(String query, int topK, double similarityThreshold, Filter.Expression filter) {
+        if (!keywordSearchRepository.isAvailable()) {
+            throw new IllegalArgumentException("Hybrid search requires the PGVector store");
+        }
+
+        String normalized = normalize(query);
+        if (!properties.enabled()) {
+            return fuse(normalized, topK, similarityThreshold, filter);
+        }
+        ResultKey key = resultKey(normalized, true, topK, similarityThreshold, filter);
+        return results.get(key, k -> fuse(normalized, topK, similarityThreshold, filter));
+    }
+
+    private List<Document> fuse(String query, int topK, double similarityThreshold, Filter.Expression filter) {
+        int candidates = topK * Math.max(1, hybridProperties.candidateFactor());
+        // Not through the result cache: this already runs inside a computation of that cache
+        List<Document> vectorHits = vectorSearch(query, candidates, similarityThreshold, filter);
+        List<Document> keywordHits = metrics.timeSearch("keyword",
+                () -> keywordSearchRepository.search(query, candidates, filter));
+
+        // score(d) = sum over both rankings of 1 / (k + rank), rank starting at 1
+        Map<String, Double> scores = new HashMap<>();
+        Map<String, Document> documents = new LinkedHashMap<>();
+        for (List<Document> ranking : List.of(vectorHits, keywordHits)) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                Document document = ranking.get(rank);
+                scores.merge(document.getId(), 1.0 / (hybridProperties.rrfK() + rank + 1), Double::sum);
+                documents.putIfAbsent(document.getId(), document);
+            }
+        }
+
+        return documents.values().stream()
+                .sorted(Comparator.comparingDouble((Document document) -> scores.get(document.getId())).reversed())
+                .limit(topK)
+                .map(document -> Document.builder()
+                        .id(document.getId())
+                        .text(document.getText())
+                        .metadata(document.getMetadata())
+                        .score(scores.get(document.getId()))
+                        .build())
+                .toList();
+    }
+
+    private List<Document> vectorSearch(String normalized, int topK, double similarityThreshold,
+                                        Filter.Expression filter) {
+        if (vectorSearchRepository.isAvailable()) {
+            float[] vector = queryVector(normalized);
+            return metrics.timeSearch("jdbc",
+                    () -> vectorSearchRepository.search(vector, topK, similarityThreshold, filter));
+        }
+
+        SearchRequest.Builder request = SearchRequest.builder()
+                .query(normalized)
+                .topK(topK)
+                .similarityThreshold(similarityThreshold);
+        if (filter != null) {
+            request.filterExpression(filter);
+        }
+        // Includes embedding the query, which the vector store does itself
+        return metrics.timeSearch("vectorstore", () -> vectorStore.similaritySearch(request.build()));
+    }
+
+    private ResultKey resultKey(String normalized, boolean hybrid, int topK, double similarityThreshold,
+                                Filter.Expression filter) {
+        return new ResultKey(generation.get(), digest(queryVector(normalized)), hybrid, topK, similarityThreshold,
+                filter != null ? filter.toString() : "");
+    }
+
+    private float[] queryVector(String normalized) {
+        // Other vector stores embed the query themselves; the embedding cache serves that lookup
+        return queryVectors.get(normalized, q -> embeddingModel.embed(q));
+    }
+
+    /**
+     * Builds the metadata filter of a search request; null if it has no filters.
+     */
+    static Filter.Expression filterOf(DocumentSearchRequest request) {
+        List<Filter.Expression> conditions = new ArrayList<>();
+        if (request.source() != null) {
+            conditions.add(condition(ExpressionType.EQ, "source", request.source()));
+        }
+        if (request.fileType() != null) {
+            conditions.add(condition(ExpressionType.EQ, "fileType", request.fileType().toLowerCase(Locale.ROOT)));
+        }
+        if (request.pageFrom() != null) {
+            conditions.add(condition(ExpressionType.GTE, PdfDocumentReader.PAGE_NUMBER, request.pageFrom()));
+        }
+        if (request.pageTo() != null) {
+            conditions.add(condition(ExpressionType.LTE, PdfDocumentReader.PAGE_NUMBER, request.pageTo()));
+        }
+        if (request.ingestedAfter() != null) {
+            conditions.add(condition(ExpressionType.GTE, IngestionService.INGESTED_AT,
+                    request.ingestedAfter().toEpochMilli()));
+        }
+        if (request.ingestedBefore() != null) {
+            conditions.add(condition(ExpressionType.LT, IngestionService.INGESTED_AT,
+                    request.ingestedBefore().toEpochMilli()));
+        }
+        if (request.filter() != null && !request.filter().isBlank()) {
+            conditions.add(parseFilter(request.filter()));
+        }
+
+        return conditions.stream()
+                .reduce((left, right) -> new Filter.Expression(ExpressionType.AND, left, right))
+                .orElse(null);
+    }
+
+    private static Filter.Expression condition(ExpressionType type, String key, Object value) {
+        return new Filter.Expression(type, new Filter.Key(key), new Filter.Value(value));
+    }
+
+    private static Filter.Expression parseFilter(String filterExpression) {
+        try {
+            return FILTER_PARSER.parse(filterExpression);
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Invalid filter expression: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Drops all cached result lists. Query vectors stay valid since they do not
+     * depend on the stored documents.
+     */
+    public void invalidateResults() {
+        // Bumping the generation also keeps searches that are still in flight from caching stale results
+        generation.incrementAndGet();
+        results.invalidateAll();
+    }
+
+    @EventListener
+    public void onDocumentsStored(DocumentsStoredEvent event) {
+        invalidateResults();
+        log.debug("Search result cache invalidated after {} chunk(s) were written", event.chunks());
+    }
+
+    /**
+     * Returns hit/miss statistics for both cache levels.
+     *
+     * @return cache statistics
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", properties.enabled());
+        stats.put("queries", toMap(queryVectors.stats(), queryVectors.estimatedSize()));
+        stats.put("results", toMap(results.stats(), results.estimatedSize()));
+        return stats;
+    }
+
+    /**
+     * Normalizes query text so that trivially different spellings share cache entries:
+     * Unicode NFC, trimmed, with runs of whitespace collapsed to a single space.
+     */
+    static String normalize(String query) {
+        String normalized = Normalizer.normalize(query, Normalizer.Form.NFC);
+        return WHITESPACE.matcher(normalized.trim()).replaceAll(" ");
+    }
+
+    private static Map<String, Object> toMap(CacheStats stats, long size) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("size", size);
+        map.put("hits", stats.hitCount());
+        map.put("misses", stats.missCount());
+        map.put("hitRate", stats.hitRate());
+        return map;
+    }
+
+    private static String digest(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES);
+        buffer.asFloatBuffer().put(vector);
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(buffer.array()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record ResultKey(long generation, String vectorDigest, boolean hybrid, int topK,
+                             double similarityThreshold, String filterExpression) {
+    }
+}
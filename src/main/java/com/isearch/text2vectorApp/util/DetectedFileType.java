@@ -0,0 +1,34 @@
+package com.isearch.text2vectorApp.util;
+
+import java.util.Arrays;
+
+/**
+ * Result of detecting the type of an uploaded file.
+ * Detection runs once per upload; the result travels with the resource so the
+ * service, the readers and the controllers do not have to detect it again.
+ *
+ * @param mimeType  the detected MIME type
+ * @param extension the file type (pdf, docx, txt) in lowercase
+ * @param prefix    the leading bytes of the file that detection was based on
+ */
+public record DetectedFileType(String mimeType, String extension, byte[] prefix) {
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof DetectedFileType other
+                && mimeType.equals(other.mimeType)
+                && extension.equals(other.extension)
+                && Arrays.equals(prefix, other.prefix);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * mimeType.hashCode() + extension.hashCode()) + Arrays.hashCode(prefix);
+    }
+
+    @Override
+    public String toString() {
+        return "DetectedFileType[mimeType=" + mimeType + ", extension=" + extension
+                + ", prefix=" + prefix.length + " bytes]";
+    }
+}
@@ -0,0 +1,241 @@
+package com.isearch.text2vectorApp.util;
+
+import com.isearch.text2vectorApp.config.ChunkingProperties;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Splits documents produced by a {@link DocumentReader} into chunks that fit a token budget.
+ * Text is split on paragraph boundaries first, then on sentence boundaries, and only
+ * falls back to whitespace when a single sentence is larger than the budget. Consecutive
+ * chunks share a configurable number of overlap tokens.
+ * <p>
+ * Every chunk carries its token count in the {@value #TOKEN_COUNT} metadata, so later stages
+ * (limit checks, batch packing) do not tokenize the text again. Vector stores drop it with
+ * {@link #storedMetadata(Map)}, since it is of no use once the chunk is embedded.
+ */
+@Component
+public class DocumentChunker {
+
+    public static final String CHUNK_INDEX = "chunk_index";
+    public static final String TOKEN_COUNT = "token_count";
+
+    private static final Pattern PARAGRAPH_BREAK = Pattern.compile("\\n\\s*\\n");
+    private static final Pattern SENTENCE_BREAK = Pattern.compile("(?<=[.!?])\\s+");
+
+    private final TokenCountEstimator tokenCountEstimator;
+    private final ChunkingProperties properties;
+
+    public DocumentChunker(TokenCountEstimator tokenCountEstimator, ChunkingProperties properties) {
+        this.tokenCountEstimator = tokenCountEstimator;
+        this.properties = properties;
+    }
+
+    /**
+     * Chunks every document and numbers the resulting chunks in order.
+     * Metadata of the source document (e.g. page number) is copied to each chunk.
+     *
+     * @param documents the reader output
+     * @return the chunks, in document order
+     */
+    public List<Document> chunk(List<Document> documents) {
+        if (!properties.enabled()) {
+            documents.forEach(this::countTokens);
+            return documents;
+        }
+
+        List<Document> chunks = new ArrayList<>();
+        for (Document document : documents) {
+            chunks.addAll(chunk(document, chunks.size()));
+        }
+        return chunks;
+    }
+
+    /**
+     * Chunks a single document, e.g. one page of a streamed PDF.
+     *
+     * @param document   the reader output
+     * @param firstIndex chunk index of the first chunk, i.e. the number of chunks before this document
+     * @return the chunks, in order
+     */
+    public List<Document> chunk(Document document, int firstIndex) {
+        if (!properties.enabled()) {
+            countTokens(document);
+            return List.of(document);
+        }
+
+        List<Document> chunks = new ArrayList<>();
+        for (Piece piece : pieces(document.getText())) {
+            Map<String, Object> metadata = new HashMap<>(document.getMetadata());
+            metadata.put(CHUNK_INDEX, firstIndex + chunks.size());
+            metadata.put(TOKEN_COUNT, piece.tokens());
+            chunks.add(new Document(piece.text(), metadata));
+        }
+        return chunks;
+    }
+
+    /**
+     * Splits a text into pieces that each fit the token budget.
+     *
+     * @param text the text to split
+     * @return the pieces, in order
+     */
+    public List<String> split(String text) {
+        return pieces(text).stream().map(Piece::text).toList();
+    }
+
+    /**
+     * Metadata of a chunk as it is stored in a vector store: without {@value #TOKEN_COUNT}.
+     *
+     * @param metadata the chunk metadata
+     * @return the same map if there is no token count, else a copy without it
+     */
+    public static Map<String, Object> storedMetadata(Map<String, Object> metadata) {
+        if (!metadata.containsKey(TOKEN_COUNT)) {
+            return metadata;
+        }
+        Map<String, Object> stored = new HashMap<>(metadata);
+        stored.remove(TOKEN_COUNT);
+        return stored;
+    }
+
+    private void countTokens(Document document) {
+        if (document.getText() != null) {
+            document.getMetadata().putIfAbsent(TOKEN_COUNT, tokenCountEstimator.estimate(document.getText()));
+        }
+    }
+
+    /**
+     * Splits a text into pieces that fit the token budget, with their token counts. The count
+     * of a piece made of several segments is the sum of the segment counts.
+     */
+    private List<Piece> pieces(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        int budget = properties.maxTokens();
+        int tokens = tokenCountEstimator.estimate(text);
+        if (tokens <= budget) {
+            return List.of(new Piece(text, tokens));
+        }
+
+        List<Segment> segments = new ArrayList<>();
+        for (String paragraph : PARAGRAPH_BREAK.split(text)) {
+            addSegments(paragraph.trim(), "\n\n", segments);
+        }
+        return pack(segments);
+    }
+
+    private void addSegments(String paragraph, String separator, List<Segment> segments) {
+        if (paragraph.isEmpty()) {
+            return;
+        }
+        int tokens = tokenCountEstimator.estimate(paragraph);
+        if (tokens <= properties.maxTokens()) {
+            segments.add(new Segment(paragraph, separator, tokens));
+            return;
+        }
+
+        boolean first = true;
+        for (String sentence : SENTENCE_BREAK.split(paragraph)) {
+            String sentenceSeparator = first ? separator : " ";
+            first = false;
+            int sentenceTokens = tokenCountEstimator.estimate(sentence);
+            if (sentenceTokens <= properties.maxTokens()) {
+                segments.add(new Segment(sentence, sentenceSeparator, sentenceTokens));
+            } else {
+                splitOversized(sentence, sentenceSeparator, sentenceTokens, segments);
+            }
+        }
+    }
+
+    /**
+     * Splits a single sentence that exceeds the budget at whitespace near a character
+     * target derived from its tokens-per-character ratio.
+     */
+    private void splitOversized(String sentence, String separator, int sentenceTokens, List<Segment> segments) {
+        double charsPerToken = (double) sentence.length() / sentenceTokens;
+        int targetChars = Math.max(1, (int) (properties.maxTokens() * charsPerToken * 0.9));
+
+        int start = 0;
+        while (start < sentence.length()) {
+            int end = Math.min(sentence.length(), start + targetChars);
+            if (end < sentence.length()) {
+                int space = sentence.lastIndexOf(' ', end);
+                if (space > start) {
+                    end = space;
+                }
+            }
+            String piece = sentence.substring(start, end).trim();
+            if (!piece.isEmpty()) {
+                segments.add(new Segment(piece, start == 0 ? separator : " ", tokenCountEstimator.estimate(piece)));
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * Greedily packs segments into chunks. When a chunk is full, its trailing segments
+     * (up to the overlap budget) are carried over to the start of the next chunk.
+     */
+    private List<Piece> pack(List<Segment> segments) {
+        List<Piece> chunks = new ArrayList<>();
+        Deque<Segment> current = new ArrayDeque<>();
+        int currentTokens = 0;
+        int carriedOver = 0;
+
+        for (Segment segment : segments) {
+            if (currentTokens + segment.tokens() > properties.maxTokens() && current.size() > carriedOver) {
+                chunks.add(new Piece(join(current), currentTokens));
+
+                Deque<Segment> overlap = new ArrayDeque<>();
+                int overlapTokens = 0;
+                var it = current.descendingIterator();
+                while (it.hasNext()) {
+                    Segment previous = it.next();
+                    if (overlapTokens + previous.tokens() > properties.overlapTokens()
+                            || overlapTokens + previous.tokens() + segment.tokens() > properties.maxTokens()) {
+                        break;
+                    }
+                    overlap.addFirst(previous);
+                    overlapTokens += previous.tokens();
+                }
+                current = overlap;
+                currentTokens = overlapTokens;
+                carriedOver = overlap.size();
+            }
+            current.addLast(segment);
+            currentTokens += segment.tokens();
+        }
+        if (current.size() > carriedOver) {
+            chunks.add(new Piece(join(current), currentTokens));
+        }
+        return chunks;
+    }
+
+    private static String join(Deque<Segment> segments) {
+        StringBuilder text = new StringBuilder();
+        for (Segment segment : segments) {
+            if (!text.isEmpty()) {
+                text.append(segment.separator());
+            }
+            text.append(segment.text());
+        }
+        return text.toString();
+    }
+
+    private record Segment(String text, String separator, int tokens) {
+    }
+
+    private record Piece(String text, int tokens) {
+    }
+}
@@ -4,6 +4,7 @@ import org.springframework.ai.document.Document;
 import org.springframework.core.io.Resource;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Interface for reading documents from various file formats.
@@ -20,4 +21,40 @@ public interface DocumentReader {
      * @return list of Document objects containing the extracted text and metadata
      */
     List<Document> read(Resource resource);
+
+    /**
+     * Reads a document whose file type has already been detected.
+     * Implementations may use the detected type (e.g. its magic-byte prefix) to avoid
+     * inspecting the content again; by default the detection result is not needed.
+     *
+     * @param resource the resource to read from
+     * @param fileType the detected file type
+     * @return list of Document objects containing the extracted text and metadata
+     */
+    default List<Document> read(Resource resource, DetectedFileType fileType) {
+        return read(resource);
+    }
+
+    /**
+     * Reads a document as a stream, so callers can start processing early parts of a
+     * document while later parts are still being extracted. The stream must be closed.
+     * By default the whole document is read before the stream is returned.
+     *
+     * @param resource the resource to read from
+     * @return stream of Document objects, in document order
+     */
+    default Stream<Document> stream(Resource resource) {
+        return read(resource).stream();
+    }
+
+    /**
+     * Reads a document whose file type has already been detected as a stream.
+     *
+     * @param resource the resource to read from
+     * @param fileType the detected file type
+     * @return stream of Document objects, in document order
+     */
+    default Stream<Document> stream(Resource resource, DetectedFileType fileType) {
+        return read(resource, fileType).stream();
+    }
 }
@@ -47,6 +47,16 @@ public class DocumentReaderFactory {
         return reader;
     }
 
+    /**
+     * Gets the appropriate DocumentReader for an already detected file type.
+     *
+     * @param fileType the detected file type
+     * @return the DocumentReader implementation
+     */
+    public DocumentReader getReader(DetectedFileType fileType) {
+        return getReader(fileType.extension());
+    }
+
     /**
      * Gets the appropriate DocumentReader for a MultipartFile by detecting its type.
      *
@@ -1,61 +1,302 @@
 package com.isearch.text2vectorApp.util;
 
-import org.apache.poi.xwpf.usermodel.XWPFDocument;
-import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import com.isearch.text2vectorApp.config.DocxProperties;
 import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 /**
- * Document reader implementation for DOCX files using Apache POI.
+ * Document reader implementation for DOCX files.
+ * <p>
+ * Streams word/document.xml with StAX instead of loading the package into a POI DOM.
+ * Paragraphs and tables are kept in document order, and the text is emitted as one
+ * document per section: a new section starts at every heading paragraph and at every
+ * section break, and long sections are cut once they reach the configured size: at a
+ * paragraph boundary, or inside a table at the end of a row. Heap use therefore depends on
+ * the section size, not the file size.
  */
 @Component
 public class DocxDocumentReader implements DocumentReader {
 
+    public static final String SECTION = "section";
+    public static final String HEADING = "heading";
+
+    private static final String DOCUMENT_PART = "word/document.xml";
+    private static final String W_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    private final DocxProperties properties;
+
+    /**
+     * Creates a reader with the default section size.
+     */
+    public DocxDocumentReader() {
+        this(new DocxProperties(20000));
+    }
+
+    @Autowired
+    public DocxDocumentReader(DocxProperties properties) {
+        this.properties = properties;
+    }
 
     @Override
     public List<Document> read(Resource resource) {
-        try (InputStream inputStream = resource.getInputStream();
-             XWPFDocument document = new XWPFDocument(inputStream)) {
-
-            StringBuilder text = new StringBuilder();
-
-            // Extract text from all paragraphs
-            document.getParagraphs().stream()
-                    .map(XWPFParagraph::getText)
-                    .map(String::trim)
-                    .filter(s -> !s.isEmpty())
-                    .forEach(p -> text.append(p).append("\n"));
-
-            // Extract text from tables if any
-            document.getTables().forEach(table ->
-                    table.getRows().forEach(row -> {
-                        row.getTableCells().stream()
-                                .map(cell -> cell.getText().trim())
-                                .filter(s -> !s.isEmpty())
-                                .forEach(cell -> text.append(cell).append(" "));
-                        text.append("\n");
-                    }));
-
-            String content = text.toString().trim();
+        try (Stream<Document> sections = stream(resource)) {
+            return sections.toList();
+        }
+    }
+
+    @Override
+    public Stream<Document> stream(Resource resource, DetectedFileType fileType) {
+        return stream(resource);
+    }
+
+    @Override
+    public Stream<Document> stream(Resource resource) {
+        String filename = resource.getFilename() != null ? resource.getFilename() : "unknown";
+        SectionIterator sections;
+        try {
+            sections = new SectionIterator(resource.getInputStream(), filename,
+                    Math.max(1, properties.maxSectionChars()));
+        } catch (IOException | XMLStreamException e) {
+            throw new RuntimeException("Failed to read DOCX file: " + resource.getFilename(), e);
+        }
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(sections, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(sections::close);
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // document.xml never needs a DTD; disabling it rules out entity expansion attacks
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * Pulls StAX events until the next section is complete.
+     */
+    private static final class SectionIterator implements Iterator<Document> {
+
+        private final ZipInputStream zip;
+        private final XMLStreamReader xml;
+        private final String filename;
+        private final int maxSectionChars;
+
+        private final StringBuilder section = new StringBuilder();
+        private final StringBuilder paragraph = new StringBuilder();
+        private final Deque<Document> pending = new ArrayDeque<>();
+        private String heading;
+        private int sectionIndex;
+        private int tableDepth;
+        // Paragraphs and runs nest through text boxes (w:txbxContent); their text joins the enclosing paragraph
+        private int paragraphDepth;
+        private int runDepth;
+        private boolean inText;
+        private boolean headingParagraph;
+        private boolean sectionBreak;
+
+        SectionIterator(InputStream input, String filename, int maxSectionChars) throws IOException, XMLStreamException {
+            this.zip = new ZipInputStream(input);
+            this.filename = filename;
+            this.maxSectionChars = maxSectionChars;
+            try {
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null && !DOCUMENT_PART.equals(entry.getName())) {
+                    // skip other package parts
+                }
+                if (entry == null) {
+                    throw new IOException("No " + DOCUMENT_PART + " in " + filename);
+                }
+                this.xml = XML_INPUT_FACTORY.createXMLStreamReader(zip);
+            } catch (IOException | XMLStreamException e) {
+                zip.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (pending.isEmpty()) {
+                try {
+                    advance();
+                } catch (XMLStreamException e) {
+                    throw new RuntimeException("Failed to read DOCX file: " + filename, e);
+                }
+            }
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public Document next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return pending.poll();
+        }
+
+        void close() {
+            try {
+                xml.close();
+                zip.close();
+            } catch (XMLStreamException e) {
+                throw new RuntimeException("Failed to close DOCX file: " + filename, e);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void advance() throws XMLStreamException {
+            while (pending.isEmpty() && xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT && W_NS.equals(xml.getNamespaceURI())) {
+                    startElement(xml.getLocalName());
+                } else if (event == XMLStreamConstants.END_ELEMENT && W_NS.equals(xml.getNamespaceURI())) {
+                    endElement(xml.getLocalName());
+                } else if (event == XMLStreamConstants.CHARACTERS && inText) {
+                    paragraph.append(xml.getText());
+                }
+            }
+            if (pending.isEmpty()) {
+                emitSection();
+            }
+        }
+
+        private void startElement(String name) {
+            switch (name) {
+                case "p" -> {
+                    if (paragraphDepth++ == 0) {
+                        paragraph.setLength(0);
+                        headingParagraph = false;
+                        sectionBreak = false;
+                    }
+                }
+                case "pStyle" -> {
+                    if (paragraphDepth == 1) {
+                        String style = xml.getAttributeValue(W_NS, "val");
+                        headingParagraph = tableDepth == 0 && style != null
+                                && (style.startsWith("Heading") || style.equals("Title"));
+                    }
+                }
+                case "r" -> runDepth++;
+                case "t" -> inText = runDepth > 0;
+                case "tab" -> {
+                    if (runDepth > 0) {
+                        paragraph.append('\t');
+                    }
+                }
+                case "br", "cr" -> {
+                    if (runDepth > 0) {
+                        paragraph.append('\n');
+                    }
+                }
+                case "tbl" -> tableDepth++;
+                default -> {
+                }
+            }
+        }
+
+        private void endElement(String name) {
+            switch (name) {
+                case "t" -> inText = false;
+                case "r" -> runDepth = Math.max(0, runDepth - 1);
+                case "p" -> {
+                    paragraphDepth = Math.max(0, paragraphDepth - 1);
+                    if (paragraphDepth == 0) {
+                        endParagraph();
+                    } else {
+                        paragraph.append(' ');
+                    }
+                }
+                case "tc" -> section.append(' ');
+                case "tr" -> {
+                    section.append('\n');
+                    // Rows are the cut points inside tables, so a long table is split between rows
+                    if (section.length() >= maxSectionChars) {
+                        emitSection();
+                    }
+                }
+                case "tbl" -> tableDepth--;
+                case "sectPr" -> {
+                    if (paragraphDepth > 0) {
+                        // A section break in w:pPr ends the section after the paragraph that holds it
+                        sectionBreak = tableDepth == 0;
+                    } else if (tableDepth == 0) {
+                        // The body's own sectPr closes the last section
+                        emitSection();
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+
+        private void endParagraph() {
+            String text = paragraph.toString().trim();
+            paragraph.setLength(0);
+            if (!text.isEmpty()) {
+                appendParagraph(text);
+            }
+            if (sectionBreak) {
+                sectionBreak = false;
+                emitSection();
+            }
+        }
+
+        private void appendParagraph(String text) {
+            if (tableDepth > 0) {
+                // Cell paragraphs are separated like cells, rows end with a line break
+                section.append(text).append(' ');
+                return;
+            }
+
+            if (headingParagraph) {
+                emitSection();
+                heading = text;
+            }
+            section.append(text).append('\n');
+
+            if (section.length() >= maxSectionChars) {
+                emitSection();
+            }
+        }
+
+        private void emitSection() {
+            String content = section.toString().trim();
+            section.setLength(0);
             if (content.isEmpty()) {
-                return List.of();
+                return;
             }
 
-            // Create a single document with metadata
             var doc = new Document(content);
-            String filename = resource.getFilename();
-            doc.getMetadata().put("source", filename != null ? filename : "unknown");
+            doc.getMetadata().put("source", filename);
             doc.getMetadata().put("fileType", "docx");
-
-            return List.of(doc);
-
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to read DOCX file: " + resource.getFilename(), e);
+            doc.getMetadata().put(SECTION, sectionIndex++);
+            if (heading != null) {
+                doc.getMetadata().put(HEADING, heading);
+            }
+            pending.add(doc);
         }
     }
 }
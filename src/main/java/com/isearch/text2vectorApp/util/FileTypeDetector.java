@@ -1,10 +1,16 @@
 package com.isearch.text2vectorApp.util;
 
+import com.isearch.text2vectorApp.metrics.PipelineMetrics;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import org.apache.tika.Tika;
 import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Set;
 
@@ -12,12 +18,24 @@ import java.util.Set;
  * Utility class for detecting and validating file types using Apache Tika.
  * Tika provides robust file type detection based on file content (magic bytes)
  * and filename extensions.
+ * <p>
+ * Detection reads a bounded prefix of the file once. When the filename has a supported
+ * extension and the prefix carries the matching magic bytes, Tika is skipped entirely;
+ * otherwise Tika decides based on the same prefix.
+ * <p>
+ * Detection time is recorded as {@value PipelineMetrics#DETECT} in the global meter
+ * registry, which Spring Boot connects to the application's registry.
  */
 public class FileTypeDetector {
 
     private static final Tika TIKA = new Tika();
+    // Magic bytes of all supported types sit at the start of the file
+    private static final int PEEK_SIZE = 8 * 1024;
     private static final Set<String> SUPPORTED_FILE_TYPES = Set.of("pdf", "docx", "txt");
 
+    private static final byte[] PDF_MAGIC = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ZIP_MAGIC = {'P', 'K', 3, 4};
+
     // MIME type to file extension mapping
     private static final Map<String, String> MIME_TO_EXTENSION = Map.of(
             "application/pdf", "pdf",
@@ -25,6 +43,12 @@ public class FileTypeDetector {
             "text/plain", "txt"
     );
 
+    private static final Map<String, String> EXTENSION_TO_MIME = Map.of(
+            "pdf", "application/pdf",
+            "docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+            "txt", "text/plain"
+    );
+
     /**
      * Detects the file type from a MultipartFile using Tika.
      *
@@ -36,37 +60,7 @@ public class FileTypeDetector {
         if (file == null || file.isEmpty()) {
             throw new IllegalArgumentException("File is null or empty");
         }
-
-        String filename = file.getOriginalFilename();
-        if (filename == null || filename.isEmpty()) {
-            throw new IllegalArgumentException("Filename is null or empty");
-        }
-
-        try {
-            // Try Tika detection first (content-based)
-            String mimeType = TIKA.detect(file.getInputStream(), filename);
-            String fileType = MIME_TO_EXTENSION.get(mimeType);
-
-            if (fileType != null) {
-                return fileType;
-            }
-        } catch (IOException e) {
-            // Fall through to extension-based detection
-        }
-
-        // Fallback to extension-based detection
-        String extension = getFileExtension(filename);
-        if (extension == null) {
-            throw new IllegalArgumentException("Cannot determine file type for: " + filename);
-        }
-
-        String lowerExtension = extension.toLowerCase();
-        if (!SUPPORTED_FILE_TYPES.contains(lowerExtension)) {
-            throw new IllegalArgumentException(
-                    "Unsupported file type: " + extension + ". Supported types: " + SUPPORTED_FILE_TYPES);
-        }
-
-        return lowerExtension;
+        return detect(file.getOriginalFilename(), file::getInputStream).extension();
     }
 
     /**
@@ -77,50 +71,139 @@ public class FileTypeDetector {
      * @throws IllegalArgumentException if file type is not supported
      */
     public static String detectFileType(Resource resource) {
+        return detect(resource).extension();
+    }
+
+    /**
+     * Detects the full file type information of a Resource.
+     *
+     * @param resource the resource
+     * @return the detection result
+     * @throws IllegalArgumentException if file type is not supported
+     */
+    public static DetectedFileType detect(Resource resource) {
         if (resource == null) {
             throw new IllegalArgumentException("Resource is null");
         }
+        return detect(resource.getFilename(), resource::getInputStream);
+    }
+
+    /**
+     * Validates that a file type is supported.
+     *
+     * @param fileType the file type to validate
+     * @return true if supported, false otherwise
+     */
+    public static boolean isSupported(String fileType) {
+        return fileType != null && SUPPORTED_FILE_TYPES.contains(fileType.toLowerCase());
+    }
+
+    private static DetectedFileType detect(String filename, StreamSource source) {
+        Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+        String type = "unsupported";
+        try {
+            DetectedFileType detected = detectUntimed(filename, source);
+            type = detected.extension();
+            return detected;
+        } finally {
+            sample.stop(Metrics.globalRegistry.timer(PipelineMetrics.DETECT, "type", type));
+        }
+    }
 
-        String filename = resource.getFilename();
+    private static DetectedFileType detectUntimed(String filename, StreamSource source) {
         if (filename == null || filename.isEmpty()) {
-            throw new IllegalArgumentException("Resource filename is null or empty");
+            throw new IllegalArgumentException("Filename is null or empty");
         }
 
-        try {
-            // Try Tika detection (content-based)
-            String mimeType = TIKA.detect(resource.getInputStream(), filename);
-            String fileType = MIME_TO_EXTENSION.get(mimeType);
+        String extension = getFileExtension(filename);
+        String lowerExtension = extension != null ? extension.toLowerCase() : null;
 
-            if (fileType != null) {
-                return fileType;
-            }
+        byte[] prefix;
+        try {
+            prefix = peek(source.open());
         } catch (IOException e) {
-            // Fall through to extension-based detection
+            // Without content, fall back to extension-based detection
+            return fromExtension(filename, lowerExtension, new byte[0]);
         }
 
-        // Fallback to extension-based detection
-        String extension = getFileExtension(filename);
-        if (extension == null) {
-            throw new IllegalArgumentException("Cannot determine file type for: " + filename);
+        // Fast path: trust a supported extension when the content agrees with it
+        if (lowerExtension != null && SUPPORTED_FILE_TYPES.contains(lowerExtension)
+                && contentMatches(lowerExtension, prefix)) {
+            return new DetectedFileType(EXTENSION_TO_MIME.get(lowerExtension), lowerExtension, prefix);
+        }
+
+        // Try Tika detection (content-based) on the same prefix
+        String mimeType = TIKA.detect(prefix, filename);
+        String fileType = MIME_TO_EXTENSION.get(mimeType);
+        if (fileType != null) {
+            return new DetectedFileType(mimeType, fileType, prefix);
         }
 
-        String lowerExtension = extension.toLowerCase();
+        return fromExtension(filename, lowerExtension, prefix);
+    }
+
+    private static DetectedFileType fromExtension(String filename, String lowerExtension, byte[] prefix) {
+        if (lowerExtension == null) {
+            throw new IllegalArgumentException("Cannot determine file type for: " + filename);
+        }
         if (!SUPPORTED_FILE_TYPES.contains(lowerExtension)) {
             throw new IllegalArgumentException(
-                    "Unsupported file type: " + extension + ". Supported types: " + SUPPORTED_FILE_TYPES);
+                    "Unsupported file type: " + lowerExtension + ". Supported types: " + SUPPORTED_FILE_TYPES);
         }
+        return new DetectedFileType(EXTENSION_TO_MIME.get(lowerExtension), lowerExtension, prefix);
+    }
 
-        return lowerExtension;
+    private static boolean contentMatches(String extension, byte[] prefix) {
+        return switch (extension) {
+            // PDF headers may be preceded by junk bytes, so the marker is searched within the prefix
+            case "pdf" -> indexOf(prefix, PDF_MAGIC) >= 0;
+            case "docx" -> startsWith(prefix, ZIP_MAGIC);
+            case "txt" -> looksLikeText(prefix) && !startsWith(prefix, PDF_MAGIC) && !startsWith(prefix, ZIP_MAGIC);
+            default -> false;
+        };
     }
 
     /**
-     * Validates that a file type is supported.
-     *
-     * @param fileType the file type to validate
-     * @return true if supported, false otherwise
+     * Treats the prefix as text unless it contains NUL bytes. UTF-16 files, which
+     * legitimately contain NULs, are recognized by their byte order mark.
      */
-    public static boolean isSupported(String fileType) {
-        return fileType != null && SUPPORTED_FILE_TYPES.contains(fileType.toLowerCase());
+    private static boolean looksLikeText(byte[] prefix) {
+        if (prefix.length >= 2 && ((prefix[0] == (byte) 0xFF && prefix[1] == (byte) 0xFE)
+                || (prefix[0] == (byte) 0xFE && prefix[1] == (byte) 0xFF))) {
+            return true;
+        }
+        for (byte b : prefix) {
+            if (b == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsWith(byte[] data, byte[] magic) {
+        return data.length >= magic.length && Arrays.equals(data, 0, magic.length, magic, 0, magic.length);
+    }
+
+    private static int indexOf(byte[] data, byte[] magic) {
+        outer:
+        for (int i = 0; i <= data.length - magic.length; i++) {
+            for (int j = 0; j < magic.length; j++) {
+                if (data[i + j] != magic[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Reads a bounded prefix of a stream for magic-byte detection and closes the stream.
+     */
+    private static byte[] peek(InputStream inputStream) throws IOException {
+        try (InputStream in = inputStream) {
+            return in.readNBytes(PEEK_SIZE);
+        }
     }
 
     /**
@@ -141,4 +224,9 @@ public class FileTypeDetector {
 
         return filename.substring(lastDotIndex + 1);
     }
+
+    @FunctionalInterface
+    private interface StreamSource {
+        InputStream open() throws IOException;
+    }
 }
@@ -1,32 +1,276 @@
 package com.isearch.text2vectorApp.util;
 
+import com.isearch.text2vectorApp.config.PdfProperties;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.reader.ExtractedTextFormatter;
-import org.springframework.ai.reader.pdf.PagePdfDocumentReader;
-import org.springframework.ai.reader.pdf.config.PdfDocumentReaderConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
- * Document reader implementation for PDF files using Spring AI's PDF reader.
+ * Document reader implementation for PDF files using PDFBox. Produces one document per page
+ * with page_number metadata.
+ * <p>
+ * Documents with many pages are extracted page-parallel: the page range is split into tasks
+ * that run on the PDF page pool, with at most one task per extraction thread in flight. A
+ * PDDocument is not thread-safe, so tasks borrow parsed instances from a small pool that grows
+ * to at most one per concurrent task; the source is read only once (the spooled upload file,
+ * or a single byte array for in-memory uploads). Pages are emitted in order as soon as the
+ * task holding them completes.
  */
 @Component
 public class PdfDocumentReader implements DocumentReader {
 
+    public static final String PAGE_NUMBER = "page_number";
+    public static final String FILE_NAME = "file_name";
+
+    private final ExecutorService pageExecutor;
+    private final PdfProperties properties;
+    private final ExtractedTextFormatter formatter = ExtractedTextFormatter.builder()
+            .withNumberOfTopTextLinesToDelete(0)
+            .build();
+
+    /**
+     * Creates a reader that extracts pages sequentially on the calling thread.
+     */
+    public PdfDocumentReader() {
+        this(null, new PdfProperties(Integer.MAX_VALUE, 8, 1));
+    }
+
+    @Autowired
+    public PdfDocumentReader(@Qualifier("pdfPageExecutor") ExecutorService pageExecutor, PdfProperties properties) {
+        this.pageExecutor = pageExecutor;
+        this.properties = properties;
+    }
+
     @Override
     public List<Document> read(Resource pdfResource) {
+        try (Stream<Document> pages = stream(pdfResource)) {
+            return pages.toList();
+        }
+    }
+
+    @Override
+    public Stream<Document> stream(Resource resource, DetectedFileType fileType) {
+        return stream(resource);
+    }
+
+    @Override
+    public Stream<Document> stream(Resource pdfResource) {
+        String filename = pdfResource.getFilename();
+        PdfSource source = PdfSource.of(pdfResource);
+
+        PDDocument first;
+        try {
+            first = source.load();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read PDF file: " + filename, e);
+        }
+        int pageCount = first.getNumberOfPages();
+        if (pageExecutor == null || pageCount < properties.parallelThreshold()) {
+            try (first) {
+                return extract(first, 1, pageCount, filename).stream();
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read PDF file: " + filename, e);
+            }
+        }
+
+        // At most one range per extraction thread is in flight, and each in-flight range
+        // holds its own PDDocument, so text and parsed documents stay bounded on large files
+        DocumentPool documents = new DocumentPool(source, first);
+        PageRanges ranges = new PageRanges(documents, pageCount, Math.max(1, properties.pagesPerTask()),
+                Math.max(1, properties.effectiveThreads()), filename);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(ranges, Spliterator.ORDERED), false)
+                .flatMap(List::stream)
+                .onClose(ranges::close);
+    }
+
+    private List<Document> extract(PDDocument document, int firstPage, int lastPage, String filename)
+            throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        stripper.setSortByPosition(true);
+
+        List<Document> pages = new ArrayList<>(lastPage - firstPage + 1);
+        for (int page = firstPage; page <= lastPage; page++) {
+            stripper.setStartPage(page);
+            stripper.setEndPage(page);
+            String text = formatter.format(stripper.getText(document), page);
+            if (text.isBlank()) {
+                continue;
+            }
+
+            var doc = new Document(text);
+            doc.getMetadata().put(PAGE_NUMBER, page);
+            doc.getMetadata().put(FILE_NAME, filename != null ? filename : "unknown");
+            pages.add(doc);
+        }
+        return pages;
+    }
+
+    /**
+     * Extracts page ranges on the page pool with a sliding window: a new range is submitted
+     * each time the caller takes the oldest one, so ranges are returned in order and at most
+     * {@code window} of them are extracted but not yet consumed.
+     */
+    private final class PageRanges implements Iterator<List<Document>> {
+
+        private final DocumentPool documents;
+        private final int pageCount;
+        private final int pagesPerTask;
+        private final int window;
+        private final String filename;
+        private final Deque<CompletableFuture<List<Document>>> inFlight = new ArrayDeque<>();
+        private int nextPage = 1;
+
+        PageRanges(DocumentPool documents, int pageCount, int pagesPerTask, int window, String filename) {
+            this.documents = documents;
+            this.pageCount = pageCount;
+            this.pagesPerTask = pagesPerTask;
+            this.window = window;
+            this.filename = filename;
+            fill();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !inFlight.isEmpty();
+        }
+
+        @Override
+        public List<Document> next() {
+            if (inFlight.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            List<Document> pages = inFlight.poll().join();
+            fill();
+            return pages;
+        }
+
+        void close() {
+            inFlight.forEach(task -> task.cancel(true));
+            inFlight.clear();
+            documents.close();
+        }
+
+        private void fill() {
+            while (inFlight.size() < window && nextPage <= pageCount) {
+                int from = nextPage;
+                int to = Math.min(pageCount, from + pagesPerTask - 1);
+                nextPage = to + 1;
+                inFlight.add(CompletableFuture.supplyAsync(() -> extractRange(from, to), pageExecutor));
+            }
+        }
+
+        private List<Document> extractRange(int from, int to) {
+            PDDocument document = null;
+            try {
+                document = documents.acquire();
+                return extract(document, from, to, filename);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read pages " + from + "-" + to + " of PDF file: " + filename, e);
+            } finally {
+                if (document != null) {
+                    documents.release(document);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parsed instances of one PDF for the extraction tasks. A PDDocument is not thread-safe,
+     * so a task borrows an instance for its range and returns it afterwards; instances are
+     * only loaded when none is idle, i.e. at most one per concurrent task.
+     */
+    private static final class DocumentPool {
+
+        private final PdfSource source;
+        private final Deque<PDDocument> idle = new ArrayDeque<>();
+        private boolean closed;
+
+        DocumentPool(PdfSource source, PDDocument first) {
+            this.source = source;
+            this.idle.add(first);
+        }
+
+        PDDocument acquire() throws IOException {
+            synchronized (this) {
+                if (closed) {
+                    throw new IOException("PDF stream was closed");
+                }
+                PDDocument document = idle.poll();
+                if (document != null) {
+                    return document;
+                }
+            }
+            return source.load();
+        }
+
+        void release(PDDocument document) {
+            synchronized (this) {
+                if (!closed) {
+                    idle.add(document);
+                    return;
+                }
+            }
+            closeQuietly(document);
+        }
+
+        void close() {
+            List<PDDocument> documents;
+            synchronized (this) {
+                closed = true;
+                documents = new ArrayList<>(idle);
+                idle.clear();
+            }
+            documents.forEach(DocumentPool::closeQuietly);
+        }
+
+        private static void closeQuietly(PDDocument document) {
+            try {
+                document.close();
+            } catch (IOException ignored) {
+                // nothing left to read from it
+            }
+        }
+    }
+
+    /**
+     * The PDF bytes, loaded once and shared read-only by all extraction tasks.
+     */
+    private record PdfSource(File file, byte[] bytes) {
 
-        PagePdfDocumentReader pdfReader = new PagePdfDocumentReader(pdfResource,
-                PdfDocumentReaderConfig.builder()
-                        .withPageTopMargin(0)
-                        .withPageExtractedTextFormatter(ExtractedTextFormatter.builder()
-                                .withNumberOfTopTextLinesToDelete(0)
-                                .build())
-                        .withPagesPerDocument(1)
-                        .build());
+        static PdfSource of(Resource resource) {
+            try {
+                if (resource.isFile()) {
+                    return new PdfSource(resource.getFile(), null);
+                }
+                return new PdfSource(null, resource.getContentAsByteArray());
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read PDF file: " + resource.getFilename(), e);
+            }
+        }
 
-        return pdfReader.read();
+        PDDocument load() throws IOException {
+            return file != null ? Loader.loadPDF(file) : Loader.loadPDF(bytes);
+        }
     }
 }
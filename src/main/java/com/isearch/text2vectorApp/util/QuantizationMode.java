@@ -0,0 +1,64 @@
+package com.isearch.text2vectorApp.util;
+
+/**
+ * How stored vectors are compressed for search. Quantized modes search the compressed
+ * vectors and rerank the candidates with the full-precision vectors.
+ */
+public enum QuantizationMode {
+
+    /** float32, 4 bytes per dimension. */
+    NONE(0),
+
+    /** IEEE 754 half precision (pgvector halfvec), 2 bytes per dimension. */
+    FLOAT16(1),
+
+    /** One byte per dimension, scaled to a stored value range per dimension. */
+    INT8(2),
+
+    /** One bit per dimension (the sign); needs the rerank step for usable precision. */
+    BINARY(3);
+
+    private final int code;
+
+    QuantizationMode(int code) {
+        this.code = code;
+    }
+
+    /**
+     * Code written to snapshot headers.
+     */
+    public int code() {
+        return code;
+    }
+
+    /**
+     * Size of one quantized vector.
+     *
+     * @param dimensions number of vector dimensions
+     * @return size in bytes
+     */
+    public int bytesPerVector(int dimensions) {
+        return switch (this) {
+            case NONE -> dimensions * Float.BYTES;
+            case FLOAT16 -> dimensions * Short.BYTES;
+            case INT8 -> dimensions;
+            case BINARY -> (dimensions + 7) / 8;
+        };
+    }
+
+    /**
+     * Looks up a mode by its snapshot code.
+     *
+     * @param code the code
+     * @return the mode
+     * @throws IllegalArgumentException if the code is unknown
+     */
+    public static QuantizationMode fromCode(int code) {
+        for (QuantizationMode mode : values()) {
+            if (mode.code == code) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown quantization code: " + code);
+    }
+}
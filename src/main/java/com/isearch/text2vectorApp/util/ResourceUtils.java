@@ -1,19 +1,35 @@
 package com.isearch.text2vectorApp.util;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
 
 /**
  * Utility class for creating Spring Resource objects from MultipartFiles.
  * Reduces code duplication across controllers.
+ * <p>
+ * Small uploads are kept in memory. Larger uploads are spooled to a temporary file
+ * with a streaming copy, so heap use per upload stays bounded regardless of file size.
+ * Spooled resources must be handed back to {@link #release(Resource)} when done.
  */
+@Slf4j
 public class ResourceUtils {
 
     /**
-     * Converts a MultipartFile to a ByteArrayResource with the original filename preserved.
+     * Uploads up to this size stay in memory. Matches spring.servlet.multipart.file-size-threshold,
+     * above which the servlet container has already written the part to disk.
+     */
+    public static final long IN_MEMORY_THRESHOLD = 1024 * 1024;
+
+    /**
+     * Converts a MultipartFile to a Resource with the original filename preserved.
      *
      * @param file the multipart file
      * @return a Resource with the file's content and original filename
@@ -24,6 +40,10 @@ public class ResourceUtils {
             throw new IllegalArgumentException("File is null or empty");
         }
 
+        if (file.getSize() > IN_MEMORY_THRESHOLD) {
+            return spool(file);
+        }
+
         return new ByteArrayResource(file.getBytes()) {
             @Override
             public String getFilename() {
@@ -31,5 +51,87 @@ public class ResourceUtils {
             }
         };
     }
-}
 
+    /**
+     * Converts a MultipartFile to a Resource and detects its file type once.
+     *
+     * @param file the multipart file
+     * @return the resource together with its detected type
+     * @throws IOException if file reading fails
+     */
+    public static TypedResource toTypedResource(MultipartFile file) throws IOException {
+        Resource resource = toResource(file);
+        try {
+            return new TypedResource(resource, FileTypeDetector.detect(resource));
+        } catch (RuntimeException e) {
+            release(resource);
+            throw e;
+        }
+    }
+
+    /**
+     * Releases a resource created by {@link #toResource(MultipartFile)}.
+     * Deletes the temporary file of spooled uploads; in-memory resources are left to the GC.
+     *
+     * @param resource the resource (may be null)
+     */
+    public static void release(Resource resource) {
+        if (resource instanceof SpooledFileResource spooled) {
+            try {
+                Files.deleteIfExists(spooled.getFile().toPath());
+            } catch (IOException e) {
+                log.warn("Could not delete spooled upload {}: {}", spooled.getPath(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Releases a typed resource created by {@link #toTypedResource(MultipartFile)}.
+     *
+     * @param resource the typed resource (may be null)
+     */
+    public static void release(TypedResource resource) {
+        if (resource != null) {
+            release(resource.resource());
+        }
+    }
+
+    /**
+     * Releases several typed resources created by {@link #toTypedResource(MultipartFile)}.
+     *
+     * @param resources the typed resources
+     */
+    public static void releaseAll(Collection<TypedResource> resources) {
+        resources.forEach(ResourceUtils::release);
+    }
+
+    private static Resource spool(MultipartFile file) throws IOException {
+        Path tempFile = Files.createTempFile("text2vector-upload-", ".tmp");
+        try {
+            // Streams the part to disk without materializing it on the heap
+            file.transferTo(tempFile);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        return new SpooledFileResource(tempFile, file.getOriginalFilename());
+    }
+
+    /**
+     * File-backed resource for a spooled upload that reports the original filename.
+     */
+    static class SpooledFileResource extends FileSystemResource {
+
+        private final String originalFilename;
+
+        SpooledFileResource(Path path, String originalFilename) {
+            super(path);
+            this.originalFilename = originalFilename;
+        }
+
+        @Override
+        public String getFilename() {
+            return originalFilename;
+        }
+    }
+}
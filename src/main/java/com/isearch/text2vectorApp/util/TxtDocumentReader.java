@@ -1,38 +1,393 @@
 package com.isearch.text2vectorApp.util;
 
+import com.isearch.text2vectorApp.config.ChunkingProperties;
 import org.springframework.ai.document.Document;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Document reader implementation for TXT (plain text) files.
+ * <p>
+ * Spooled uploads are memory-mapped instead of read into the heap. The charset is detected
+ * from the first bytes (byte order mark, otherwise UTF-8 if the prefix is valid UTF-8, else
+ * windows-1252). Lines are found at byte level and decoded one at a time, and consecutive
+ * lines are packed into documents of about one chunk's token budget. Once a document is half
+ * full it ends at a blank line, or after a line whose hash marks it as a boundary. Both
+ * depend on content only, so after an edit the documents realign at the next such line and
+ * keep their content-derived ids; a document that reaches the full budget without either is
+ * cut wherever that happens. Each document carries byte_start and byte_end metadata (end
+ * exclusive) so that search hits can be traced back to the source file.
  */
 @Component
 public class TxtDocumentReader implements DocumentReader {
+
+    public static final String BYTE_START = "byte_start";
+    public static final String BYTE_END = "byte_end";
+    public static final String CHARSET = "charset";
+
+    private static final int PREFIX_SIZE = 8 * 1024;
+    /** Lines longer than this are cut, so a file without line breaks is still read incrementally. */
+    private static final int MAX_LINE_BYTES = 64 * 1024;
+    /** Size of one mapped window; windows overlap by MAX_LINE_BYTES so every line fits in one. */
+    private static final long WINDOW_SIZE = 1L << 30;
+    private static final Charset WINDOWS_1252 = Charset.forName("windows-1252");
+
+    private final TokenCountEstimator tokenCountEstimator;
+    private final ChunkingProperties properties;
+
+    /**
+     * Creates a reader with the default chunk token budget.
+     */
+    public TxtDocumentReader() {
+        this(new JTokkitTokenCountEstimator(), new ChunkingProperties(true, 400, 50));
+    }
+
+    @Autowired
+    public TxtDocumentReader(TokenCountEstimator tokenCountEstimator, ChunkingProperties properties) {
+        this.tokenCountEstimator = tokenCountEstimator;
+        this.properties = properties;
+    }
+
     @Override
     public List<Document> read(Resource resource) {
-        try (InputStream inputStream = resource.getInputStream()) {
-            String content = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8).trim();
+        try (Stream<Document> documents = stream(resource)) {
+            return documents.toList();
+        }
+    }
 
-            if (content.isEmpty()) {
-                return List.of();
-            }
+    @Override
+    public List<Document> read(Resource resource, DetectedFileType fileType) {
+        try (Stream<Document> documents = stream(resource, fileType)) {
+            return documents.toList();
+        }
+    }
 
-            // Create a single document with all content
-            var doc = new Document(content);
-            String filename = resource.getFilename();
-            doc.getMetadata().put("source", filename != null ? filename : "unknown");
-            doc.getMetadata().put("fileType", "txt");
+    @Override
+    public Stream<Document> stream(Resource resource, DetectedFileType fileType) {
+        // Detection already read the first bytes; the charset is detected from the same ones
+        return lines(resource, ByteBuffer.wrap(fileType.prefix()));
+    }
 
-            return List.of(doc);
+    @Override
+    public Stream<Document> stream(Resource resource) {
+        return lines(resource, null);
+    }
 
+    private Stream<Document> lines(Resource resource, ByteBuffer prefix) {
+        LineIterator lines;
+        try {
+            lines = new LineIterator(TextSource.open(resource), resource.getFilename(), prefix);
         } catch (IOException e) {
             throw new RuntimeException("Failed to read TXT file: " + resource.getFilename(), e);
         }
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(lines, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(lines.source::close);
+    }
+
+    /**
+     * Detects the charset from the first bytes of a file.
+     *
+     * @param prefix the first bytes; position and limit are left unchanged
+     * @return the charset and the length of its byte order mark
+     */
+    static DetectedCharset detectCharset(ByteBuffer prefix) {
+        ByteBuffer bytes = prefix.duplicate();
+        int b0 = bytes.remaining() > 0 ? bytes.get(bytes.position()) & 0xFF : -1;
+        int b1 = bytes.remaining() > 1 ? bytes.get(bytes.position() + 1) & 0xFF : -1;
+        int b2 = bytes.remaining() > 2 ? bytes.get(bytes.position() + 2) & 0xFF : -1;
+
+        if (b0 == 0xEF && b1 == 0xBB && b2 == 0xBF) {
+            return new DetectedCharset(StandardCharsets.UTF_8, 3);
+        }
+        if (b0 == 0xFF && b1 == 0xFE) {
+            return new DetectedCharset(StandardCharsets.UTF_16LE, 2);
+        }
+        if (b0 == 0xFE && b1 == 0xFF) {
+            return new DetectedCharset(StandardCharsets.UTF_16BE, 2);
+        }
+
+        // A multi-byte sequence cut off at the end of the prefix is not an error (endOfInput=false)
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        CoderResult result = decoder.decode(bytes, CharBuffer.allocate(bytes.remaining()), false);
+        return new DetectedCharset(result.isError() ? WINDOWS_1252 : StandardCharsets.UTF_8, 0);
+    }
+
+    record DetectedCharset(Charset charset, int bomLength) {
+    }
+
+    /**
+     * The file content, either memory-mapped in windows or an in-memory buffer.
+     */
+    private static final class TextSource {
+
+        private final FileChannel channel;
+        private final long size;
+        private ByteBuffer window;
+        private long windowStart;
+
+        private TextSource(FileChannel channel, ByteBuffer content, long size) {
+            this.channel = channel;
+            this.window = content;
+            this.size = size;
+        }
+
+        static TextSource open(Resource resource) throws IOException {
+            if (resource.isFile()) {
+                FileChannel channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ);
+                try {
+                    TextSource source = new TextSource(channel, null, channel.size());
+                    source.map(0);
+                    return source;
+                } catch (IOException | RuntimeException e) {
+                    channel.close();
+                    throw e;
+                }
+            }
+            byte[] content = resource.getContentAsByteArray();
+            return new TextSource(null, ByteBuffer.wrap(content), content.length);
+        }
+
+        /**
+         * Returns a buffer holding the range [position, position + MAX_LINE_BYTES] or up to the
+         * end of the file; index 0 of the buffer is {@link #windowStart}.
+         */
+        ByteBuffer at(long position) throws IOException {
+            long windowEnd = windowStart + window.limit();
+            if (position < windowStart || Math.min(size, position + MAX_LINE_BYTES + 1) > windowEnd) {
+                map(position);
+            }
+            return window;
+        }
+
+        long windowStart() {
+            return windowStart;
+        }
+
+        long size() {
+            return size;
+        }
+
+        void close() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        private void map(long position) throws IOException {
+            if (channel == null) {
+                return;
+            }
+            long length = Math.min(size - position, WINDOW_SIZE + MAX_LINE_BYTES + 1);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            windowStart = position;
+        }
+    }
+
+    /**
+     * Splits the source into lines and packs them into token-budgeted documents.
+     */
+    private final class LineIterator implements Iterator<Document> {
+
+        private final TextSource source;
+        private final String filename;
+        private final Charset charset;
+        private final CharsetDecoder decoder;
+        private final int newlineUnit;
+        private final boolean bigEndian;
+        private final int maxTokens;
+        private final Deque<Document> pending = new ArrayDeque<>();
+
+        private final StringBuilder text = new StringBuilder();
+        private long position;
+        private long chunkStart = -1;
+        private long chunkEnd;
+        private int chunkTokens;
+
+        /**
+         * @param prefix the first bytes of the file if already read, else null to read them
+         */
+        LineIterator(TextSource source, String filename, ByteBuffer prefix) throws IOException {
+            this.source = source;
+            this.filename = filename != null ? filename : "unknown";
+
+            if (prefix == null) {
+                prefix = source.at(0).duplicate();
+                prefix.limit((int) Math.min(prefix.limit(), PREFIX_SIZE));
+            }
+            DetectedCharset detected = detectCharset(prefix);
+
+            this.charset = detected.charset();
+            this.decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.newlineUnit = charset == StandardCharsets.UTF_16LE || charset == StandardCharsets.UTF_16BE ? 2 : 1;
+            this.bigEndian = charset == StandardCharsets.UTF_16BE;
+            this.maxTokens = Math.max(1, properties.maxTokens());
+            this.position = detected.bomLength();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (pending.isEmpty()) {
+                try {
+                    advance();
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to read TXT file: " + filename, e);
+                }
+            }
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public Document next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return pending.poll();
+        }
+
+        private void advance() throws IOException {
+            while (pending.isEmpty() && position < source.size()) {
+                long lineStart = position;
+                long lineEnd = lineEnd(lineStart);
+                position = lineEnd;
+
+                String line = decode(lineStart, lineEnd);
+                if (line.isBlank()) {
+                    // Paragraph boundary: a good place to end a document that is already half full
+                    if (chunkTokens >= maxTokens / 2) {
+                        flush();
+                    } else if (chunkStart >= 0) {
+                        text.append(line);
+                    }
+                    continue;
+                }
+
+                int tokens = tokenCountEstimator.estimate(line);
+                if (chunkStart >= 0 && chunkTokens + tokens > maxTokens) {
+                    flush();
+                }
+                if (chunkStart < 0) {
+                    chunkStart = lineStart;
+                }
+                text.append(line);
+                chunkTokens += tokens;
+                chunkEnd = lineEnd;
+                if (chunkTokens >= maxTokens / 2 && isBoundary(line, tokens)) {
+                    flush();
+                }
+            }
+            if (pending.isEmpty()) {
+                flush();
+            }
+        }
+
+        /**
+         * Whether a document may end after this line, decided by the line's content alone so
+         * that the same lines end documents wherever they move in the file. A line is chosen
+         * with a probability proportional to its tokens, about once per quarter budget.
+         */
+        private boolean isBoundary(String line, int tokens) {
+            int hash = line.hashCode() * 0x9E3779B9;
+            hash ^= hash >>> 16;
+            long threshold = (1L << 32) * tokens / Math.max(1, maxTokens / 4);
+            return Integer.toUnsignedLong(hash) < threshold;
+        }
+
+        /**
+         * Finds the end of the line starting at {@code start}, including its line break.
+         */
+        private long lineEnd(long start) throws IOException {
+            ByteBuffer window = source.at(start);
+            int from = (int) (start - source.windowStart());
+            int limit = (int) Math.min(window.limit(), from + (long) MAX_LINE_BYTES);
+
+            for (int i = from; i + newlineUnit <= limit; i += newlineUnit) {
+                if (isNewline(window, i)) {
+                    return source.windowStart() + i + newlineUnit;
+                }
+            }
+            if (source.windowStart() + limit >= source.size()) {
+                return source.size();
+            }
+
+            // Line longer than MAX_LINE_BYTES: cut it, without splitting a UTF-8 sequence
+            int cut = limit;
+            if (newlineUnit == 1 && charset == StandardCharsets.UTF_8) {
+                while (cut > from + 1 && (window.get(cut) & 0xC0) == 0x80) {
+                    cut--;
+                }
+            }
+            return source.windowStart() + cut;
+        }
+
+        private boolean isNewline(ByteBuffer window, int index) {
+            if (newlineUnit == 1) {
+                return window.get(index) == '\n';
+            }
+            byte high = bigEndian ? window.get(index) : window.get(index + 1);
+            byte low = bigEndian ? window.get(index + 1) : window.get(index);
+            return high == 0 && low == '\n';
+        }
+
+        private String decode(long start, long end) throws IOException {
+            ByteBuffer window = source.at(start);
+            int from = (int) (start - source.windowStart());
+            ByteBuffer slice = window.slice(from, (int) (end - start));
+            try {
+                return decoder.decode(slice).toString();
+            } catch (CharacterCodingException e) {
+                // Not reached with REPLACE actions
+                throw new IOException(e);
+            }
+        }
+
+        private void flush() {
+            String content = text.toString().strip();
+            if (!content.isEmpty()) {
+                var doc = new Document(content);
+                doc.getMetadata().put("source", filename);
+                doc.getMetadata().put("fileType", "txt");
+                doc.getMetadata().put(CHARSET, charset.name());
+                doc.getMetadata().put(BYTE_START, chunkStart);
+                doc.getMetadata().put(BYTE_END, chunkEnd);
+                pending.add(doc);
+            }
+            text.setLength(0);
+            chunkStart = -1;
+            chunkTokens = 0;
+        }
     }
 }
@@ -0,0 +1,22 @@
+package com.isearch.text2vectorApp.util;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * A resource together with its detected file type.
+ *
+ * @param resource the document resource
+ * @param type     the file type detected for it
+ */
+public record TypedResource(Resource resource, DetectedFileType type) {
+
+    /**
+     * Returns the original filename, or "unknown" if the resource has none.
+     *
+     * @return the filename
+     */
+    public String filename() {
+        String filename = resource.getFilename();
+        return filename != null ? filename : "unknown";
+    }
+}
@@ -0,0 +1,164 @@
+package com.isearch.text2vectorApp.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Compact encodings of embedding vectors, as an alternative to JSON float arrays.
+ * All multi-byte values are little-endian.
+ * <p>
+ * A single vector is encoded as its elements in the requested {@link VectorPrecision}.
+ * INT8 vectors start with a float32 scale and offset; element {@code i} decodes to
+ * {@code (q[i] + 128) * scale + offset}.
+ * <p>
+ * The {@code application/octet-stream} response ({@link #writeFrames}) is framed as:
+ * <pre>
+ * header:   "T2V1" | uint8 precision | 3 reserved bytes | int32 dimensions | int32 files
+ * per file: uint16 filename length | filename (UTF-8) | uint16 fileType length | fileType (UTF-8)
+ *           | int32 chunks | chunks * encoded vector
+ * </pre>
+ */
+public final class VectorCodec {
+
+    private static final byte[] MAGIC = {'T', '2', 'V', '1'};
+    private static final int HEADER_SIZE = 16;
+    private static final int MAX_STRING_LENGTH = 0xFFFF;
+
+    private VectorCodec() {
+    }
+
+    /**
+     * A document's vectors as written by {@link #writeFrames}.
+     */
+    public record Frame(String filename, String fileType, List<float[]> vectors) {
+    }
+
+    /**
+     * Encodes every vector and returns it as a base64 string, for use in JSON responses.
+     *
+     * @param vectors   the vectors
+     * @param precision element type of the encoding
+     * @return one base64 string per vector, in input order
+     */
+    public static List<String> toBase64(List<float[]> vectors, VectorPrecision precision) {
+        if (vectors.isEmpty()) {
+            return List.of();
+        }
+        Base64.Encoder encoder = Base64.getEncoder();
+        ByteBuffer buffer = newBuffer(precision.encodedSize(vectors.getFirst().length));
+        return vectors.stream()
+                .map(vector -> encoder.encodeToString(encode(vector, precision, buffer).array()))
+                .toList();
+    }
+
+    /**
+     * Writes documents and their vectors in the framed binary format. A single buffer
+     * of one vector's size is reused for all vectors.
+     *
+     * @param out       the response stream
+     * @param frames    documents in response order
+     * @param precision element type of the encoding
+     * @throws IOException if writing fails
+     */
+    public static void writeFrames(OutputStream out, List<Frame> frames, VectorPrecision precision) throws IOException {
+        int dimensions = dimensions(frames);
+
+        ByteBuffer header = newBuffer(HEADER_SIZE);
+        header.put(MAGIC).put((byte) precision.code()).put(new byte[3]).putInt(dimensions).putInt(frames.size());
+        out.write(header.array());
+
+        ByteBuffer buffer = newBuffer(precision.encodedSize(dimensions));
+        for (Frame frame : frames) {
+            writeString(out, frame.filename());
+            writeString(out, frame.fileType());
+            out.write(newBuffer(Integer.BYTES).putInt(frame.vectors().size()).array());
+            for (float[] vector : frame.vectors()) {
+                out.write(encode(vector, precision, buffer).array());
+            }
+        }
+    }
+
+    /**
+     * Size of the output of {@link #writeFrames}, for the Content-Length header.
+     *
+     * @param frames    documents in response order
+     * @param precision element type of the encoding
+     * @return size in bytes
+     */
+    public static long framedSize(List<Frame> frames, VectorPrecision precision) {
+        int vectorSize = precision.encodedSize(dimensions(frames));
+        long size = HEADER_SIZE;
+        for (Frame frame : frames) {
+            size += Short.BYTES + utf8(frame.filename()).length
+                    + Short.BYTES + utf8(frame.fileType()).length
+                    + Integer.BYTES + (long) frame.vectors().size() * vectorSize;
+        }
+        return size;
+    }
+
+    /**
+     * Dimensions of the vectors in the frames; 0 if there are no vectors.
+     */
+    public static int dimensions(List<Frame> frames) {
+        return frames.stream()
+                .flatMap(frame -> frame.vectors().stream())
+                .mapToInt(vector -> vector.length)
+                .findFirst()
+                .orElse(0);
+    }
+
+    /**
+     * Encodes a vector into the given buffer, which is cleared first and must hold
+     * {@link VectorPrecision#encodedSize(int)} bytes.
+     */
+    static ByteBuffer encode(float[] vector, VectorPrecision precision, ByteBuffer buffer) {
+        if (buffer.capacity() != precision.encodedSize(vector.length)) {
+            throw new IllegalStateException("Vectors of one response must have the same dimensions");
+        }
+        buffer.clear();
+        switch (precision) {
+            case FLOAT32 -> buffer.asFloatBuffer().put(vector);
+            case FLOAT16 -> {
+                for (float value : vector) {
+                    buffer.putShort(Float.floatToFloat16(value));
+                }
+            }
+            case INT8 -> {
+                float min = Float.POSITIVE_INFINITY;
+                float max = Float.NEGATIVE_INFINITY;
+                for (float value : vector) {
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+                float scale = max > min ? (max - min) / 255f : 1f;
+                float offset = vector.length > 0 ? min : 0f;
+                buffer.putFloat(scale).putFloat(offset);
+                for (float value : vector) {
+                    buffer.put((byte) (Math.round((value - offset) / scale) - 128));
+                }
+            }
+        }
+        return buffer;
+    }
+
+    private static ByteBuffer newBuffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void writeString(OutputStream out, String value) throws IOException {
+        byte[] bytes = utf8(value);
+        out.write(newBuffer(Short.BYTES).putShort((short) bytes.length).array());
+        out.write(bytes);
+    }
+
+    private static byte[] utf8(String value) {
+        byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        return bytes.length > MAX_STRING_LENGTH ? Arrays.copyOf(bytes, MAX_STRING_LENGTH) : bytes;
+    }
+}
@@ -0,0 +1,60 @@
+package com.isearch.text2vectorApp.util;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Element type of an encoded embedding vector, see {@link VectorCodec}.
+ */
+public enum VectorPrecision {
+
+    /** IEEE 754 single precision, 4 bytes per dimension (lossless). */
+    FLOAT32(0, Float.BYTES),
+
+    /** IEEE 754 half precision, 2 bytes per dimension. */
+    FLOAT16(1, Short.BYTES),
+
+    /** Signed byte per dimension, preceded by a float32 scale and offset per vector. */
+    INT8(2, Byte.BYTES);
+
+    private final int code;
+    private final int bytesPerDimension;
+
+    VectorPrecision(int code, int bytesPerDimension) {
+        this.code = code;
+        this.bytesPerDimension = bytesPerDimension;
+    }
+
+    /**
+     * Code written to the binary header.
+     */
+    public int code() {
+        return code;
+    }
+
+    /**
+     * Encoded size of a single vector.
+     *
+     * @param dimensions number of vector dimensions
+     * @return size in bytes
+     */
+    public int encodedSize(int dimensions) {
+        int header = this == INT8 ? 2 * Float.BYTES : 0;
+        return header + dimensions * bytesPerDimension;
+    }
+
+    /**
+     * Parses a request parameter value (case-insensitive).
+     *
+     * @param value the parameter value, e.g. "float16"
+     * @return the precision
+     * @throws IllegalArgumentException if the value is not a known precision
+     */
+    public static VectorPrecision from(String value) {
+        return Arrays.stream(values())
+                .filter(precision -> precision.name().equals(value.trim().toUpperCase(Locale.ROOT)))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Unsupported precision: " + value + ". Supported precisions: float32, float16, int8"));
+    }
+}
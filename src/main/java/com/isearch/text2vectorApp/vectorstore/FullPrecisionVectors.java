@@ -0,0 +1,138 @@
+package com.isearch.text2vectorApp.vectorstore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * float32 copies of quantized vectors, used only to rerank search candidates.
+ * <p>
+ * Backed by a file that is memory-mapped one segment at a time, so the full vectors sit in
+ * the page cache and are read from disk on demand instead of occupying the heap or
+ * off-heap memory that holds the quantized graph. The file is append-only: vector n is
+ * stored at byte n * dimensions * 4. Compacting the index writes a new file.
+ */
+final class FullPrecisionVectors implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final int dimensions;
+    private final int segmentShift;
+    private final int segmentMask;
+    private final Object growLock = new Object();
+    private volatile ByteBuffer[] segments = new ByteBuffer[0];
+
+    private FullPrecisionVectors(FileChannel channel, int dimensions, int segmentVectors) {
+        this.channel = channel;
+        this.dimensions = dimensions;
+        this.segmentShift = 32 - Integer.numberOfLeadingZeros(Math.max(1, segmentVectors) - 1);
+        this.segmentMask = (1 << segmentShift) - 1;
+    }
+
+    /**
+     * Opens (or creates) a vector file; existing vectors are kept.
+     *
+     * @param path           the file
+     * @param dimensions     vector dimensions
+     * @param segmentVectors vectors per mapped segment
+     */
+    static FullPrecisionVectors open(Path path, int dimensions, int segmentVectors) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        return new FullPrecisionVectors(channel, dimensions, segmentVectors);
+    }
+
+    /**
+     * Keeps the vectors in direct buffers instead of a file.
+     */
+    static FullPrecisionVectors inMemory(int dimensions, int segmentVectors) {
+        return new FullPrecisionVectors(null, dimensions, segmentVectors);
+    }
+
+    void put(int node, float[] vector) {
+        ByteBuffer segment = segmentFor(node);
+        int offset = (node & segmentMask) * dimensions * Float.BYTES;
+        for (int i = 0; i < dimensions; i++) {
+            segment.putFloat(offset + i * Float.BYTES, vector[i]);
+        }
+    }
+
+    float[] get(int node) {
+        ByteBuffer segment = segmentFor(node);
+        int offset = (node & segmentMask) * dimensions * Float.BYTES;
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = segment.getFloat(offset + i * Float.BYTES);
+        }
+        return vector;
+    }
+
+    float dot(float[] query, int node) {
+        ByteBuffer segment = segmentFor(node);
+        int offset = (node & segmentMask) * dimensions * Float.BYTES;
+        float dot = 0;
+        for (int i = 0; i < dimensions; i++) {
+            dot += query[i] * segment.getFloat(offset + i * Float.BYTES);
+        }
+        return dot;
+    }
+
+    /**
+     * Writes mapped changes to the file, so that a snapshot taken afterwards can rely on it.
+     */
+    void force() {
+        for (ByteBuffer segment : segments) {
+            if (segment instanceof MappedByteBuffer mapped) {
+                mapped.force();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private ByteBuffer segmentFor(int node) {
+        int index = node >>> segmentShift;
+        ByteBuffer[] current = segments;
+        if (index < current.length) {
+            return current[index];
+        }
+        synchronized (growLock) {
+            current = segments;
+            if (index >= current.length) {
+                ByteBuffer[] grown = Arrays.copyOf(current, index + 1);
+                int segmentBytes = (segmentMask + 1) * dimensions * Float.BYTES;
+                for (int i = current.length; i <= index; i++) {
+                    grown[i] = allocate((long) i * segmentBytes, segmentBytes);
+                }
+                segments = grown;
+            }
+            return segments[index];
+        }
+    }
+
+    private ByteBuffer allocate(long position, int size) {
+        if (channel == null) {
+            return ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        try {
+            // Mapping beyond the end grows the file
+            return channel.map(FileChannel.MapMode.READ_WRITE, position, size).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map full-precision vectors", e);
+        }
+    }
+}
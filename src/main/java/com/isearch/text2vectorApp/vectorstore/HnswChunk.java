@@ -0,0 +1,9 @@
+package com.isearch.text2vectorApp.vectorstore;
+
+import java.util.Map;
+
+/**
+ * A stored chunk of the HNSW vector store: document id, text and metadata.
+ */
+record HnswChunk(String id, String text, Map<String, Object> metadata) {
+}
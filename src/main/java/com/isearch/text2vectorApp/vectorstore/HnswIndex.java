@@ -0,0 +1,711 @@
+package com.isearch.text2vectorApp.vectorstore;
+
+import com.isearch.text2vectorApp.util.QuantizationMode;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntPredicate;
+
+/**
+ * Hierarchical navigable small world graph over unit-length vectors, searched by inner product
+ * (cosine similarity for normalized vectors).
+ * <p>
+ * Vectors live off-heap in fixed-size segments of direct (or memory-mapped) buffers, indexed by
+ * node number, encoded by a {@link VectorQuantizer}. With quantization, float32 copies can be
+ * kept in {@link FullPrecisionVectors} to rerank the candidates of a search; the graph itself
+ * is built from the encoded vectors only. Inserts may run concurrently: a node is published
+ * before it is linked, and each neighbor list is replaced copy-on-write under the lock of its
+ * node, so searches read the graph without locking. Deleted nodes stay in the graph as
+ * connectors and are only left out of results, until the owner rebuilds the graph from the
+ * live nodes into an {@link #emptyCopy}.
+ * <p>
+ * Snapshot layout (little-endian header and vectors): magic "T2VH", version, dimensions, m,
+ * node count, entry node, entry level, graph offset, quantization code, vectors offset; the
+ * INT8 ranges, if any; the encoded vectors of all nodes back to back, so whole segments can be
+ * mapped directly on load; then the graph and chunk data.
+ */
+final class HnswIndex {
+
+    private static final int MAGIC = 0x48563254; // "T2VH" read as a little-endian int
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+    private static final int MAX_LEVEL = 16;
+    private static final int[] NO_LINKS = new int[0];
+    private static final Comparator<Hit> BEST_FIRST = Comparator.comparingDouble(Hit::similarity).reversed();
+    private static final Comparator<Hit> WORST_FIRST = Comparator.comparingDouble(Hit::similarity);
+
+    private final int dimensions;
+    private final int m;
+    private final int maxLinks0;
+    private final int efConstruction;
+    private final double levelFactor;
+    private final int segmentShift;
+    private final int segmentMask;
+    private final VectorQuantizer quantizer;
+    private final FullPrecisionVectors fullVectors;
+
+    private final AtomicInteger nextNode = new AtomicInteger();
+    private final AtomicInteger deletedNodes = new AtomicInteger();
+    private final Object growLock = new Object();
+    private final Object entryLock = new Object();
+    private volatile Segment[] segments = new Segment[0];
+    private volatile EntryPoint entryPoint;
+
+    /**
+     * Creates an index of float32 vectors.
+     */
+    HnswIndex(int dimensions, int m, int efConstruction, int segmentVectors) {
+        this(dimensions, m, efConstruction, segmentVectors, QuantizationMode.NONE, null);
+    }
+
+    /**
+     * @param dimensions     vector dimensions
+     * @param m              links per node on the upper layers (twice as many on layer 0)
+     * @param efConstruction candidate list size while inserting
+     * @param segmentVectors vectors per off-heap segment, rounded up to a power of two
+     * @param mode           encoding of the vectors in the graph
+     * @param fullVectors    float32 copies for reranking, or null to rank by the encoded vectors
+     */
+    HnswIndex(int dimensions, int m, int efConstruction, int segmentVectors, QuantizationMode mode,
+              FullPrecisionVectors fullVectors) {
+        if (dimensions < 1 || m < 2) {
+            throw new IllegalArgumentException("HNSW needs dimensions >= 1 and m >= 2");
+        }
+        this.dimensions = dimensions;
+        this.m = m;
+        this.maxLinks0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.levelFactor = 1 / Math.log(m);
+        this.segmentShift = 32 - Integer.numberOfLeadingZeros(Math.max(1, segmentVectors) - 1);
+        this.segmentMask = (1 << segmentShift) - 1;
+        this.quantizer = new VectorQuantizer(mode, dimensions);
+        this.fullVectors = fullVectors;
+        if ((long) (segmentMask + 1) * quantizer.bytesPerVector() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("An HNSW segment must be smaller than 2GB");
+        }
+    }
+
+    record Hit(int node, float similarity) {
+    }
+
+    private record EntryPoint(int node, int level) {
+    }
+
+    /**
+     * Adds a vector to the graph.
+     *
+     * @param vector unit-length vector
+     * @param chunk  the chunk stored with it
+     * @return the node number
+     */
+    int add(float[] vector, HnswChunk chunk) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions, got " + vector.length);
+        }
+        int node = nextNode.getAndIncrement();
+        Segment segment = segmentFor(node);
+        quantizer.encode(vector, segment.codes, (node & segmentMask) * quantizer.bytesPerVector());
+        if (fullVectors != null) {
+            fullVectors.put(node, vector);
+        }
+
+        int level = randomLevel();
+        Node created = new Node(chunk, level);
+        segment.nodes.set(node & segmentMask, created);
+
+        EntryPoint entry = entryPoint;
+        if (entry == null) {
+            synchronized (entryLock) {
+                entry = entryPoint;
+                if (entry == null) {
+                    entryPoint = new EntryPoint(node, level);
+                    return node;
+                }
+            }
+        }
+
+        VectorQuantizer.Query query = quantizer.prepare(vector);
+        int current = entry.node();
+        for (int layer = entry.level(); layer > level; layer--) {
+            current = greedyClosest(query, current, layer);
+        }
+        for (int layer = Math.min(level, entry.level()); layer >= 0; layer--) {
+            List<Hit> candidates = searchLayer(query, current, efConstruction, layer, null);
+            int[] selected = selectNeighbors(candidates, m);
+            int maxLinks = layer == 0 ? maxLinks0 : m;
+            // Merged rather than set: concurrent inserts may already have linked to this node
+            addLinks(node, selected, layer, maxLinks);
+            for (int neighbor : selected) {
+                addLinks(neighbor, new int[]{node}, layer, maxLinks);
+            }
+            current = candidates.get(0).node();
+        }
+
+        if (level > entry.level()) {
+            synchronized (entryLock) {
+                if (level > entryPoint.level()) {
+                    entryPoint = new EntryPoint(node, level);
+                }
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Finds the nodes most similar to a query.
+     *
+     * @param query  unit-length query vector
+     * @param k      number of results
+     * @param ef     candidate list size; at least k
+     * @param accept which live nodes may be returned, or null for all
+     * @return up to k live nodes, best first
+     */
+    List<Hit> search(float[] query, int k, int ef, IntPredicate accept) {
+        return search(query, k, k, ef, accept);
+    }
+
+    /**
+     * Finds the nodes most similar to a query. With full-precision vectors, the best
+     * {@code candidates} nodes by encoded similarity are reranked by exact similarity.
+     *
+     * @param query      unit-length query vector
+     * @param k          number of results
+     * @param candidates number of nodes to rerank; at least k
+     * @param ef         candidate list size; at least candidates
+     * @param accept     which live nodes may be returned, or null for all
+     * @return up to k live nodes, best first
+     */
+    List<Hit> search(float[] query, int k, int candidates, int ef, IntPredicate accept) {
+        EntryPoint entry = entryPoint;
+        if (entry == null || k < 1) {
+            return List.of();
+        }
+        VectorQuantizer.Query prepared = quantizer.prepare(query);
+        int current = entry.node();
+        for (int layer = entry.level(); layer > 0; layer--) {
+            current = greedyClosest(prepared, current, layer);
+        }
+
+        IntPredicate live = node -> !node(node).deleted && (accept == null || accept.test(node));
+        int wanted = fullVectors != null ? Math.max(k, candidates) : k;
+        List<Hit> hits = searchLayer(prepared, current, Math.max(ef, wanted), 0, live);
+        if (fullVectors != null) {
+            hits = hits.stream()
+                    .limit(wanted)
+                    .map(hit -> new Hit(hit.node(), fullVectors.dot(query, hit.node())))
+                    .sorted(BEST_FIRST)
+                    .toList();
+        }
+        return hits.size() > k ? hits.subList(0, k) : hits;
+    }
+
+    /**
+     * Ranks every live node exhaustively, by exact similarity if full-precision vectors are
+     * kept. Meant for filters that accept so few nodes that the graph search would traverse
+     * most of the graph anyway; {@code accept} is only asked about nodes that would make the
+     * results.
+     *
+     * @param query  unit-length query vector
+     * @param k      number of results
+     * @param accept which live nodes may be returned
+     * @return up to k live nodes, best first
+     */
+    List<Hit> scan(float[] query, int k, IntPredicate accept) {
+        if (k < 1) {
+            return List.of();
+        }
+        VectorQuantizer.Query prepared = fullVectors == null ? quantizer.prepare(query) : null;
+        PriorityQueue<Hit> results = new PriorityQueue<>(WORST_FIRST);
+        int count = nextNode.get();
+        for (int node = 0; node < count; node++) {
+            if (!isPublished(node) || node(node).deleted) {
+                continue;
+            }
+            float similarity = fullVectors != null ? fullVectors.dot(query, node) : similarity(prepared, node);
+            if ((results.size() < k || similarity > results.peek().similarity()) && accept.test(node)) {
+                results.add(new Hit(node, similarity));
+                if (results.size() > k) {
+                    results.poll();
+                }
+            }
+        }
+        List<Hit> hits = new ArrayList<>(results);
+        hits.sort(BEST_FIRST);
+        return hits;
+    }
+
+    /**
+     * Sets the INT8 value ranges from a sample, if not done yet. Call before the first add
+     * with a representative batch; if it is too small, or none is given, the first add sets
+     * fixed ranges that fit unit vectors instead.
+     *
+     * @param sample unit-length vectors
+     */
+    void calibrate(List<float[]> sample) {
+        quantizer.calibrate(sample);
+    }
+
+    /**
+     * The vector of a node: the full-precision copy if kept, else the decoded vector.
+     */
+    float[] vector(int node) {
+        return fullVectors != null ? fullVectors.get(node) : decoded(node);
+    }
+
+    /**
+     * Bytes per vector held in memory by the graph (full-precision copies excluded).
+     */
+    int bytesPerVector() {
+        return quantizer.bytesPerVector();
+    }
+
+    /**
+     * Marks a node as deleted; it keeps routing searches but is no longer returned.
+     */
+    void delete(int node) {
+        Node stored = node(node);
+        synchronized (stored) {
+            if (!stored.deleted) {
+                stored.deleted = true;
+                deletedNodes.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Number of deleted nodes still in the graph.
+     */
+    int deletedCount() {
+        return deletedNodes.get();
+    }
+
+    /**
+     * An empty index with the same settings, e.g. to rebuild this one from its live nodes while
+     * it keeps serving searches. Its INT8 ranges are not calibrated yet.
+     *
+     * @param fullVectors float32 copies for the new index, or null to rank by the encoded vectors
+     */
+    HnswIndex emptyCopy(FullPrecisionVectors fullVectors) {
+        return new HnswIndex(dimensions, m, efConstruction, segmentMask + 1, quantizer.mode(), fullVectors);
+    }
+
+    boolean isDeleted(int node) {
+        return node(node).deleted;
+    }
+
+    HnswChunk chunk(int node) {
+        return node(node).chunk;
+    }
+
+    /**
+     * Replaces the chunk data of a node, e.g. with refreshed metadata; the vector is kept.
+     */
+    void replaceChunk(int node, HnswChunk chunk) {
+        node(node).chunk = chunk;
+    }
+
+    /**
+     * Number of nodes ever added, including deleted and not yet published ones.
+     */
+    int size() {
+        return nextNode.get();
+    }
+
+    /**
+     * Whether a node has been published, i.e. its chunk and vector can be read.
+     */
+    boolean isPublished(int node) {
+        Segment[] current = segments;
+        int index = node >>> segmentShift;
+        return index < current.length && current[index].nodes.get(node & segmentMask) != null;
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Writes the index to a file, atomically replacing an earlier snapshot. Nodes added while
+     * the snapshot is written are left out.
+     *
+     * @param path  the snapshot file
+     * @param codec writes the chunk data of live nodes
+     */
+    void save(Path path, ChunkCodec codec) throws IOException {
+        EntryPoint entry = entryPoint;
+        int count = nextNode.get();
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        if (fullVectors != null) {
+            fullVectors.force();
+        }
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer ranges = ByteBuffer.allocate(quantizer.rangesSize()).order(ByteOrder.LITTLE_ENDIAN);
+            quantizer.writeRanges(ranges);
+            channel.write(ranges.flip(), HEADER_SIZE);
+            long vectorsOffset = HEADER_SIZE + quantizer.rangesSize();
+
+            channel.position(vectorsOffset);
+            Segment[] current = segments;
+            int segmentVectors = segmentMask + 1;
+            for (int first = 0; first < count; first += segmentVectors) {
+                ByteBuffer bytes = current[first >>> segmentShift].codes.duplicate();
+                bytes.position(0).limit(Math.min(segmentVectors, count - first) * quantizer.bytesPerVector());
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            }
+
+            long graphOffset = channel.position();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            for (int node = 0; node < count; node++) {
+                Node stored = isPublished(node) ? node(node) : null;
+                boolean live = stored != null && !stored.deleted;
+                out.writeBoolean(live);
+                out.writeByte(stored != null ? stored.links.length() - 1 : 0);
+                for (int layer = 0; stored != null && layer < stored.links.length(); layer++) {
+                    // Links to nodes added after the snapshot started are dropped
+                    int[] links = Arrays.stream(stored.links.get(layer)).filter(link -> link < count).toArray();
+                    out.writeShort(links.length);
+                    for (int link : links) {
+                        out.writeInt(link);
+                    }
+                }
+                if (stored == null) {
+                    out.writeShort(0);
+                }
+                if (live) {
+                    codec.write(out, stored.chunk);
+                }
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(dimensions).putInt(m).putInt(count)
+                    .putInt(entry != null ? entry.node() : -1)
+                    .putInt(entry != null ? entry.level() : -1)
+                    .putLong(graphOffset)
+                    .putInt(quantizer.mode().code())
+                    .putLong(vectorsOffset)
+                    .flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a snapshot. Full vector segments are mapped from the file rather than copied, so
+     * the operating system pages them in on first use.
+     *
+     * @param path           the snapshot file
+     * @param dimensions     expected vector dimensions
+     * @param m              links per node for further inserts
+     * @param efConstruction candidate list size for further inserts
+     * @param segmentVectors vectors per segment
+     * @param mode           expected encoding of the vectors
+     * @param fullVectors    float32 copies saved with the snapshot, or null
+     * @param codec          reads the chunk data of live nodes
+     * @return the restored index
+     */
+    static HnswIndex load(Path path, int dimensions, int m, int efConstruction, int segmentVectors,
+                          QuantizationMode mode, FullPrecisionVectors fullVectors, ChunkCodec codec)
+            throws IOException {
+        HnswIndex index = new HnswIndex(dimensions, m, efConstruction, segmentVectors, mode, fullVectors);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                // read the full header
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not an HNSW snapshot: " + path);
+            }
+            int fileDimensions = header.getInt();
+            header.getInt(); // m of the writer; existing lists are pruned to the new m on update
+            int count = header.getInt();
+            int entryNode = header.getInt();
+            int entryLevel = header.getInt();
+            long graphOffset = header.getLong();
+            QuantizationMode fileMode = QuantizationMode.fromCode(header.getInt());
+            long vectorsOffset = header.getLong();
+            if (fileDimensions != dimensions) {
+                throw new IOException("Snapshot has " + fileDimensions + " dimensions, expected " + dimensions);
+            }
+            if (fileMode != mode) {
+                throw new IOException("Snapshot uses " + fileMode + " quantization, configured is " + mode);
+            }
+            index.quantizer.readRanges(channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE,
+                    index.quantizer.rangesSize()).order(ByteOrder.LITTLE_ENDIAN));
+
+            int perSegment = index.segmentMask + 1;
+            long segmentBytes = (long) perSegment * index.quantizer.bytesPerVector();
+            Segment[] loaded = new Segment[(count + perSegment - 1) / perSegment];
+            for (int i = 0; i < loaded.length; i++) {
+                long offset = vectorsOffset + i * segmentBytes;
+                if ((long) (i + 1) * perSegment <= count) {
+                    // Full segments never receive writes, so a read-only mapping is enough
+                    loaded[i] = new Segment(channel.map(FileChannel.MapMode.READ_ONLY, offset, segmentBytes),
+                            perSegment);
+                } else {
+                    long tailBytes = (long) (count - i * perSegment) * index.quantizer.bytesPerVector();
+                    ByteBuffer tail = ByteBuffer.allocateDirect((int) segmentBytes);
+                    tail.put(channel.map(FileChannel.MapMode.READ_ONLY, offset, tailBytes)).clear();
+                    loaded[i] = new Segment(tail, perSegment);
+                }
+            }
+            index.segments = loaded;
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(channel.position(graphOffset))));
+            for (int node = 0; node < count; node++) {
+                boolean live = in.readBoolean();
+                int level = in.readByte();
+                Node restored = new Node(null, level);
+                for (int layer = 0; layer <= level; layer++) {
+                    int[] links = new int[in.readUnsignedShort()];
+                    for (int i = 0; i < links.length; i++) {
+                        links[i] = in.readInt();
+                    }
+                    restored.links.set(layer, links);
+                }
+                if (live) {
+                    restored.chunk = codec.read(in);
+                } else {
+                    restored.deleted = true;
+                    index.deletedNodes.incrementAndGet();
+                }
+                loaded[node >>> index.segmentShift].nodes.set(node & index.segmentMask, restored);
+            }
+
+            index.nextNode.set(count);
+            index.entryPoint = entryNode >= 0 ? new EntryPoint(entryNode, entryLevel) : null;
+        }
+        return index;
+    }
+
+    /**
+     * Reads and writes the chunk data of a snapshot.
+     */
+    interface ChunkCodec {
+
+        void write(DataOutputStream out, HnswChunk chunk) throws IOException;
+
+        HnswChunk read(DataInputStream in) throws IOException;
+    }
+
+    private int greedyClosest(VectorQuantizer.Query query, int start, int layer) {
+        int current = start;
+        float best = similarity(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int neighbor : links(current, layer)) {
+                float similarity = similarity(query, neighbor);
+                if (similarity > best) {
+                    best = similarity;
+                    current = neighbor;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search on one layer. Nodes rejected by {@code accept} are still traversed,
+     * so that selective filters do not cut the search off; null accepts every node.
+     *
+     * @return up to ef accepted nodes, best first
+     */
+    private List<Hit> searchLayer(VectorQuantizer.Query query, int entry, int ef, int layer, IntPredicate accept) {
+        BitSet visited = new BitSet();
+        PriorityQueue<Hit> candidates = new PriorityQueue<>(BEST_FIRST);
+        PriorityQueue<Hit> results = new PriorityQueue<>(WORST_FIRST);
+
+        Hit start = new Hit(entry, similarity(query, entry));
+        visited.set(entry);
+        candidates.add(start);
+        if (accept == null || accept.test(entry)) {
+            results.add(start);
+        }
+
+        while (!candidates.isEmpty()) {
+            Hit candidate = candidates.poll();
+            if (results.size() >= ef && candidate.similarity() < results.peek().similarity()) {
+                break;
+            }
+            for (int neighbor : links(candidate.node(), layer)) {
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float similarity = similarity(query, neighbor);
+                if (results.size() < ef || similarity > results.peek().similarity()) {
+                    Hit hit = new Hit(neighbor, similarity);
+                    candidates.add(hit);
+                    if (accept == null || accept.test(neighbor)) {
+                        results.add(hit);
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(results);
+        hits.sort(BEST_FIRST);
+        return hits;
+    }
+
+    /**
+     * Neighbor selection heuristic of the HNSW paper: a candidate is kept only if it is closer
+     * to the base node than to every neighbor kept so far, which spreads links across clusters.
+     *
+     * @param candidates candidates, best first, with their similarity to the base node
+     */
+    private int[] selectNeighbors(List<Hit> candidates, int max) {
+        int[] selected = new int[Math.min(max, candidates.size())];
+        int count = 0;
+        for (Hit candidate : candidates) {
+            if (count == selected.length) {
+                break;
+            }
+            VectorQuantizer.Query vector = count > 0 ? quantizer.prepare(decoded(candidate.node())) : null;
+            boolean diverse = true;
+            for (int i = 0; i < count && diverse; i++) {
+                diverse = similarity(vector, selected[i]) <= candidate.similarity();
+            }
+            if (diverse) {
+                selected[count++] = candidate.node();
+            }
+        }
+        return count == selected.length ? selected : Arrays.copyOf(selected, count);
+    }
+
+    private void addLinks(int from, int[] to, int layer, int maxLinks) {
+        Node node = node(from);
+        synchronized (node) {
+            int[] current = node.links.get(layer);
+            int[] added = Arrays.stream(to)
+                    .filter(link -> Arrays.stream(current).noneMatch(existing -> existing == link))
+                    .toArray();
+            int[] updated;
+            if (current.length + added.length <= maxLinks) {
+                updated = Arrays.copyOf(current, current.length + added.length);
+                System.arraycopy(added, 0, updated, current.length, added.length);
+            } else {
+                VectorQuantizer.Query base = quantizer.prepare(decoded(from));
+                List<Hit> candidates = new ArrayList<>(current.length + added.length);
+                for (int link : current) {
+                    candidates.add(new Hit(link, similarity(base, link)));
+                }
+                for (int link : added) {
+                    candidates.add(new Hit(link, similarity(base, link)));
+                }
+                candidates.sort(BEST_FIRST);
+                updated = selectNeighbors(candidates, maxLinks);
+            }
+            // Readers see either the old or the new list, never a partly written one
+            node.links.set(layer, updated);
+        }
+    }
+
+    private int[] links(int node, int layer) {
+        Node stored = node(node);
+        return layer < stored.links.length() ? stored.links.get(layer) : NO_LINKS;
+    }
+
+    private Node node(int node) {
+        return segments[node >>> segmentShift].nodes.get(node & segmentMask);
+    }
+
+    /**
+     * The encoded vector of a node, decoded; used while linking so that inserts never touch
+     * the full-precision copies.
+     */
+    private float[] decoded(int node) {
+        return quantizer.decode(segments[node >>> segmentShift].codes,
+                (node & segmentMask) * quantizer.bytesPerVector());
+    }
+
+    private float similarity(VectorQuantizer.Query query, int node) {
+        return quantizer.dot(query, segments[node >>> segmentShift].codes,
+                (node & segmentMask) * quantizer.bytesPerVector());
+    }
+
+    private Segment segmentFor(int node) {
+        int index = node >>> segmentShift;
+        Segment[] current = segments;
+        if (index < current.length) {
+            return current[index];
+        }
+        synchronized (growLock) {
+            current = segments;
+            if (index >= current.length) {
+                // Existing segments are shared with the new array, so nothing written to them is lost
+                Segment[] grown = Arrays.copyOf(current, index + 1);
+                for (int i = current.length; i <= index; i++) {
+                    grown[i] = new Segment(ByteBuffer.allocateDirect((segmentMask + 1) * quantizer.bytesPerVector()),
+                            segmentMask + 1);
+                }
+                segments = grown;
+            }
+            return segments[index];
+        }
+    }
+
+    private int randomLevel() {
+        double uniform = 1 - ThreadLocalRandom.current().nextDouble();
+        return (int) Math.min(MAX_LEVEL, Math.floor(-Math.log(uniform) * levelFactor));
+    }
+
+    private static final class Node {
+
+        private volatile HnswChunk chunk;
+        private final AtomicReferenceArray<int[]> links;
+        private volatile boolean deleted;
+
+        Node(HnswChunk chunk, int level) {
+            this.chunk = chunk;
+            this.links = new AtomicReferenceArray<>(level + 1);
+            for (int layer = 0; layer <= level; layer++) {
+                links.set(layer, NO_LINKS);
+            }
+        }
+    }
+
+    private static final class Segment {
+
+        private final ByteBuffer codes;
+        private final AtomicReferenceArray<Node> nodes;
+
+        Segment(ByteBuffer codes, int size) {
+            this.codes = codes.order(ByteOrder.LITTLE_ENDIAN);
+            this.nodes = new AtomicReferenceArray<>(size);
+        }
+    }
+}
@@ -0,0 +1,651 @@
+package com.isearch.text2vectorApp.vectorstore;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isearch.text2vectorApp.config.HnswProperties;
+import com.isearch.text2vectorApp.config.QuantizationProperties;
+import com.isearch.text2vectorApp.util.DocumentChunker;
+import com.isearch.text2vectorApp.util.QuantizationMode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.converter.SimpleVectorStoreFilterExpressionConverter;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+/**
+ * In-process VectorStore backed by an HNSW graph, for deployments without PostgreSQL.
+ * <p>
+ * Vectors are normalized on insert and searched by cosine similarity, with the same score
+ * (similarity) and distance metadata (1 - similarity) as the PGVector store. Adding a document
+ * with an existing id replaces it. Metadata filters are tested on the nodes the graph search
+ * visits; when a sample of the graph suggests a filter matches too few documents for the
+ * search to find them, they are ranked exhaustively instead. Deleted and replaced documents
+ * are left in the graph until they reach {@link HnswProperties#maxDeleted()} of it; then a
+ * graph of the live documents is built on a background thread and swapped in. With a
+ * snapshot file the index is loaded at startup and saved at shutdown.
+ * <p>
+ * Searches never wait: they read whichever graph is current. Writes share a lock that only
+ * the swap takes exclusively, so they pause for the swap but not for the rebuild.
+ * <p>
+ * With quantization the graph holds encoded vectors; float32 copies go to a memory-mapped
+ * file next to the snapshot (or a temporary file) and are only read to rerank candidates.
+ */
+@Slf4j
+public class HnswVectorStore implements VectorStore, AutoCloseable {
+
+    public static final String DISTANCE = "distance";
+
+    private static final int NOT_COPIED = -1;
+    private static final int SELECTIVITY_SAMPLE = 100;
+    private static final int CALIBRATION_SAMPLE = 10_000;
+
+    private final EmbeddingModel embeddingModel;
+    private final HnswProperties properties;
+    private final QuantizationProperties quantization;
+    private final ObjectMapper objectMapper;
+    private final BatchingStrategy batchingStrategy;
+    private final SimpleVectorStoreFilterExpressionConverter filterConverter = new SimpleVectorStoreFilterExpressionConverter();
+    private final ExpressionParser expressionParser = new SpelExpressionParser();
+    private final Path fullVectorsFile;
+    // Shared by writers; exclusive only while a compacted graph is swapped in
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object compactionLock = new Object();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("hnsw-compaction").daemon().factory());
+    private volatile State state;
+    // Nodes changed by writers while a compaction copies the graph, or null
+    private volatile Queue<Integer> changedDuringCompaction;
+
+    /**
+     * The graph, its id lookup and its float32 copies; replaced as a whole by compaction.
+     */
+    private record State(HnswIndex index, Map<String, Integer> ids, FullPrecisionVectors fullVectors) {
+    }
+
+    public HnswVectorStore(EmbeddingModel embeddingModel, BatchingStrategy batchingStrategy, int dimensions,
+                           HnswProperties properties, QuantizationProperties quantization, ObjectMapper objectMapper) {
+        this.embeddingModel = embeddingModel;
+        this.batchingStrategy = batchingStrategy;
+        this.properties = properties;
+        this.quantization = quantization;
+        this.objectMapper = objectMapper;
+        this.fullVectorsFile = fullVectorsFile();
+        FullPrecisionVectors fullVectors = openFullVectors(fullVectorsFile, dimensions);
+        try {
+            HnswIndex index = openIndex(dimensions, fullVectors);
+            Map<String, Integer> ids = new ConcurrentHashMap<>();
+            for (int node = 0; node < index.size(); node++) {
+                if (!index.isDeleted(node)) {
+                    ids.put(index.chunk(node).id(), node);
+                }
+            }
+            this.state = new State(index, ids, fullVectors);
+        } catch (RuntimeException ex) {
+            if (fullVectors != null) {
+                fullVectors.close();
+            }
+            compactor.shutdown();
+            throw ex;
+        }
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        List<float[]> embeddings = embeddingModel.embed(documents, EmbeddingOptionsBuilder.builder().build(),
+                batchingStrategy);
+        List<float[]> vectors = embeddings.stream().map(HnswVectorStore::normalize).toList();
+        writing(current -> {
+            current.index().calibrate(vectors);
+            for (int i = 0; i < documents.size(); i++) {
+                Document document = documents.get(i);
+                HnswChunk chunk = new HnswChunk(document.getId(), document.getText(), storedMetadata(document));
+                int node = current.index().add(vectors.get(i), chunk);
+                Integer replaced = current.ids().put(chunk.id(), node);
+                if (replaced != null) {
+                    current.index().delete(replaced);
+                    changed(replaced);
+                }
+            }
+        });
+        compactIfNeeded();
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        writing(current -> {
+            for (String id : idList) {
+                Integer node = current.ids().remove(id);
+                if (node != null) {
+                    current.index().delete(node);
+                    changed(node);
+                }
+            }
+        });
+        compactIfNeeded();
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        writing(current -> {
+            IntPredicate matches = matching(current.index(), filterExpression);
+            current.ids().forEach((id, node) -> {
+                if (matches.test(node)) {
+                    current.ids().remove(id, node);
+                    current.index().delete(node);
+                    changed(node);
+                }
+            });
+        });
+        compactIfNeeded();
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        float[] query = normalize(embeddingModel.embed(request.getQuery()));
+        int candidates = quantization.candidates(request.getTopK());
+        int ef = Math.max(properties.efSearch(), candidates);
+
+        // Node numbers only mean something in the graph they came from
+        State current = state;
+        HnswIndex index = current.index();
+        List<HnswIndex.Hit> hits;
+        if (!request.hasFilterExpression()) {
+            hits = index.search(query, request.getTopK(), candidates, ef, null);
+        } else {
+            IntPredicate matches = matching(index, request.getFilterExpression());
+            hits = fewMatches(index, matches, current.ids().size(), ef)
+                    ? index.scan(query, request.getTopK(), matches)
+                    : index.search(query, request.getTopK(), candidates, ef, matches);
+        }
+
+        return hits.stream()
+                .filter(hit -> hit.similarity() >= request.getSimilarityThreshold())
+                .map(hit -> {
+                    HnswChunk chunk = index.chunk(hit.node());
+                    Map<String, Object> metadata = new HashMap<>(chunk.metadata());
+                    metadata.put(DISTANCE, 1 - hit.similarity());
+                    return Document.builder()
+                            .id(chunk.id())
+                            .text(chunk.text())
+                            .metadata(metadata)
+                            .score((double) hit.similarity())
+                            .build();
+                })
+                .toList();
+    }
+
+    /**
+     * Whether a filter likely matches at most about {@code ef} live nodes, estimated from a
+     * random sample. The graph search keeps only matching nodes as results, so with fewer
+     * matches than that it would wander through most of the graph and still miss some.
+     */
+    private static boolean fewMatches(HnswIndex index, IntPredicate matches, int live, int ef) {
+        if (live <= ef) {
+            return true;
+        }
+        int size = index.size();
+        int sampled = 0;
+        int matched = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int attempt = 0; attempt < 2 * SELECTIVITY_SAMPLE && sampled < SELECTIVITY_SAMPLE; attempt++) {
+            int node = random.nextInt(size);
+            if (index.isPublished(node) && !index.isDeleted(node)) {
+                sampled++;
+                if (matches.test(node)) {
+                    matched++;
+                }
+            }
+        }
+        return (long) matched * live <= (long) ef * sampled;
+    }
+
+    @Override
+    public String getName() {
+        return "HnswVectorStore";
+    }
+
+    /**
+     * Ids of the live documents whose source metadata equals the given value.
+     *
+     * @param source the source metadata value (the uploaded filename)
+     * @return document ids
+     */
+    public Set<String> findIdsBySource(String source) {
+        State current = state;
+        Set<String> found = new HashSet<>();
+        current.ids().forEach((id, node) -> {
+            if (source.equals(current.index().chunk(node).metadata().get("source"))) {
+                found.add(id);
+            }
+        });
+        return found;
+    }
+
+    /**
+     * Replaces the metadata of stored documents; text and vector are kept. Unknown ids are
+     * ignored.
+     *
+     * @param documents documents with their current metadata
+     */
+    public void updateMetadata(List<Document> documents) {
+        writing(current -> {
+            for (Document document : documents) {
+                Integer node = current.ids().get(document.getId());
+                if (node != null) {
+                    HnswChunk chunk = current.index().chunk(node);
+                    current.index().replaceChunk(node, new HnswChunk(chunk.id(), chunk.text(),
+                            storedMetadata(document)));
+                    changed(node);
+                }
+            }
+        });
+    }
+
+    private static Map<String, Object> storedMetadata(Document document) {
+        return Map.copyOf(DocumentChunker.storedMetadata(document.getMetadata()));
+    }
+
+    /**
+     * Number of live (not deleted) documents.
+     *
+     * @return document count
+     */
+    public int size() {
+        return state.ids().size();
+    }
+
+    /**
+     * Vectors of randomly chosen live documents, e.g. for the quantization report.
+     *
+     * @param limit maximum number of vectors
+     * @return unit-length float32 vectors (decoded if no full-precision copy is kept)
+     */
+    public List<float[]> sampleVectors(int limit) {
+        State current = state;
+        List<Integer> nodes = new ArrayList<>(current.ids().values());
+        Collections.shuffle(nodes);
+        return nodes.stream().limit(limit).map(current.index()::vector).toList();
+    }
+
+    /**
+     * Rebuilds the graph without its deleted nodes and swaps it in. Searches and writes go on
+     * against the current graph while the new one is built; writes pause only for the swap.
+     * Returns once the new graph is in use, or at once if nothing is deleted.
+     *
+     * @throws CancellationException if the store is closed meanwhile
+     */
+    public void compact() {
+        synchronized (compactionLock) {
+            HnswIndex old = state.index();
+            int deleted = old.deletedCount();
+            if (deleted == 0) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            Path compactingFile = fullVectorsFile != null
+                    ? fullVectorsFile.resolveSibling(fullVectorsFile.getFileName() + ".compacting")
+                    : null;
+            FullPrecisionVectors vectors = null;
+            // Only set once the new graph is in use; until then a failure discards it
+            boolean swapped = false;
+            try {
+                if (compactingFile != null) {
+                    Files.deleteIfExists(compactingFile);
+                }
+                FullPrecisionVectors compactedVectors = openFullVectors(compactingFile, old.dimensions());
+                vectors = compactedVectors;
+                HnswIndex compacted = old.emptyCopy(compactedVectors);
+                // The first batch may have been too small to calibrate INT8 ranges from
+                compacted.calibrate(sampleVectors(CALIBRATION_SAMPLE));
+
+                // From here on writers report the nodes they change; all earlier writes are done
+                int copied = exclusively(() -> {
+                    changedDuringCompaction = new ConcurrentLinkedQueue<>();
+                    return old.size();
+                });
+                int[] moved = new int[copied];
+                Arrays.fill(moved, NOT_COPIED);
+                Map<String, Integer> ids = new ConcurrentHashMap<>();
+                for (int node = 0; node < copied; node++) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new CancellationException("HNSW compaction interrupted");
+                    }
+                    if (!old.isDeleted(node)) {
+                        moved[node] = copy(old, node, compacted, ids);
+                    }
+                }
+
+                FullPrecisionVectors replaced = exclusively(() -> {
+                    catchUp(old, moved, compacted, ids);
+                    if (compactingFile != null) {
+                        try {
+                            Files.move(compactingFile, fullVectorsFile, StandardCopyOption.REPLACE_EXISTING,
+                                    StandardCopyOption.ATOMIC_MOVE);
+                        } catch (IOException ex) {
+                            throw new IllegalStateException("Cannot replace " + fullVectorsFile + ": "
+                                    + ex.getMessage(), ex);
+                        }
+                    }
+                    FullPrecisionVectors previous = state.fullVectors();
+                    state = new State(compacted, ids, compactedVectors);
+                    return previous;
+                });
+                swapped = true;
+                if (replaced != null) {
+                    // Mapped segments stay readable by searches still running on the old graph
+                    replaced.close();
+                }
+                log.info("Compacted HNSW index: dropped {} deleted node(s), {} left, in {} ms", deleted,
+                        ids.size(), System.currentTimeMillis() - start);
+            } catch (IOException ex) {
+                throw new IllegalStateException("Cannot create " + compactingFile + ": " + ex.getMessage(), ex);
+            } finally {
+                changedDuringCompaction = null;
+                if (!swapped && vectors != null) {
+                    vectors.close();
+                    try {
+                        Files.deleteIfExists(compactingFile);
+                    } catch (IOException ex) {
+                        log.warn("Could not delete {}: {}", compactingFile, ex.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the writes made while the live nodes were copied: changes to copied nodes, and
+     * nodes added since. Runs while writers are locked out, so it sees the final old graph.
+     */
+    private void catchUp(HnswIndex old, int[] moved, HnswIndex compacted, Map<String, Integer> ids) {
+        for (Integer node; (node = changedDuringCompaction.poll()) != null; ) {
+            if (node >= moved.length) {
+                continue;
+            }
+            if (moved[node] == NOT_COPIED) {
+                // Deleted before the copy reached it; nothing to undo
+                continue;
+            }
+            if (old.isDeleted(node)) {
+                compacted.delete(moved[node]);
+                ids.remove(old.chunk(node).id(), moved[node]);
+            } else {
+                compacted.replaceChunk(moved[node], old.chunk(node));
+            }
+        }
+        for (int node = moved.length; node < old.size(); node++) {
+            if (!old.isDeleted(node)) {
+                copy(old, node, compacted, ids);
+            }
+        }
+    }
+
+    private static int copy(HnswIndex old, int node, HnswIndex compacted, Map<String, Integer> ids) {
+        HnswChunk chunk = old.chunk(node);
+        int copy = compacted.add(old.vector(node), chunk);
+        ids.put(chunk.id(), copy);
+        return copy;
+    }
+
+    private void compactIfNeeded() {
+        HnswIndex current = state.index();
+        if (current.deletedCount() == 0 || current.deletedCount() < properties.maxDeleted() * current.size()
+                || !compactionScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            compactor.execute(() -> {
+                try {
+                    compact();
+                } catch (CancellationException ex) {
+                    log.info("HNSW compaction cancelled: {}", ex.getMessage());
+                } catch (RuntimeException ex) {
+                    log.warn("HNSW compaction failed; the graph keeps its deleted nodes", ex);
+                } finally {
+                    compactionScheduled.set(false);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            // Closing
+            compactionScheduled.set(false);
+        }
+    }
+
+    private void changed(int node) {
+        Queue<Integer> changes = changedDuringCompaction;
+        if (changes != null) {
+            changes.add(node);
+        }
+    }
+
+    private void writing(Consumer<State> write) {
+        Lock shared = lock.readLock();
+        shared.lock();
+        try {
+            write.accept(state);
+        } finally {
+            shared.unlock();
+        }
+    }
+
+    private <T> T exclusively(Supplier<T> action) {
+        Lock exclusive = lock.writeLock();
+        exclusive.lock();
+        try {
+            return action.get();
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    /**
+     * Saves the index to the snapshot file, if one is configured.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void snapshot() throws IOException {
+        if (properties.snapshotFile() == null) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        State current;
+        // Shared, so that no compaction swaps the graph and its vector file mid-save
+        Lock shared = lock.readLock();
+        shared.lock();
+        try {
+            current = state;
+            current.index().save(properties.snapshotFile(), new JsonChunkCodec());
+        } finally {
+            shared.unlock();
+        }
+        log.info("Saved HNSW snapshot of {} document(s) to {} in {} ms", current.ids().size(),
+                properties.snapshotFile(), System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public void close() {
+        compactor.shutdownNow();
+        try {
+            if (!compactor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("HNSW compaction did not stop in time");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            snapshot();
+        } catch (IOException ex) {
+            log.error("Failed to save HNSW snapshot to {}", properties.snapshotFile(), ex);
+        }
+        FullPrecisionVectors fullVectors = state.fullVectors();
+        if (fullVectors != null) {
+            fullVectors.close();
+            if (properties.snapshotFile() == null) {
+                try {
+                    Files.deleteIfExists(fullVectorsFile);
+                } catch (IOException ex) {
+                    log.warn("Could not delete {}: {}", fullVectorsFile, ex.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Where the float32 copies of quantized vectors are kept: next to the snapshot, so they
+     * are reused with it, or in a temporary file that is deleted on close.
+     */
+    private Path fullVectorsFile() {
+        if (quantization.mode() == QuantizationMode.NONE) {
+            return null;
+        }
+        try {
+            Path snapshot = properties.snapshotFile();
+            if (snapshot == null) {
+                return Files.createTempFile("hnsw-", ".f32");
+            }
+            Path file = snapshot.resolveSibling(snapshot.getFileName() + ".f32");
+            if (!Files.exists(snapshot)) {
+                // Left over from a store whose snapshot is gone; its vectors belong to no index
+                Files.deleteIfExists(file);
+            } else if (!Files.exists(file)) {
+                throw new IllegalStateException("Snapshot " + snapshot + " has no full-precision vector file " + file
+                        + "; it was saved without quantization or the file was removed");
+            }
+            return file;
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot create the full-precision vector file: " + ex.getMessage(), ex);
+        }
+    }
+
+    private FullPrecisionVectors openFullVectors(Path file, int dimensions) {
+        if (file == null) {
+            return null;
+        }
+        try {
+            return FullPrecisionVectors.open(file, dimensions, properties.segmentVectors());
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot open " + file + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    private HnswIndex openIndex(int dimensions, FullPrecisionVectors fullVectors) {
+        Path snapshot = properties.snapshotFile();
+        if (snapshot == null || !Files.exists(snapshot)) {
+            return new HnswIndex(dimensions, properties.m(), properties.efConstruction(), properties.segmentVectors(),
+                    quantization.mode(), fullVectors);
+        }
+        try {
+            long start = System.currentTimeMillis();
+            HnswIndex loaded = HnswIndex.load(snapshot, dimensions, properties.m(), properties.efConstruction(),
+                    properties.segmentVectors(), quantization.mode(), fullVectors, new JsonChunkCodec());
+            log.info("Loaded HNSW snapshot with {} node(s) from {} in {} ms", loaded.size(), snapshot,
+                    System.currentTimeMillis() - start);
+            return loaded;
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to load HNSW snapshot " + snapshot + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Tests nodes against a portable filter expression, evaluated like SimpleVectorStore. The
+     * result is for one thread: it reuses one evaluation context for every node it tests.
+     */
+    private IntPredicate matching(HnswIndex index, Filter.Expression filterExpression) {
+        Expression expression = expressionParser.parseExpression(filterConverter.convertExpression(filterExpression));
+        StandardEvaluationContext context = new StandardEvaluationContext();
+        return node -> {
+            context.setVariable("metadata", index.chunk(node).metadata());
+            return Boolean.TRUE.equals(expression.getValue(context, Boolean.class));
+        };
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0) {
+            return vector.clone();
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    /**
+     * Snapshot encoding of a chunk: id, text and metadata JSON as length-prefixed UTF-8.
+     */
+    private final class JsonChunkCodec implements HnswIndex.ChunkCodec {
+
+        @Override
+        public void write(DataOutputStream out, HnswChunk chunk) throws IOException {
+            writeString(out, chunk.id());
+            writeString(out, chunk.text() != null ? chunk.text() : "");
+            writeString(out, objectMapper.writeValueAsString(chunk.metadata()));
+        }
+
+        @Override
+        public HnswChunk read(DataInputStream in) throws IOException {
+            String id = readString(in);
+            String text = readString(in);
+            Map<String, Object> metadata = objectMapper.readValue(readString(in), new TypeReference<>() {
+            });
+            return new HnswChunk(id, text, Map.copyOf(metadata));
+        }
+
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private static String readString(DataInputStream in) throws IOException {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
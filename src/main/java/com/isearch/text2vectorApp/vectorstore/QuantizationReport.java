@@ -0,0 +1,126 @@
+package com.isearch.text2vectorApp.vectorstore;
+
+import com.isearch.text2vectorApp.config.HnswProperties;
+import com.isearch.text2vectorApp.util.QuantizationMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Measures recall and latency of each quantization mode on a sample of real vectors, to pick
+ * a setting for {@code text2vector.quantization}.
+ * <p>
+ * Every mode gets its own in-memory HNSW index over the same vectors; each query is searched
+ * with and without the full-precision rerank and compared with the exact top-k from a brute
+ * force scan. Recall is the fraction of the exact top-k found.
+ */
+public final class QuantizationReport {
+
+    private QuantizationReport() {
+    }
+
+    /**
+     * One measured configuration.
+     *
+     * @param mode           quantization mode
+     * @param rerank         whether candidates were reranked with full-precision vectors
+     * @param bytesPerVector memory per vector in the graph (full-precision copies excluded)
+     * @param recall         mean recall at topK
+     * @param meanMicros     mean search latency
+     * @param p95Micros      95th percentile search latency
+     * @param buildMillis    time to build the index
+     */
+    public record Row(QuantizationMode mode, boolean rerank, int bytesPerVector, double recall,
+                      long meanMicros, long p95Micros, long buildMillis) {
+    }
+
+    /**
+     * Runs the report.
+     *
+     * @param vectors      indexed vectors, unit length
+     * @param queries      query vectors, unit length; held out from the indexed vectors
+     * @param topK         results per query
+     * @param properties   HNSW parameters to build and search with
+     * @param rerankFactor candidates per result for the reranked runs
+     * @return one row per mode and rerank setting
+     */
+    public static List<Row> run(List<float[]> vectors, List<float[]> queries, int topK,
+                                HnswProperties properties, int rerankFactor) {
+        if (vectors.isEmpty() || queries.isEmpty()) {
+            throw new IllegalArgumentException("The report needs at least one vector and one query");
+        }
+        int dimensions = vectors.get(0).length;
+        List<Set<Integer>> exact = queries.stream().map(query -> exactTopK(vectors, query, topK)).toList();
+
+        List<Row> rows = new ArrayList<>();
+        for (QuantizationMode mode : QuantizationMode.values()) {
+            try (FullPrecisionVectors fullVectors = mode == QuantizationMode.NONE ? null
+                    : FullPrecisionVectors.inMemory(dimensions, properties.segmentVectors())) {
+                long buildStart = System.nanoTime();
+                HnswIndex index = new HnswIndex(dimensions, properties.m(), properties.efConstruction(),
+                        properties.segmentVectors(), mode, fullVectors);
+                index.calibrate(vectors);
+                int[] nodes = new int[vectors.size()];
+                IntStream.range(0, vectors.size()).parallel()
+                        .forEach(i -> nodes[i] = index.add(vectors.get(i),
+                                new HnswChunk(Integer.toString(i), "", Map.of())));
+                long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+
+                int[] vectorOfNode = new int[vectors.size()];
+                for (int i = 0; i < nodes.length; i++) {
+                    vectorOfNode[nodes[i]] = i;
+                }
+                rows.add(measure(index, mode, false, topK, topK, properties, queries, exact, vectorOfNode, buildMillis));
+                if (mode != QuantizationMode.NONE) {
+                    rows.add(measure(index, mode, true, topK, topK * Math.max(1, rerankFactor), properties, queries,
+                            exact, vectorOfNode, buildMillis));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static Row measure(HnswIndex index, QuantizationMode mode, boolean rerank, int topK, int candidates,
+                               HnswProperties properties, List<float[]> queries, List<Set<Integer>> exact,
+                               int[] vectorOfNode, long buildMillis) {
+        int ef = Math.max(properties.efSearch(), candidates);
+        long[] micros = new long[queries.size()];
+        int found = 0;
+        for (int q = 0; q < queries.size(); q++) {
+            long start = System.nanoTime();
+            // With candidates == topK the rerank only reorders the encoded top-k, so recall is unchanged
+            List<HnswIndex.Hit> hits = index.search(queries.get(q), topK, candidates, ef, null);
+            micros[q] = (System.nanoTime() - start) / 1_000;
+            Set<Integer> expected = exact.get(q);
+            found += (int) hits.stream().filter(hit -> expected.contains(vectorOfNode[hit.node()])).count();
+        }
+        Arrays.sort(micros);
+        long mean = (long) Arrays.stream(micros).average().orElse(0);
+        long p95 = micros[Math.min(micros.length - 1, (int) Math.ceil(micros.length * 0.95) - 1)];
+        double recall = found / (double) exact.stream().mapToInt(Set::size).sum();
+        return new Row(mode, rerank, index.bytesPerVector(), recall, mean, p95, buildMillis);
+    }
+
+    private static Set<Integer> exactTopK(List<float[]> vectors, float[] query, int topK) {
+        float[] similarities = new float[vectors.size()];
+        for (int i = 0; i < vectors.size(); i++) {
+            float dot = 0;
+            float[] vector = vectors.get(i);
+            for (int d = 0; d < query.length; d++) {
+                dot += query[d] * vector[d];
+            }
+            similarities[i] = dot;
+        }
+        Set<Integer> top = new HashSet<>();
+        IntStream.range(0, vectors.size()).boxed()
+                .sorted((a, b) -> Float.compare(similarities[b], similarities[a]))
+                .limit(topK)
+                .forEach(top::add);
+        return top;
+    }
+}
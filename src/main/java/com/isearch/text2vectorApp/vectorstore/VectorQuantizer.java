@@ -0,0 +1,263 @@
+package com.isearch.text2vectorApp.vectorstore;
+
+import com.isearch.text2vectorApp.util.QuantizationMode;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encodes unit-length vectors in the layout of a {@link QuantizationMode} and computes inner
+ * products between a float query and encoded vectors without decoding them.
+ * <p>
+ * INT8 maps each dimension linearly onto [-128, 127] using a per-dimension value range. The
+ * ranges are set once and stored with the index; values outside are clamped. They are
+ * calibrated from the first batch of at least {@link #MIN_CALIBRATION_SAMPLE} vectors (widened,
+ * since later vectors may fall outside). If fewer vectors come first, a fixed range wide
+ * enough for the components of any unit vector but a few is used instead, so a small first
+ * batch cannot make the ranges too narrow for everything added later. BINARY keeps the sign
+ * of each dimension and treats each component as +1/sqrt(d) or -1/sqrt(d), so its inner
+ * products stay on the same scale as cosine similarity.
+ */
+final class VectorQuantizer {
+
+    /** Fewer vectors than this say too little about the spread of each dimension. */
+    static final int MIN_CALIBRATION_SAMPLE = 256;
+    /** Half-width of the fixed range, in standard deviations of a random unit vector component. */
+    private static final int FIXED_RANGE_DEVIATIONS = 8;
+
+    private final QuantizationMode mode;
+    private final int dimensions;
+    private final int bytesPerVector;
+    private volatile Int8Ranges ranges;
+
+    VectorQuantizer(QuantizationMode mode, int dimensions) {
+        this.mode = mode;
+        this.dimensions = dimensions;
+        this.bytesPerVector = mode.bytesPerVector(dimensions);
+    }
+
+    /**
+     * A query prepared for repeated inner products with encoded vectors.
+     *
+     * @param values the query vector
+     * @param scaled INT8 only: values times the step of each dimension
+     * @param offset INT8 only: the inner product of the query with the decoded zero code
+     */
+    record Query(float[] values, float[] scaled, float offset) {
+    }
+
+    private record Int8Ranges(float[] min, float[] step) {
+    }
+
+    QuantizationMode mode() {
+        return mode;
+    }
+
+    int bytesPerVector() {
+        return bytesPerVector;
+    }
+
+    boolean isCalibrated() {
+        return mode != QuantizationMode.INT8 || ranges != null;
+    }
+
+    /**
+     * Sets the INT8 value ranges from a sample of vectors; later calls have no effect, and
+     * neither do samples smaller than {@link #MIN_CALIBRATION_SAMPLE}.
+     *
+     * @param sample unit-length vectors
+     */
+    synchronized void calibrate(List<float[]> sample) {
+        if (isCalibrated() || sample.size() < MIN_CALIBRATION_SAMPLE) {
+            return;
+        }
+        float[] min = new float[dimensions];
+        float[] max = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            min[i] = Float.MAX_VALUE;
+            max[i] = -Float.MAX_VALUE;
+        }
+        for (float[] vector : sample) {
+            for (int i = 0; i < dimensions; i++) {
+                min[i] = Math.min(min[i], vector[i]);
+                max[i] = Math.max(max[i], vector[i]);
+            }
+        }
+
+        // A small sample underestimates the spread; a unit vector component is about 1/sqrt(d)
+        float floor = (float) (1 / Math.sqrt(dimensions));
+        float[] step = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            float margin = Math.max((max[i] - min[i]) / 2, floor);
+            min[i] -= margin;
+            step[i] = (max[i] + margin - min[i]) / 255;
+        }
+        ranges = new Int8Ranges(min, step);
+    }
+
+    void encode(float[] vector, ByteBuffer codes, int offset) {
+        switch (mode) {
+            case NONE -> {
+                for (int i = 0; i < dimensions; i++) {
+                    codes.putFloat(offset + i * Float.BYTES, vector[i]);
+                }
+            }
+            case FLOAT16 -> {
+                for (int i = 0; i < dimensions; i++) {
+                    codes.putShort(offset + i * Short.BYTES, Float.floatToFloat16(vector[i]));
+                }
+            }
+            case INT8 -> {
+                Int8Ranges current = currentRanges();
+                for (int i = 0; i < dimensions; i++) {
+                    int code = Math.round((vector[i] - current.min()[i]) / current.step()[i]) - 128;
+                    codes.put(offset + i, (byte) Math.max(-128, Math.min(127, code)));
+                }
+            }
+            case BINARY -> {
+                for (int b = 0; b < bytesPerVector; b++) {
+                    int bits = 0;
+                    for (int bit = 0; bit < 8 && b * 8 + bit < dimensions; bit++) {
+                        if (vector[b * 8 + bit] > 0) {
+                            bits |= 1 << bit;
+                        }
+                    }
+                    codes.put(offset + b, (byte) bits);
+                }
+            }
+        }
+    }
+
+    float[] decode(ByteBuffer codes, int offset) {
+        float[] vector = new float[dimensions];
+        switch (mode) {
+            case NONE -> {
+                for (int i = 0; i < dimensions; i++) {
+                    vector[i] = codes.getFloat(offset + i * Float.BYTES);
+                }
+            }
+            case FLOAT16 -> {
+                for (int i = 0; i < dimensions; i++) {
+                    vector[i] = Float.float16ToFloat(codes.getShort(offset + i * Short.BYTES));
+                }
+            }
+            case INT8 -> {
+                Int8Ranges current = ranges;
+                for (int i = 0; i < dimensions; i++) {
+                    vector[i] = current.min()[i] + (codes.get(offset + i) + 128) * current.step()[i];
+                }
+            }
+            case BINARY -> {
+                float unit = (float) (1 / Math.sqrt(dimensions));
+                for (int i = 0; i < dimensions; i++) {
+                    vector[i] = (codes.get(offset + i / 8) & (1 << (i % 8))) != 0 ? unit : -unit;
+                }
+            }
+        }
+        return vector;
+    }
+
+    Query prepare(float[] query) {
+        if (mode != QuantizationMode.INT8) {
+            return new Query(query, null, 0);
+        }
+        Int8Ranges current = currentRanges();
+        float[] scaled = new float[dimensions];
+        float offset = 0;
+        for (int i = 0; i < dimensions; i++) {
+            scaled[i] = query[i] * current.step()[i];
+            offset += query[i] * (current.min()[i] + 128 * current.step()[i]);
+        }
+        return new Query(query, scaled, offset);
+    }
+
+    /**
+     * Inner product of a query with an encoded vector.
+     */
+    float dot(Query query, ByteBuffer codes, int offset) {
+        float[] q = query.values();
+        float dot = 0;
+        switch (mode) {
+            case NONE -> {
+                for (int i = 0; i < dimensions; i++) {
+                    dot += q[i] * codes.getFloat(offset + i * Float.BYTES);
+                }
+            }
+            case FLOAT16 -> {
+                for (int i = 0; i < dimensions; i++) {
+                    dot += q[i] * Float.float16ToFloat(codes.getShort(offset + i * Short.BYTES));
+                }
+            }
+            case INT8 -> {
+                float[] scaled = query.scaled();
+                for (int i = 0; i < dimensions; i++) {
+                    dot += scaled[i] * codes.get(offset + i);
+                }
+                dot += query.offset();
+            }
+            case BINARY -> {
+                for (int b = 0; b < bytesPerVector; b++) {
+                    int bits = codes.get(offset + b);
+                    for (int bit = 0; bit < 8 && b * 8 + bit < dimensions; bit++) {
+                        float value = q[b * 8 + bit];
+                        dot += (bits & (1 << bit)) != 0 ? value : -value;
+                    }
+                }
+                dot *= (float) (1 / Math.sqrt(dimensions));
+            }
+        }
+        return dot;
+    }
+
+    /**
+     * Writes the INT8 ranges (min and step per dimension); nothing for other modes.
+     */
+    void writeRanges(ByteBuffer out) {
+        if (mode == QuantizationMode.INT8) {
+            Int8Ranges current = ranges;
+            for (int i = 0; i < dimensions; i++) {
+                out.putFloat(current != null ? current.min()[i] : 0);
+                out.putFloat(current != null ? current.step()[i] : 0);
+            }
+        }
+    }
+
+    void readRanges(ByteBuffer in) {
+        if (mode == QuantizationMode.INT8) {
+            float[] min = new float[dimensions];
+            float[] step = new float[dimensions];
+            for (int i = 0; i < dimensions; i++) {
+                min[i] = in.getFloat();
+                step[i] = in.getFloat();
+            }
+            // All-zero steps: the index was saved before any vector was added
+            ranges = step[0] != 0 ? new Int8Ranges(min, step) : null;
+        }
+    }
+
+    int rangesSize() {
+        return mode == QuantizationMode.INT8 ? 2 * dimensions * Float.BYTES : 0;
+    }
+
+    private Int8Ranges currentRanges() {
+        Int8Ranges current = ranges;
+        return current != null ? current : fixedRanges();
+    }
+
+    /**
+     * Sets the ranges, if not calibrated yet, to the same symmetric range for every dimension.
+     * A component of a random unit vector has a standard deviation of 1/sqrt(d).
+     */
+    private synchronized Int8Ranges fixedRanges() {
+        if (ranges == null) {
+            float limit = (float) Math.min(1, FIXED_RANGE_DEVIATIONS / Math.sqrt(dimensions));
+            float[] min = new float[dimensions];
+            float[] step = new float[dimensions];
+            Arrays.fill(min, -limit);
+            Arrays.fill(step, 2 * limit / 255);
+            ranges = new Int8Ranges(min, step);
+        }
+        return ranges;
+    }
+}
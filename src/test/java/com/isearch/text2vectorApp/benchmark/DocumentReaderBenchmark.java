@@ -0,0 +1,82 @@
+package com.isearch.text2vectorApp.benchmark;
+
+import com.isearch.text2vectorApp.config.PdfProperties;
+import com.isearch.text2vectorApp.util.DocxDocumentReader;
+import com.isearch.text2vectorApp.util.PdfDocumentReader;
+import com.isearch.text2vectorApp.util.TxtDocumentReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+import org.springframework.core.io.Resource;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the document readers on generated PDF, DOCX and TXT files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentReaderBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    public SampleDocuments.Size size;
+
+    private final PdfDocumentReader pdfReader = new PdfDocumentReader();
+    private final ForkJoinPool pageExecutor = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    private final PdfDocumentReader parallelPdfReader = new PdfDocumentReader(pageExecutor,
+            new PdfProperties(2, 4, 0));
+    private final DocxDocumentReader docxReader = new DocxDocumentReader();
+    private final TxtDocumentReader txtReader = new TxtDocumentReader();
+
+    private Resource pdf;
+    private Resource docx;
+    private Resource txt;
+
+    @Setup
+    public void setUp() {
+        pdf = SampleDocuments.resource(SampleDocuments.pdf(size), "sample.pdf");
+        docx = SampleDocuments.resource(SampleDocuments.docx(size), "sample.docx");
+        txt = SampleDocuments.resource(SampleDocuments.txt(size), "sample.txt");
+    }
+
+    @Benchmark
+    public List<Document> readPdf() {
+        return pdfReader.read(pdf);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pageExecutor.shutdown();
+    }
+
+    @Benchmark
+    public List<Document> readPdfParallel() {
+        return parallelPdfReader.read(pdf);
+    }
+
+    @Benchmark
+    public List<Document> readDocx() {
+        return docxReader.read(docx);
+    }
+
+    @Benchmark
+    public List<Document> readTxt() {
+        return txtReader.read(txt);
+    }
+}
@@ -0,0 +1,113 @@
+package com.isearch.text2vectorApp.benchmark;
+
+import com.isearch.text2vectorApp.config.ChunkingProperties;
+import com.isearch.text2vectorApp.config.EmbeddingBatchProperties;
+import com.isearch.text2vectorApp.config.ExecutorConfig;
+import com.isearch.text2vectorApp.config.PipelineProperties;
+import com.isearch.text2vectorApp.embedding.ChunkBatchingStrategy;
+import com.isearch.text2vectorApp.embedding.StubEmbeddingModel;
+import com.isearch.text2vectorApp.metrics.PipelineMetrics;
+import com.isearch.text2vectorApp.service.DocumentService;
+import com.isearch.text2vectorApp.util.DocumentChunker;
+import com.isearch.text2vectorApp.util.DocumentReaderFactory;
+import com.isearch.text2vectorApp.util.DocxDocumentReader;
+import com.isearch.text2vectorApp.util.FileTypeDetector;
+import com.isearch.text2vectorApp.util.PdfDocumentReader;
+import com.isearch.text2vectorApp.util.TxtDocumentReader;
+import com.isearch.text2vectorApp.util.TypedResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.core.io.Resource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end cost of the embedding pipeline (detect, read, chunk, embed) for single
+ * documents and for multi-file uploads. The model is the offline stub, so results
+ * measure the application and not Ollama.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentServiceBenchmark {
+
+    @Param({"SMALL", "MEDIUM"})
+    public SampleDocuments.Size size;
+
+    @Param({"1024"})
+    public int dimensions;
+
+    private ExecutorService embeddingExecutor;
+    private ExecutorService parseExecutor;
+    private DocumentService documentService;
+    private TypedResource pdf;
+    private List<TypedResource> mixed;
+
+    @Setup
+    public void setUp() {
+        TokenCountEstimator estimator = new JTokkitTokenCountEstimator();
+        PipelineProperties pipelineProperties = new PipelineProperties(0, 64, 4);
+        EmbeddingBatchProperties batchProperties = new EmbeddingBatchProperties(8192, 128, 4);
+        ExecutorConfig executorConfig = new ExecutorConfig();
+        embeddingExecutor = executorConfig.embeddingExecutor();
+        parseExecutor = executorConfig.parseExecutor(pipelineProperties);
+
+        documentService = new DocumentService(
+                new StubEmbeddingModel(dimensions),
+                new DocumentReaderFactory(new PdfDocumentReader(), new DocxDocumentReader(), new TxtDocumentReader()),
+                new DocumentChunker(estimator, new ChunkingProperties(true, 400, 50)),
+                new ChunkBatchingStrategy(estimator, batchProperties, 512),
+                batchProperties,
+                pipelineProperties,
+                PipelineMetrics.noop(),
+                embeddingExecutor,
+                parseExecutor);
+
+        pdf = typed(SampleDocuments.pdf(size), "sample.pdf");
+        mixed = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            mixed.add(typed(SampleDocuments.pdf(size), "sample-" + i + ".pdf"));
+            mixed.add(typed(SampleDocuments.docx(size), "sample-" + i + ".docx"));
+            mixed.add(typed(SampleDocuments.txt(size), "sample-" + i + ".txt"));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        embeddingExecutor.shutdown();
+        parseExecutor.shutdown();
+    }
+
+    @Benchmark
+    public List<float[]> embedDocument() {
+        return documentService.generateEmbeddingsFromDocument(pdf);
+    }
+
+    @Benchmark
+    public List<List<float[]>> embedDocuments() {
+        return documentService.generateEmbeddingsFromDocuments(mixed);
+    }
+
+    private static TypedResource typed(byte[] content, String filename) {
+        Resource resource = SampleDocuments.resource(content, filename);
+        return new TypedResource(resource, FileTypeDetector.detect(resource));
+    }
+}
@@ -0,0 +1,64 @@
+package com.isearch.text2vectorApp.benchmark;
+
+import com.isearch.text2vectorApp.util.DetectedFileType;
+import com.isearch.text2vectorApp.util.FileTypeDetector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.Resource;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of file type detection, both on the extension fast path and on the Tika fallback
+ * used for files without a recognizable extension.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileTypeDetectorBenchmark {
+
+    private Resource pdf;
+    private Resource docx;
+    private Resource txt;
+    private Resource unnamedPdf;
+
+    @Setup
+    public void setUp() {
+        byte[] pdfBytes = SampleDocuments.pdf(SampleDocuments.Size.MEDIUM);
+        pdf = SampleDocuments.resource(pdfBytes, "sample.pdf");
+        docx = SampleDocuments.resource(SampleDocuments.docx(SampleDocuments.Size.MEDIUM), "sample.docx");
+        txt = SampleDocuments.resource(SampleDocuments.txt(SampleDocuments.Size.MEDIUM), "sample.txt");
+        unnamedPdf = SampleDocuments.resource(pdfBytes, "upload.bin");
+    }
+
+    @Benchmark
+    public DetectedFileType detectPdf() {
+        return FileTypeDetector.detect(pdf);
+    }
+
+    @Benchmark
+    public DetectedFileType detectDocx() {
+        return FileTypeDetector.detect(docx);
+    }
+
+    @Benchmark
+    public DetectedFileType detectTxt() {
+        return FileTypeDetector.detect(txt);
+    }
+
+    @Benchmark
+    public DetectedFileType detectWithoutExtension() {
+        return FileTypeDetector.detect(unnamedPdf);
+    }
+}
@@ -0,0 +1,140 @@
+package com.isearch.text2vectorApp.benchmark;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Builds deterministic sample documents of several sizes for the benchmarks.
+ * Documents are generated in memory so no binary fixtures need to be checked in.
+ */
+public final class SampleDocuments {
+
+    private static final String[] WORDS = {
+            "vector", "embedding", "document", "search", "model", "token", "context", "chunk",
+            "index", "query", "similarity", "database", "page", "paragraph", "sentence", "stream",
+            "the", "of", "and", "a", "to", "in", "is", "for", "with", "on", "that", "by"
+    };
+
+    /**
+     * Document sizes used as JMH parameters: number of pages (PDF) or sections (DOCX, TXT).
+     */
+    public enum Size {
+        SMALL(1), MEDIUM(20), LARGE(200);
+
+        final int pages;
+
+        Size(int pages) {
+            this.pages = pages;
+        }
+    }
+
+    private SampleDocuments() {
+    }
+
+    static String text(int paragraphs, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        StringBuilder text = new StringBuilder();
+        for (int p = 0; p < paragraphs; p++) {
+            int sentences = 3 + random.nextInt(4);
+            for (int s = 0; s < sentences; s++) {
+                int words = 8 + random.nextInt(12);
+                for (int w = 0; w < words; w++) {
+                    String word = WORDS[random.nextInt(WORDS.length)];
+                    text.append(w == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+                    text.append(w == words - 1 ? ". " : " ");
+                }
+            }
+            text.append("\n\n");
+        }
+        return text.toString();
+    }
+
+    static byte[] txt(Size size) {
+        return text(size.pages * 6, 42).getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[] pdf(Size size) {
+        try (PDDocument document = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (int page = 0; page < size.pages; page++) {
+                PDPage pdPage = new PDPage();
+                document.addPage(pdPage);
+                try (PDPageContentStream content = new PDPageContentStream(document, pdPage)) {
+                    content.beginText();
+                    content.setFont(font, 10);
+                    content.setLeading(12);
+                    content.newLineAtOffset(50, 740);
+                    for (String line : wrap(text(5, page), 95)) {
+                        content.showText(line);
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            document.save(out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static byte[] docx(Size size) {
+        try (XWPFDocument document = new XWPFDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (int section = 0; section < size.pages; section++) {
+                document.createParagraph().createRun().setText("Section " + (section + 1));
+                for (String paragraph : text(6, section).split("\n\n")) {
+                    document.createParagraph().createRun().setText(paragraph);
+                }
+                XWPFTable table = document.createTable(3, 3);
+                table.getRows().forEach(row -> row.getTableCells().forEach(cell -> cell.setText("value")));
+            }
+            document.write(out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static Resource resource(byte[] content, String filename) {
+        return new ByteArrayResource(content) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        };
+    }
+
+    private static List<String> wrap(String text, int width) {
+        List<String> lines = new ArrayList<>();
+        StringBuilder line = new StringBuilder();
+        for (String word : text.replace("\n", " ").split(" +")) {
+            if (line.length() + word.length() + 1 > width) {
+                lines.add(line.toString());
+                line.setLength(0);
+            }
+            if (!line.isEmpty()) {
+                line.append(' ');
+            }
+            line.append(word);
+        }
+        if (!line.isEmpty()) {
+            lines.add(line.toString());
+        }
+        return lines.size() > 55 ? lines.subList(0, 55) : lines;
+    }
+}
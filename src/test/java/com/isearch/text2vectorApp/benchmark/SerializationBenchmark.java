@@ -0,0 +1,63 @@
+package com.isearch.text2vectorApp.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isearch.text2vectorApp.model.DocumentEmbeddingResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of writing embedding responses as JSON, which dominates response time for
+ * documents with many chunks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"1", "50", "500"})
+    public int chunks;
+
+    @Param({"1024"})
+    public int dimensions;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private DocumentEmbeddingResponse response;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(1);
+        List<float[]> vectors = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            float[] vector = new float[dimensions];
+            for (int d = 0; d < dimensions; d++) {
+                vector[d] = (float) (random.nextDouble() * 2 - 1);
+            }
+            vectors.add(vector);
+        }
+        response = new DocumentEmbeddingResponse("sample.pdf", "pdf", chunks, vectors);
+    }
+
+    @Benchmark
+    public byte[] writeJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
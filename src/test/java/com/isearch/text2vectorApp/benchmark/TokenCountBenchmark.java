@@ -0,0 +1,46 @@
+package com.isearch.text2vectorApp.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of token estimation, which runs for every chunk before it is sent to the model.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenCountBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int paragraphs;
+
+    private final TokenCountEstimator estimator = new JTokkitTokenCountEstimator();
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        text = SampleDocuments.text(paragraphs, 7);
+    }
+
+    @Benchmark
+    public int estimate() {
+        return estimator.estimate(text);
+    }
+}
@@ -0,0 +1,68 @@
+package com.isearch.text2vectorApp.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isearch.text2vectorApp.exception.EmbeddingUnavailableException;
+import com.isearch.text2vectorApp.service.DocumentService;
+import com.isearch.text2vectorApp.service.IngestionService;
+import com.isearch.text2vectorApp.service.QuantizationReportService;
+import com.isearch.text2vectorApp.service.SearchService;
+import com.isearch.text2vectorApp.util.TypedResource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class DocumentControllerTest {
+
+    private static final MockMultipartFile FILE = new MockMultipartFile("file", "notes.txt",
+            MediaType.TEXT_PLAIN_VALUE, "some text".getBytes(StandardCharsets.UTF_8));
+
+    private DocumentService documentService;
+    private IngestionService ingestionService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        documentService = mock(DocumentService.class);
+        ingestionService = mock(IngestionService.class);
+        mockMvc = MockMvcBuilders.standaloneSetup(new DocumentController(mock(EmbeddingModel.class), documentService,
+                        ingestionService, mock(SearchService.class), mock(QuantizationReportService.class),
+                        new ObjectMapper()))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void unavailableModelAnswers503WithRetryAfterWhenEmbedding() throws Exception {
+        when(documentService.generateEmbeddingsFromDocument(any(TypedResource.class)))
+                .thenThrow(new EmbeddingUnavailableException("circuit open", Duration.ofSeconds(7)));
+
+        mockMvc.perform(multipart("/api/v1/embed/document").file(FILE))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "7"));
+    }
+
+    @Test
+    void unavailableModelAnswers503WithRetryAfterWhenStoring() throws Exception {
+        when(ingestionService.store(any(), any()))
+                .thenThrow(new EmbeddingUnavailableException("overloaded", Duration.ofMillis(1500)));
+
+        mockMvc.perform(multipart("/api/v1/store/document").file(FILE))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "2"));
+    }
+}
@@ -0,0 +1,165 @@
+package com.isearch.text2vectorApp.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isearch.text2vectorApp.config.ChunkingProperties;
+import com.isearch.text2vectorApp.config.EmbeddingBatchProperties;
+import com.isearch.text2vectorApp.config.ExecutorConfig;
+import com.isearch.text2vectorApp.config.HnswProperties;
+import com.isearch.text2vectorApp.config.HybridSearchProperties;
+import com.isearch.text2vectorApp.config.IngestionProperties;
+import com.isearch.text2vectorApp.config.PipelineProperties;
+import com.isearch.text2vectorApp.config.QuantizationProperties;
+import com.isearch.text2vectorApp.config.SearchBatchProperties;
+import com.isearch.text2vectorApp.config.SearchCacheProperties;
+import com.isearch.text2vectorApp.embedding.ChunkBatchingStrategy;
+import com.isearch.text2vectorApp.embedding.StubEmbeddingModel;
+import com.isearch.text2vectorApp.metrics.PipelineMetrics;
+import com.isearch.text2vectorApp.repository.KeywordSearchRepository;
+import com.isearch.text2vectorApp.repository.PgVectorTable;
+import com.isearch.text2vectorApp.repository.StoredChunkRepository;
+import com.isearch.text2vectorApp.repository.VectorSearchRepository;
+import com.isearch.text2vectorApp.repository.VectorStoreBulkWriter;
+import com.isearch.text2vectorApp.service.DocumentService;
+import com.isearch.text2vectorApp.service.IngestionService;
+import com.isearch.text2vectorApp.service.QuantizationReportService;
+import com.isearch.text2vectorApp.service.SearchService;
+import com.isearch.text2vectorApp.util.DocumentChunker;
+import com.isearch.text2vectorApp.util.DocumentReaderFactory;
+import com.isearch.text2vectorApp.util.DocxDocumentReader;
+import com.isearch.text2vectorApp.util.PdfDocumentReader;
+import com.isearch.text2vectorApp.util.QuantizationMode;
+import com.isearch.text2vectorApp.util.TxtDocumentReader;
+import com.isearch.text2vectorApp.vectorstore.HnswVectorStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * /store and /search against the in-process HNSW store, with no database behind any component.
+ */
+class HnswStoreAndSearchTest {
+
+    private static final int DIMENSIONS = 32;
+
+    private ExecutorService embeddingExecutor;
+    private ExecutorService parseExecutor;
+    private HnswVectorStore store;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        TokenCountEstimator estimator = new JTokkitTokenCountEstimator();
+        StubEmbeddingModel embeddingModel = new StubEmbeddingModel(DIMENSIONS);
+        PipelineProperties pipelineProperties = new PipelineProperties(0, 64, 4);
+        EmbeddingBatchProperties batchProperties = new EmbeddingBatchProperties(8192, 128, 4);
+        QuantizationProperties quantization = new QuantizationProperties(QuantizationMode.NONE, 4);
+        HnswProperties hnswProperties = new HnswProperties(16, 100, 64, 1024, 0.3, null);
+        IngestionProperties ingestionProperties = new IngestionProperties(256, 500, Duration.ofMillis(20), 5000, 32,
+                2, 16, 1000, Duration.ofHours(1));
+        ExecutorConfig executorConfig = new ExecutorConfig();
+        embeddingExecutor = executorConfig.embeddingExecutor();
+        parseExecutor = executorConfig.parseExecutor(pipelineProperties);
+
+        store = new HnswVectorStore(embeddingModel, new TokenCountBatchingStrategy(), DIMENSIONS, hnswProperties,
+                quantization, objectMapper);
+        // Not PGVector, so every JDBC component reports itself unavailable
+        PgVectorTable table = new PgVectorTable(store, "public", "vector_store", DIMENSIONS, "COSINE_DISTANCE");
+        ChunkBatchingStrategy batchingStrategy = new ChunkBatchingStrategy(estimator, batchProperties, 512);
+        DocumentService documentService = new DocumentService(embeddingModel,
+                new DocumentReaderFactory(new PdfDocumentReader(), new DocxDocumentReader(), new TxtDocumentReader()),
+                new DocumentChunker(estimator, new ChunkingProperties(true, 400, 50)), batchingStrategy,
+                batchProperties, pipelineProperties, PipelineMetrics.noop(), embeddingExecutor, parseExecutor);
+        IngestionService ingestionService = new IngestionService(documentService, store, embeddingModel,
+                mock(VectorStoreBulkWriter.class),
+                new StoredChunkRepository(table, store, null, null, objectMapper, ingestionProperties),
+                ingestionProperties, event -> {
+                }, batchingStrategy, PipelineMetrics.noop());
+        VectorSearchRepository vectorSearchRepository = new VectorSearchRepository(table, null, objectMapper,
+                quantization);
+        HybridSearchProperties hybridProperties = new HybridSearchProperties("simple", 60, 4);
+        SearchService searchService = new SearchService(store, embeddingModel,
+                new SearchCacheProperties(true, 100, 100, Duration.ofMinutes(5)),
+                new KeywordSearchRepository(table, null, objectMapper, hybridProperties), hybridProperties,
+                vectorSearchRepository, new SearchBatchProperties(100, 2), embeddingExecutor, 10,
+                PipelineMetrics.noop());
+
+        mockMvc = MockMvcBuilders.standaloneSetup(new DocumentController(embeddingModel, documentService,
+                ingestionService, searchService,
+                new QuantizationReportService(store, vectorSearchRepository, hnswProperties, quantization),
+                objectMapper)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+        embeddingExecutor.shutdownNow();
+        parseExecutor.shutdownNow();
+    }
+
+    @Test
+    void storedDocumentsAreFoundBySearch() throws Exception {
+        mockMvc.perform(multipart("/api/v1/store/document").file(textFile("animals.txt", "cats and dogs")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.chunks").value(1));
+        mockMvc.perform(multipart("/api/v1/store/documents")
+                        .file(textFile("files", "plants.txt", "trees and flowers"))
+                        .file(textFile("files", "weather.txt", "rain and snow")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalChunks").value(2));
+
+        mockMvc.perform(get("/api/v1/search").param("query", "trees and flowers").param("topK", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].text").value("trees and flowers"))
+                .andExpect(jsonPath("$[0].metadata.source").value("plants.txt"));
+
+        mockMvc.perform(post("/api/v1/search")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"query\": \"rain and snow\", \"topK\": 3, \"source\": \"weather.txt\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.resultsCount").value(1))
+                .andExpect(jsonPath("$.results[0].content").value("rain and snow"));
+    }
+
+    @Test
+    void storingAFileAgainReplacesItsChunks() throws Exception {
+        mockMvc.perform(multipart("/api/v1/store/document").file(textFile("notes.txt", "first draft")))
+                .andExpect(status().isOk());
+        mockMvc.perform(multipart("/api/v1/store/document").file(textFile("notes.txt", "final version")))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/v1/search")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"query\": \"final version\", \"topK\": 5, \"source\": \"notes.txt\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.resultsCount").value(1))
+                .andExpect(jsonPath("$.results[0].content").value("final version"));
+    }
+
+    private static MockMultipartFile textFile(String filename, String text) {
+        return textFile("file", filename, text);
+    }
+
+    private static MockMultipartFile textFile(String parameter, String filename, String text) {
+        return new MockMultipartFile(parameter, filename, MediaType.TEXT_PLAIN_VALUE,
+                text.getBytes(StandardCharsets.UTF_8));
+    }
+}
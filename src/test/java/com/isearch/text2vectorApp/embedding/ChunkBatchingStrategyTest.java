@@ -0,0 +1,77 @@
+package com.isearch.text2vectorApp.embedding;
+
+import com.isearch.text2vectorApp.config.EmbeddingBatchProperties;
+import com.isearch.text2vectorApp.util.DocumentChunker;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChunkBatchingStrategyTest {
+
+    private final CountingEstimator estimator = new CountingEstimator();
+    private final ChunkBatchingStrategy strategy = new ChunkBatchingStrategy(estimator,
+            new EmbeddingBatchProperties(100, 3, 4), 512);
+
+    @Test
+    void packsByTokensAndTextsAndGivesOversizedChunksTheirOwnCall() {
+        List<Document> chunks = List.of(chunk("a", 40), chunk("b", 40), chunk("c", 40),
+                chunk("d", 500), chunk("e", 10), chunk("f", 10), chunk("g", 10), chunk("h", 10));
+
+        List<List<Document>> batches = strategy.batch(chunks);
+
+        assertThat(batches).extracting(batch -> batch.stream().map(Document::getText).toList())
+                .containsExactly(List.of("a", "b"), List.of("c"), List.of("d"), List.of("e", "f", "g"), List.of("h"));
+    }
+
+    @Test
+    void usesCarriedTokenCountsAndEstimatesOnlyTheRest() {
+        strategy.batch(List.of(chunk("counted", 5), new Document("not counted")));
+
+        assertThat(estimator.calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void textsAndStreamedChunksArePackedLikeLists() {
+        List<String> texts = List.of("x".repeat(60), "y".repeat(60), "z", "w");
+        assertThat(strategy.batchTexts(texts))
+                .containsExactly(List.of("x".repeat(60)), List.of("y".repeat(60), "z", "w"));
+
+        List<Document> chunks = List.of(chunk("a", 60), chunk("b", 60), chunk("c", 1));
+        ChunkBatchingStrategy.Packer<Document> packer = strategy.packer();
+        List<List<Document>> streamed = new ArrayList<>();
+        for (Document chunk : chunks) {
+            List<Document> full = packer.add(chunk, strategy.tokenCount(chunk));
+            if (!full.isEmpty()) {
+                streamed.add(full);
+            }
+        }
+        streamed.add(packer.flush());
+        assertThat(streamed).isEqualTo(strategy.batch(chunks));
+        assertThat(packer.flush()).isEmpty();
+    }
+
+    private static Document chunk(String text, int tokens) {
+        return new Document(text, Map.of(DocumentChunker.TOKEN_COUNT, tokens));
+    }
+
+    /**
+     * One token per character, counting how often it is asked.
+     */
+    private static final class CountingEstimator extends JTokkitTokenCountEstimator {
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public int estimate(String text) {
+            calls.incrementAndGet();
+            return text.length();
+        }
+    }
+}
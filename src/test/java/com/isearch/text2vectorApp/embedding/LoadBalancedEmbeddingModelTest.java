@@ -0,0 +1,142 @@
+package com.isearch.text2vectorApp.embedding;
+
+import com.isearch.text2vectorApp.exception.EmbeddingUnavailableException;
+import com.isearch.text2vectorApp.metrics.PipelineMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.retry.TransientAiException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoadBalancedEmbeddingModelTest {
+
+    private static final int DIMENSIONS = 8;
+
+    @Test
+    void splitsLargeCallsAcrossBackendsInOrder() {
+        CountingModel first = new CountingModel();
+        CountingModel second = new CountingModel();
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            texts.add("chunk " + i);
+        }
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             LoadBalancedEmbeddingModel pool = pool(executor, first, second)) {
+            List<float[]> vectors = pool.embed(texts);
+
+            List<float[]> expected = new StubEmbeddingModel(DIMENSIONS).embed(texts);
+            assertThat(vectors).hasSize(40);
+            for (int i = 0; i < 40; i++) {
+                assertThat(vectors.get(i)).containsExactly(expected.get(i));
+            }
+            assertThat(first.texts.get()).isEqualTo(20);
+            assertThat(second.texts.get()).isEqualTo(20);
+
+            // Small calls are not split
+            pool.embed(List.of("a", "b"));
+            assertThat(first.calls.get() + second.calls.get()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void failsOverAndReadmitsAfterHealthCheck() {
+        CountingModel healthy = new CountingModel();
+        CountingModel failing = new CountingModel();
+        failing.down.set(true);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             LoadBalancedEmbeddingModel pool = pool(executor, healthy, failing)) {
+            for (int i = 0; i < 10; i++) {
+                assertThat(pool.embed("text " + i)).hasSize(DIMENSIONS);
+            }
+            assertThat(healthy.calls.get()).isEqualTo(10);
+            assertThat(pool.healthyCount()).isEqualTo(1);
+
+            pool.checkHealth();
+            assertThat(pool.healthyCount()).isEqualTo(1);
+
+            failing.down.set(false);
+            pool.checkHealth();
+            assertThat(pool.healthyCount()).isEqualTo(2);
+
+            healthy.down.set(true);
+            failing.down.set(true);
+            pool.checkHealth();
+            assertThatThrownBy(() -> pool.embed("text"))
+                    .isInstanceOf(EmbeddingUnavailableException.class);
+        }
+    }
+
+    @Test
+    void readmitsAfterCooldownWithoutHealthChecks() throws Exception {
+        CountingModel first = new CountingModel();
+        CountingModel second = new CountingModel();
+        first.down.set(true);
+        second.down.set(true);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             LoadBalancedEmbeddingModel pool = new LoadBalancedEmbeddingModel(backends(first, second), executor,
+                     Duration.ZERO, Duration.ofMillis(200), 1, 8, PipelineMetrics.noop())) {
+            assertThatThrownBy(() -> pool.embed("text")).isInstanceOf(TransientAiException.class);
+            assertThat(pool.healthyCount()).isZero();
+            assertThatThrownBy(() -> pool.embed("text"))
+                    .isInstanceOfSatisfying(EmbeddingUnavailableException.class,
+                            ex -> assertThat(ex.retryAfter()).isPositive());
+
+            first.down.set(false);
+            Thread.sleep(300);
+            assertThat(pool.embed("text")).hasSize(DIMENSIONS);
+            assertThat(pool.healthyCount()).isEqualTo(1);
+            assertThat(first.calls.get()).isEqualTo(1);
+        }
+    }
+
+    private static LoadBalancedEmbeddingModel pool(ExecutorService executor, CountingModel... models) {
+        return new LoadBalancedEmbeddingModel(backends(models), executor, Duration.ZERO, 2, 8, PipelineMetrics.noop());
+    }
+
+    private static List<LoadBalancedEmbeddingModel.Backend> backends(CountingModel... models) {
+        List<LoadBalancedEmbeddingModel.Backend> backends = new ArrayList<>();
+        for (int i = 0; i < models.length; i++) {
+            CountingModel model = models[i];
+            backends.add(new LoadBalancedEmbeddingModel.Backend("backend-" + i, model, () -> {
+                if (model.down.get()) {
+                    throw new TransientAiException("connection refused");
+                }
+            }));
+        }
+        return backends;
+    }
+
+    private static final class CountingModel extends StubEmbeddingModel {
+
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger texts = new AtomicInteger();
+        final AtomicBoolean down = new AtomicBoolean();
+
+        CountingModel() {
+            super(DIMENSIONS);
+        }
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            if (down.get()) {
+                throw new TransientAiException("connection refused");
+            }
+            calls.incrementAndGet();
+            texts.addAndGet(request.getInstructions().size());
+            return super.call(request);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.isearch.text2vectorApp.embedding;
+
+import com.isearch.text2vectorApp.config.EmbeddingMicroBatchProperties;
+import com.isearch.text2vectorApp.metrics.PipelineMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MicroBatchingEmbeddingModelTest {
+
+    private static final int DIMENSIONS = 8;
+
+    @Test
+    void mergesConcurrentCallsAndReturnsEachCallersVectors() throws Exception {
+        CountingModel model = new CountingModel(Duration.ofMillis(5));
+        MicroBatchingEmbeddingModel batching = batching(model, 64);
+        StubEmbeddingModel reference = new StubEmbeddingModel(DIMENSIONS);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                List<String> texts = i % 3 == 0 ? List.of("query " + i, "other " + i) : List.of("query " + i);
+                results.add(executor.submit(() -> {
+                    List<float[]> vectors = batching.embed(texts);
+                    for (int j = 0; j < texts.size(); j++) {
+                        assertThat(vectors.get(j)).containsExactly(reference.embed(texts.get(j)));
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertThat(result.get()).isTrue();
+            }
+        }
+        assertThat(model.calls.get()).isLessThan(250);
+        assertThat(model.maxTexts.get()).isLessThanOrEqualTo(64);
+    }
+
+    @Test
+    void largeCallsAndFailuresPassThrough() {
+        CountingModel model = new CountingModel(Duration.ZERO);
+        MicroBatchingEmbeddingModel batching = batching(model, 64);
+
+        List<String> batch = List.of("a", "b", "c", "d", "e");
+        assertThat(batching.embed(batch)).hasSize(5);
+        assertThat(model.maxTexts.get()).isEqualTo(5);
+
+        MicroBatchingEmbeddingModel failing = batching(
+                new StubEmbeddingModel(DIMENSIONS, Duration.ZERO, 1.0), 64);
+        assertThatThrownBy(() -> failing.embed("text")).isInstanceOf(TransientAiException.class);
+    }
+
+    @Test
+    void mapsResultsByIndexWhenTheModelReordersThem() throws Exception {
+        StubEmbeddingModel reversing = new StubEmbeddingModel(DIMENSIONS, Duration.ofMillis(5)) {
+            @Override
+            public EmbeddingResponse call(EmbeddingRequest request) {
+                List<Embedding> results = new ArrayList<>(super.call(request).getResults());
+                Collections.reverse(results);
+                return new EmbeddingResponse(results);
+            }
+        };
+        MicroBatchingEmbeddingModel batching = batching(reversing, 64);
+        StubEmbeddingModel reference = new StubEmbeddingModel(DIMENSIONS);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                String text = "query " + i;
+                results.add(executor.submit(() -> Arrays.equals(batching.embed(text), reference.embed(text))));
+            }
+            for (Future<Boolean> result : results) {
+                assertThat(result.get()).isTrue();
+            }
+        }
+    }
+
+    @Test
+    void errorsInTheMergedCallReachEveryCaller() throws Exception {
+        StubEmbeddingModel broken = new StubEmbeddingModel(DIMENSIONS, Duration.ofMillis(5)) {
+            @Override
+            public EmbeddingResponse call(EmbeddingRequest request) {
+                super.call(request);
+                throw new AssertionError("broken model");
+            }
+        };
+        MicroBatchingEmbeddingModel batching = batching(broken, 64);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<float[]>> results = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                String text = "query " + i;
+                results.add(executor.submit(() -> batching.embed(text)));
+            }
+            for (Future<float[]> result : results) {
+                assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+            }
+        }
+    }
+
+    private static MicroBatchingEmbeddingModel batching(StubEmbeddingModel model, int maxTexts) {
+        EmbeddingMicroBatchProperties properties = new EmbeddingMicroBatchProperties(true, Duration.ofMillis(5),
+                4096, maxTexts, 4);
+        return new MicroBatchingEmbeddingModel(model, new JTokkitTokenCountEstimator(), properties,
+                PipelineMetrics.noop());
+    }
+
+    private static final class CountingModel extends StubEmbeddingModel {
+
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger maxTexts = new AtomicInteger();
+
+        CountingModel(Duration latency) {
+            super(DIMENSIONS, latency);
+        }
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            calls.incrementAndGet();
+            maxTexts.accumulateAndGet(request.getInstructions().size(), Math::max);
+            return super.call(request);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.isearch.text2vectorApp.embedding;
+
+import com.isearch.text2vectorApp.config.EmbeddingResilienceProperties;
+import com.isearch.text2vectorApp.exception.EmbeddingUnavailableException;
+import com.isearch.text2vectorApp.metrics.PipelineMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.retry.TransientAiException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResilientEmbeddingModelTest {
+
+    private static final int DIMENSIONS = 8;
+
+    @Test
+    void retriesTransientFailures() {
+        FlakyModel model = new FlakyModel(2);
+        ResilientEmbeddingModel resilient = resilient(model, 3, 5, Duration.ofSeconds(30));
+
+        assertThat(resilient.embed("text")).hasSize(DIMENSIONS);
+        assertThat(model.calls.get()).isEqualTo(3);
+    }
+
+    @Test
+    void doesNotRetryOtherErrors() {
+        StubEmbeddingModel model = new StubEmbeddingModel(DIMENSIONS) {
+            @Override
+            public EmbeddingResponse call(EmbeddingRequest request) {
+                throw new IllegalArgumentException("input too long");
+            }
+        };
+        ResilientEmbeddingModel resilient = resilient(model, 3, 1, Duration.ofSeconds(30));
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> resilient.embed("text")).isInstanceOf(IllegalArgumentException.class);
+        }
+        // The model answered, so the circuit stays closed
+        assertThat(resilient.circuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void circuitOpensFailsFastAndRecovers() throws InterruptedException {
+        FlakyModel model = new FlakyModel(Integer.MAX_VALUE);
+        ResilientEmbeddingModel resilient = resilient(model, 1, 2, Duration.ofMillis(100));
+
+        assertThatThrownBy(() -> resilient.embed("a")).isInstanceOf(TransientAiException.class);
+        assertThatThrownBy(() -> resilient.embed("b")).isInstanceOf(TransientAiException.class);
+        assertThat(resilient.circuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        assertThatThrownBy(() -> resilient.embed("c"))
+                .isInstanceOf(EmbeddingUnavailableException.class)
+                .satisfies(ex -> assertThat(((EmbeddingUnavailableException) ex).retryAfter())
+                        .isPositive()
+                        .isLessThanOrEqualTo(Duration.ofMillis(100)));
+        assertThat(model.calls.get()).isEqualTo(2);
+
+        TimeUnit.MILLISECONDS.sleep(150);
+        model.healthy.set(true);
+        assertThat(resilient.embed("d")).hasSize(DIMENSIONS);
+        assertThat(resilient.circuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void stubFailuresAreAbsorbedByRetries() {
+        ResilientEmbeddingModel resilient = resilient(
+                new StubEmbeddingModel(DIMENSIONS, Duration.ZERO, 0.2), 10, 100, Duration.ofSeconds(30));
+
+        for (int i = 0; i < 200; i++) {
+            assertThat(resilient.embed(List.of("chunk " + i, "other " + i))).hasSize(2);
+        }
+    }
+
+    @Test
+    void limiterBacksOffOnSlowCallsAndGrowsWhenSaturated() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 1, 64, 2.0, 0.5);
+
+        // Saturated and fast: the limit grows
+        for (int i = 0; i < 100; i++) {
+            fill(limiter);
+            releaseAll(limiter, TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        int grown = limiter.limit();
+        assertThat(grown).isGreaterThan(8);
+
+        // Latency per text far above the baseline: the limit halves per slow call
+        limiter.acquire(Duration.ZERO);
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(100), 1, false);
+        assertThat(limiter.limit()).isEqualTo(grown / 2);
+
+        // A larger batch taking proportionally longer is not a sign of overload
+        int before = limiter.limit();
+        limiter.acquire(Duration.ZERO);
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(100), 10, false);
+        assertThat(limiter.limit()).isGreaterThanOrEqualTo(before);
+
+        // Never more slots than the limit
+        fill(limiter);
+        assertThat(limiter.inFlight()).isEqualTo(limiter.limit());
+        assertThat(limiter.acquire(Duration.ofMillis(10))).isFalse();
+    }
+
+    @Test
+    void limiterKeepsItsLimitUnderMixedBatchSizes() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 1, 64, 2.0, 0.5);
+
+        // Queries take 10 ms, 256-text batches 400 ms: far faster per text, but not a sign of overload
+        for (int i = 0; i < 200; i++) {
+            fill(limiter);
+            boolean batch = i % 2 == 0;
+            while (limiter.inFlight() > 0) {
+                limiter.release(TimeUnit.MILLISECONDS.toNanos(batch ? 400 : 10), batch ? 256 : 1, false);
+            }
+        }
+        assertThat(limiter.limit()).isGreaterThan(8);
+    }
+
+    @Test
+    void limiterShrinksOncePerRoundTrip() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(16, 1, 64, 2.0, 0.5);
+        limiter.acquire(Duration.ZERO);
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(10), 1, false);
+
+        // Every call of an overloaded round is slow, but they all ran under the same limit
+        fill(limiter);
+        releaseAll(limiter, TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(limiter.limit()).isEqualTo(8);
+
+        // A call started after the decrease that is still slow shrinks it again
+        limiter.acquire(Duration.ZERO);
+        Thread.sleep(5);
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(1), 1, true);
+        assertThat(limiter.limit()).isEqualTo(4);
+    }
+
+    private static void fill(AdaptiveConcurrencyLimiter limiter) throws InterruptedException {
+        while (limiter.acquire(Duration.ZERO)) {
+            // take every free slot
+        }
+    }
+
+    private static void releaseAll(AdaptiveConcurrencyLimiter limiter, long latencyNanos) {
+        while (limiter.inFlight() > 0) {
+            limiter.release(latencyNanos, 1, false);
+        }
+    }
+
+    private static ResilientEmbeddingModel resilient(StubEmbeddingModel model, int maxAttempts, int failureThreshold,
+                                                     Duration openDuration) {
+        EmbeddingResilienceProperties properties = new EmbeddingResilienceProperties(true, 4, 1, 64, 2.0, 0.9,
+                Duration.ofSeconds(5), maxAttempts, Duration.ofMillis(1), Duration.ofMillis(5), failureThreshold,
+                openDuration);
+        return new ResilientEmbeddingModel(model, properties, PipelineMetrics.noop());
+    }
+
+    /**
+     * Fails with a transient error until it has failed {@code failures} times or is made healthy.
+     */
+    private static final class FlakyModel extends StubEmbeddingModel {
+
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicBoolean healthy = new AtomicBoolean();
+        private final int failures;
+
+        FlakyModel(int failures) {
+            super(DIMENSIONS);
+            this.failures = failures;
+        }
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            if (calls.incrementAndGet() <= failures && !healthy.get()) {
+                throw new TransientAiException("connection reset");
+            }
+            return super.call(request);
+        }
+    }
+}
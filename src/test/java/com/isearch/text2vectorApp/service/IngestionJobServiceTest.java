@@ -0,0 +1,55 @@
+package com.isearch.text2vectorApp.service;
+
+import com.isearch.text2vectorApp.config.IngestionProperties;
+import com.isearch.text2vectorApp.util.ResourceUtils;
+import com.isearch.text2vectorApp.util.TypedResource;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IngestionJobServiceTest {
+
+    @Test
+    void shutdownFailsQueuedJobsAndReleasesTheirUploads() throws Exception {
+        IngestionService ingestionService = mock(IngestionService.class);
+        CountDownLatch started = new CountDownLatch(1);
+        when(ingestionService.store(any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            Thread.sleep(Long.MAX_VALUE);
+            return null;
+        });
+        IngestionJobService jobService = new IngestionJobService(ingestionService, new IngestionProperties(256, 500,
+                Duration.ofMillis(20), 5000, 32, 1, 4, 100, Duration.ofHours(1)));
+
+        IngestionJob running = jobService.submit(List.of(spooledUpload("running.txt")));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        TypedResource queuedUpload = spooledUpload("queued.txt");
+        IngestionJob queued = jobService.submit(List.of(queuedUpload));
+        assertThat(queuedUpload.resource().getFile()).exists();
+
+        jobService.shutdown();
+
+        assertThat(queued.getState()).isEqualTo(IngestionJob.State.FAILED);
+        assertThat(queued.toStatus().errors()).singleElement().asString().startsWith("queued.txt: ");
+        assertThat(queuedUpload.resource().getFile()).doesNotExist();
+        assertThat(running.getState()).isNotEqualTo(IngestionJob.State.QUEUED);
+    }
+
+    private static TypedResource spooledUpload(String filename) throws Exception {
+        // Above the in-memory threshold, so the upload is spooled to a temporary file
+        byte[] content = "text\n".repeat((int) (ResourceUtils.IN_MEMORY_THRESHOLD / 5) + 1).getBytes(StandardCharsets.UTF_8);
+        return ResourceUtils.toTypedResource(new MockMultipartFile("file", filename, MediaType.TEXT_PLAIN_VALUE,
+                content));
+    }
+}
@@ -0,0 +1,159 @@
+package com.isearch.text2vectorApp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isearch.text2vectorApp.config.HnswProperties;
+import com.isearch.text2vectorApp.config.IngestionProperties;
+import com.isearch.text2vectorApp.config.QuantizationProperties;
+import com.isearch.text2vectorApp.embedding.StubEmbeddingModel;
+import com.isearch.text2vectorApp.metrics.PipelineMetrics;
+import com.isearch.text2vectorApp.model.StoredDocument;
+import com.isearch.text2vectorApp.repository.PgVectorTable;
+import com.isearch.text2vectorApp.repository.StoredChunkRepository;
+import com.isearch.text2vectorApp.repository.VectorStoreBulkWriter;
+import com.isearch.text2vectorApp.util.DetectedFileType;
+import com.isearch.text2vectorApp.util.QuantizationMode;
+import com.isearch.text2vectorApp.util.TypedResource;
+import com.isearch.text2vectorApp.vectorstore.HnswVectorStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IngestionServiceTest {
+
+    private static final int DIMENSIONS = 16;
+    private static final TypedResource RESOURCE = resource("notes.txt");
+
+    private DocumentService documentService;
+    private ApplicationEventPublisher eventPublisher;
+    private HnswVectorStore store;
+    private IngestionService ingestionService;
+
+    @BeforeEach
+    void setUp() {
+        documentService = mock(DocumentService.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        StubEmbeddingModel embeddingModel = new StubEmbeddingModel(DIMENSIONS) {
+            @Override
+            public EmbeddingResponse call(EmbeddingRequest request) {
+                if (request.getInstructions().contains("poison")) {
+                    throw new IllegalStateException("cannot embed poison");
+                }
+                return super.call(request);
+            }
+        };
+        store = new HnswVectorStore(embeddingModel, new TokenCountBatchingStrategy(), DIMENSIONS,
+                new HnswProperties(16, 100, 64, 1024, 0.3, null), new QuantizationProperties(QuantizationMode.NONE, 4),
+                new ObjectMapper());
+        IngestionProperties properties = new IngestionProperties(256, 500, Duration.ofMillis(20), 5000, 32, 2, 16,
+                1000, Duration.ofHours(1));
+        StoredChunkRepository chunkRepository = new StoredChunkRepository(
+                new PgVectorTable(store, "public", "vector_store", DIMENSIONS, "COSINE_DISTANCE"),
+                store, null, null, new ObjectMapper(), properties);
+        ingestionService = new IngestionService(documentService, store, embeddingModel,
+                mock(VectorStoreBulkWriter.class), chunkRepository, properties, eventPublisher, null,
+                PipelineMetrics.noop());
+    }
+
+    @Test
+    void reuploadAddsNewRemovesStaleAndRefreshesUnchangedChunks() {
+        upload("alpha", "beta", "gamma");
+        assertThat(store.size()).isEqualTo(3);
+
+        StoredDocument outcome = upload("beta", "delta", "alpha");
+
+        assertThat(outcome.isStored()).isTrue();
+        assertThat(outcome.added()).isEqualTo(1);
+        assertThat(outcome.removed()).isEqualTo(1);
+        assertThat(store.size()).isEqualTo(3);
+        assertThat(chunkIndex("beta")).isEqualTo(0);
+        assertThat(chunkIndex("delta")).isEqualTo(1);
+        assertThat(chunkIndex("alpha")).isEqualTo(2);
+        assertThat(store.similaritySearch("gamma")).extracting(Document::getText).doesNotContain("gamma");
+        verify(eventPublisher, times(2)).publishEvent(any(DocumentsStoredEvent.class));
+    }
+
+    @Test
+    void reorderedDocumentOnlyRewritesMetadataAndStillNotifies() {
+        upload("alpha", "beta");
+
+        StoredDocument outcome = upload("beta", "alpha");
+
+        assertThat(outcome.added()).isZero();
+        assertThat(outcome.removed()).isZero();
+        assertThat(chunkIndex("beta")).isEqualTo(0);
+        assertThat(chunkIndex("alpha")).isEqualTo(1);
+        verify(eventPublisher, times(2)).publishEvent(any(DocumentsStoredEvent.class));
+    }
+
+    @Test
+    void emptyDocumentChangesNothing() {
+        upload("alpha");
+
+        upload();
+
+        assertThat(store.size()).isEqualTo(1);
+        verify(eventPublisher, times(1)).publishEvent(any(DocumentsStoredEvent.class));
+    }
+
+    @Test
+    void failedBulkStoreReportsStatusPerFile() {
+        TypedResource good = resource("good.txt");
+        TypedResource bad = resource("bad.txt");
+        givenChunks(good, "alpha", "beta");
+        givenChunks(bad, "gamma", "poison");
+
+        List<StoredDocument> outcomes = ingestionService.storeAll(List.of(good, bad));
+
+        assertThat(outcomes.get(0).isStored()).isTrue();
+        assertThat(outcomes.get(1).isStored()).isFalse();
+        assertThat(outcomes.get(1).error()).contains("poison");
+        assertThat(store.findIdsBySource("good.txt")).hasSize(2);
+    }
+
+    private StoredDocument upload(String... texts) {
+        givenChunks(RESOURCE, texts);
+        return ingestionService.store(RESOURCE, IngestionListener.NONE);
+    }
+
+    private void givenChunks(TypedResource resource, String... texts) {
+        List<Document> chunks = new ArrayList<>();
+        for (int i = 0; i < texts.length; i++) {
+            chunks.add(new Document(texts[i], Map.of("chunk_index", i)));
+        }
+        when(documentService.readChunks(resource)).thenReturn(chunks);
+    }
+
+    private static TypedResource resource(String filename) {
+        // Distinct content, since ByteArrayResource equality depends on it
+        return new TypedResource(new ByteArrayResource(filename.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        }, new DetectedFileType("text/plain", "txt", new byte[0]));
+    }
+
+    private Object chunkIndex(String text) {
+        Document hit = store.similaritySearch(text).getFirst();
+        assertThat(hit.getText()).isEqualTo(text);
+        return hit.getMetadata().get("chunk_index");
+    }
+}
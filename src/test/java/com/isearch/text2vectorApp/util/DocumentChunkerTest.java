@@ -0,0 +1,63 @@
+package com.isearch.text2vectorApp.util;
+
+import com.isearch.text2vectorApp.config.ChunkingProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class DocumentChunkerTest {
+
+    private final TokenCountEstimator estimator = new JTokkitTokenCountEstimator();
+
+    @Test
+    void chunksCarryTheirTokenCountAndSourceMetadata() {
+        DocumentChunker chunker = new DocumentChunker(estimator, new ChunkingProperties(true, 50, 10));
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            text.append("Sentence number ").append(i).append(" talks about vectors and search. ");
+            if (i % 5 == 4) {
+                text.append("\n\n");
+            }
+        }
+
+        List<Document> chunks = chunker.chunk(List.of(new Document(text.toString(), Map.of("page_number", 3))));
+
+        assertThat(chunks).hasSizeGreaterThan(3);
+        for (int i = 0; i < chunks.size(); i++) {
+            Document chunk = chunks.get(i);
+            int tokens = (Integer) chunk.getMetadata().get(DocumentChunker.TOKEN_COUNT);
+            assertThat(tokens).isPositive().isLessThanOrEqualTo(50);
+            // Counted per segment; joining segments changes the exact count by a few tokens at most
+            assertThat(tokens).isCloseTo(estimator.estimate(chunk.getText()), within(5));
+            assertThat(chunk.getMetadata()).containsEntry(DocumentChunker.CHUNK_INDEX, i).containsEntry("page_number", 3);
+        }
+    }
+
+    @Test
+    void unchunkedDocumentsAreCountedOnceAndKeepExistingCounts() {
+        DocumentChunker chunker = new DocumentChunker(estimator, new ChunkingProperties(false, 50, 10));
+        Map<String, Object> counted = new HashMap<>(Map.of(DocumentChunker.TOKEN_COUNT, 7));
+
+        List<Document> documents = chunker.chunk(List.of(new Document("short text"), new Document("counted", counted)));
+
+        assertThat(documents.get(0).getMetadata()).containsEntry(DocumentChunker.TOKEN_COUNT,
+                estimator.estimate("short text"));
+        assertThat(documents.get(1).getMetadata()).containsEntry(DocumentChunker.TOKEN_COUNT, 7);
+    }
+
+    @Test
+    void storedMetadataLeavesTheTokenCountBehind() {
+        Map<String, Object> metadata = Map.of(DocumentChunker.TOKEN_COUNT, 7, "source", "a.txt");
+
+        assertThat(DocumentChunker.storedMetadata(metadata)).containsExactly(Map.entry("source", "a.txt"));
+        assertThat(metadata).containsKey(DocumentChunker.TOKEN_COUNT);
+    }
+}
@@ -0,0 +1,312 @@
+package com.isearch.text2vectorApp.vectorstore;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isearch.text2vectorApp.config.HnswProperties;
+import com.isearch.text2vectorApp.config.QuantizationProperties;
+import com.isearch.text2vectorApp.embedding.StubEmbeddingModel;
+import com.isearch.text2vectorApp.util.QuantizationMode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HnswVectorStoreTest {
+
+    private static final int DIMENSIONS = 32;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void findsEachDocumentByItsOwnText() {
+        HnswVectorStore store = newStore(null);
+        store.add(documents(300));
+
+        for (int i = 0; i < 300; i += 17) {
+            List<Document> results = store.similaritySearch(SearchRequest.builder().query("chunk " + i).topK(3).build());
+            assertThat(results.get(0).getId()).isEqualTo("doc-" + i);
+            assertThat(results.get(0).getScore()).isGreaterThan(0.999);
+        }
+    }
+
+    @Test
+    void deletesByIdAndByFilterAndAppliesFilters() {
+        HnswVectorStore store = newStore(null);
+        store.add(documents(100));
+
+        store.delete(List.of("doc-4"));
+        store.delete(new FilterExpressionBuilder().eq("source", "file-1.txt").build());
+
+        assertThat(store.size()).isEqualTo(100 - 1 - 25);
+        assertThat(search(store, "chunk 4", null)).extracting(Document::getId).doesNotContain("doc-4");
+        assertThat(search(store, "chunk 8", "source == 'file-0.txt'"))
+                .allSatisfy(document -> assertThat(document.getMetadata()).containsEntry("source", "file-0.txt"));
+        assertThat(search(store, "chunk 9", "source == 'file-1.txt'")).isEmpty();
+    }
+
+    @Test
+    void addingAnExistingIdReplacesTheDocument() {
+        HnswVectorStore store = newStore(null);
+        store.add(List.of(new Document("doc-1", "old text", Map.of())));
+        store.add(List.of(new Document("doc-1", "new text", Map.of())));
+
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(search(store, "new text", null)).extracting(Document::getText).containsExactly("new text");
+    }
+
+    @Test
+    void compactsOnceEnoughDocumentsAreDeleted() {
+        HnswVectorStore store = newStore(null);
+        store.add(documents(1000));
+
+        // 250 of 1000 deleted stays below the 0.3 threshold; 50 more replaced passes it
+        store.delete(IntStream.range(0, 250).mapToObj(i -> "doc-" + i).toList());
+        assertThat(search(store, "chunk 100", null)).extracting(Document::getId).doesNotContain("doc-100");
+        store.add(IntStream.range(900, 950).mapToObj(i -> new Document("doc-" + i, "chunk " + i + " v2", Map.of()))
+                .toList());
+
+        assertThat(store.size()).isEqualTo(750);
+        for (int i = 250; i < 900; i += 31) {
+            assertThat(search(store, "chunk " + i, null).get(0).getId()).isEqualTo("doc-" + i);
+        }
+        assertThat(search(store, "chunk 920 v2", null).get(0).getText()).isEqualTo("chunk 920 v2");
+        assertThat(search(store, "chunk 1", null)).extracting(Document::getId).doesNotContain("doc-1");
+
+        // Waits for the rebuild the replacements started in the background
+        store.compact();
+        assertThat(store.size()).isEqualTo(750);
+        assertThat(search(store, "chunk 333", null).get(0).getId()).isEqualTo("doc-333");
+        // The replacement has no source, so only the old doc-940 would match
+        assertThat(search(store, "chunk 940 v2", "source == 'file-0.txt'")).extracting(Document::getId)
+                .doesNotContain("doc-940");
+    }
+
+    @Test
+    void writesDuringCompactionAreKept() throws Exception {
+        HnswVectorStore store = newStore(null);
+        store.add(documents(2000));
+        store.delete(IntStream.range(0, 500).mapToObj(i -> "doc-" + i).toList());
+
+        CompletableFuture<Void> compaction = CompletableFuture.runAsync(store::compact);
+        for (int i = 2000; i < 2200; i += 20) {
+            int from = i;
+            store.add(IntStream.range(from, from + 20)
+                    .mapToObj(n -> new Document("doc-" + n, "chunk " + n, Map.of("source", "late.txt")))
+                    .toList());
+            store.delete(List.of("doc-" + (from - 1000)));
+            store.add(List.of(new Document("doc-" + (from - 999), "chunk " + (from - 999) + " v2", Map.of())));
+        }
+        compaction.get(30, TimeUnit.SECONDS);
+        store.compact();
+
+        assertThat(store.size()).isEqualTo(2000 - 500 + 200 - 10);
+        for (int i = 2000; i < 2200; i += 7) {
+            assertThat(search(store, "chunk " + i, "source == 'late.txt'").get(0).getId()).isEqualTo("doc-" + i);
+        }
+        assertThat(search(store, "chunk 1020", null)).extracting(Document::getId).doesNotContain("doc-1020");
+        assertThat(search(store, "chunk 1021 v2", null).get(0).getText()).isEqualTo("chunk 1021 v2");
+        assertThat(search(store, "chunk 1500", null).get(0).getId()).isEqualTo("doc-1500");
+        store.close();
+    }
+
+    @Test
+    void filtersRankFewMatchesExhaustivelyAndManyThroughTheGraph() {
+        HnswVectorStore store = newStore(null);
+        List<Document> documents = new ArrayList<>(documents(1000));
+        documents.add(new Document("rare", "rare chunk", Map.of("source", "rare.txt")));
+        store.add(documents);
+
+        assertThat(search(store, "chunk 3", "source == 'rare.txt'")).extracting(Document::getId)
+                .containsExactly("rare");
+        assertThat(search(store, "chunk 401", "source == 'file-1.txt'").get(0).getId()).isEqualTo("doc-401");
+        assertThat(search(store, "chunk 402", "source == 'file-1.txt'"))
+                .allSatisfy(document -> assertThat(document.getMetadata()).containsEntry("source", "file-1.txt"));
+    }
+
+    @Test
+    void snapshotRoundTrip() throws Exception {
+        Path file = tempDir.resolve("index.hnsw");
+        HnswVectorStore store = newStore(file);
+        store.add(documents(5000));
+        store.delete(List.of("doc-7"));
+        store.close();
+
+        HnswVectorStore loaded = newStore(file);
+        assertThat(loaded.size()).isEqualTo(4999);
+        Document hit = search(loaded, "chunk 4242", null).get(0);
+        assertThat(hit.getId()).isEqualTo("doc-4242");
+        assertThat(hit.getMetadata()).containsEntry("source", "file-2.txt");
+        assertThat(search(loaded, "chunk 7", null)).extracting(Document::getId).doesNotContain("doc-7");
+
+        // Appends after loading go to the copied tail segment and new segments
+        loaded.add(List.of(new Document("doc-new", "appended", Map.of())));
+        assertThat(search(loaded, "appended", null).get(0).getId()).isEqualTo("doc-new");
+    }
+
+    @Test
+    void quantizedStoreRerankedWithFullPrecisionVectors() throws Exception {
+        Path file = tempDir.resolve("int8.hnsw");
+        HnswVectorStore store = newStore(file, QuantizationMode.INT8);
+        store.add(documents(1000));
+        store.close();
+
+        HnswVectorStore loaded = newStore(file, QuantizationMode.INT8);
+        for (int i = 0; i < 1000; i += 37) {
+            Document hit = search(loaded, "chunk " + i, null).get(0);
+            assertThat(hit.getId()).isEqualTo("doc-" + i);
+            // Scores come from the float32 copies, not the int8 codes
+            assertThat(hit.getScore()).isGreaterThan(0.9999);
+        }
+
+        // Compaction writes the float32 copies to a new file, under the new node numbers
+        loaded.delete(IntStream.range(0, 1000).filter(i -> i % 2 == 0).mapToObj(i -> "doc-" + i).toList());
+        loaded.compact();
+        for (int i = 1; i < 1000; i += 38) {
+            Document hit = search(loaded, "chunk " + i, null).get(0);
+            assertThat(hit.getId()).isEqualTo("doc-" + i);
+            assertThat(hit.getScore()).isGreaterThan(0.9999);
+        }
+        loaded.close();
+
+        HnswVectorStore compacted = newStore(file, QuantizationMode.INT8);
+        assertThat(compacted.size()).isEqualTo(500);
+        Document hit = search(compacted, "chunk 777", null).get(0);
+        assertThat(hit.getId()).isEqualTo("doc-777");
+        assertThat(hit.getScore()).isGreaterThan(0.9999);
+        compacted.close();
+
+        assertThatThrownBy(() -> newStore(file, QuantizationMode.BINARY))
+                .hasMessageContaining("quantization");
+    }
+
+    @Test
+    void concurrentInsertsAreAllSearchable() {
+        HnswVectorStore store = newStore(null);
+        List<Document> documents = documents(2000);
+        IntStream.range(0, 20).parallel()
+                .forEach(slice -> store.add(documents.subList(slice * 100, slice * 100 + 100)));
+
+        assertThat(store.size()).isEqualTo(2000);
+        for (int i = 0; i < 2000; i += 97) {
+            assertThat(search(store, "chunk " + i, null).get(0).getId()).isEqualTo("doc-" + i);
+        }
+    }
+
+    @Test
+    void recallAgainstExactSearch() {
+        Random random = new Random(42);
+        HnswIndex index = new HnswIndex(DIMENSIONS, 16, 200, 1024);
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            float[] vector = randomUnitVector(random);
+            vectors.add(vector);
+            index.add(vector, new HnswChunk("v" + i, "", Map.of()));
+        }
+
+        int found = 0;
+        int queries = 50;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomUnitVector(random);
+            Set<Integer> exact = IntStream.range(0, vectors.size()).boxed()
+                    .sorted(Comparator.comparingDouble((Integer i) -> dot(query, vectors.get(i))).reversed())
+                    .limit(10)
+                    .collect(Collectors.toSet());
+            found += (int) index.search(query, 10, 64, null).stream()
+                    .filter(hit -> exact.contains(hit.node()))
+                    .count();
+        }
+        assertThat(found / (double) (queries * 10)).isGreaterThan(0.9);
+    }
+
+    @Test
+    void int8RangesAreNotNarrowedByASmallFirstBatch() {
+        Random random = new Random(7);
+        HnswIndex index = new HnswIndex(DIMENSIONS, 16, 200, 1024, QuantizationMode.INT8, null);
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            float[] vector = randomUnitVector(random);
+            vectors.add(vector);
+            if (i == 0) {
+                // As for a first upload with a single chunk
+                index.calibrate(List.of(vector));
+            }
+            index.add(vector, new HnswChunk("v" + i, "", Map.of()));
+        }
+
+        int found = 0;
+        int queries = 50;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomUnitVector(random);
+            Set<Integer> exact = IntStream.range(0, vectors.size()).boxed()
+                    .sorted(Comparator.comparingDouble((Integer i) -> dot(query, vectors.get(i))).reversed())
+                    .limit(10)
+                    .collect(Collectors.toSet());
+            found += (int) index.search(query, 10, 64, null).stream()
+                    .filter(hit -> exact.contains(hit.node()))
+                    .count();
+        }
+        assertThat(found / (double) (queries * 10)).isGreaterThan(0.8);
+    }
+
+    private HnswVectorStore newStore(Path snapshotFile) {
+        return newStore(snapshotFile, QuantizationMode.NONE);
+    }
+
+    private HnswVectorStore newStore(Path snapshotFile, QuantizationMode mode) {
+        return new HnswVectorStore(new StubEmbeddingModel(DIMENSIONS), new TokenCountBatchingStrategy(), DIMENSIONS,
+                new HnswProperties(16, 100, 64, 1024, 0.3, snapshotFile), new QuantizationProperties(mode, 4),
+                new ObjectMapper());
+    }
+
+    private static List<Document> documents(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new Document("doc-" + i, "chunk " + i, Map.of("source", "file-" + (i % 4) + ".txt")))
+                .toList();
+    }
+
+    private static List<Document> search(HnswVectorStore store, String query, String filter) {
+        SearchRequest.Builder request = SearchRequest.builder().query(query).topK(5);
+        if (filter != null) {
+            request.filterExpression(filter);
+        }
+        return store.similaritySearch(request.build());
+    }
+
+    private static float[] randomUnitVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        double norm = 0;
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] /= (float) Math.sqrt(norm);
+        }
+        return vector;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float dot = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+}